@@ -21,10 +21,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.symphonyoss.integration.api.client.SymphonyApiClient;
 import org.symphonyoss.integration.exception.MissingConfigurationException;
+import org.symphonyoss.integration.exception.RemoteApiException;
+import org.symphonyoss.integration.exception.authentication.ConnectivityException;
 import org.symphonyoss.integration.model.yaml.IntegrationProperties;
 
+import java.util.List;
+
+import javax.ws.rs.ProcessingException;
+
 /**
  * Low-level HTTP client to query Agent API.
+ *
+ * Requests executed through {@link #invoke(AgentRequest)} are balanced across the Agent endpoints
+ * by the {@link AgentEndpointBalancer}. Other requests go to the first configured endpoint.
  * Created by rsanchez on 22/02/17.
  */
 @Component
@@ -37,12 +46,65 @@ public class AgentApiClient extends SymphonyApiClient {
   @Autowired
   private IntegrationProperties properties;
 
+  @Autowired
+  private AgentEndpointBalancer balancer;
+
+  /**
+   * Endpoint selected for the request running on the current thread
+   */
+  private final ThreadLocal<AgentEndpoint> currentEndpoint = new ThreadLocal<>();
+
+  /**
+   * Request to the Agent API.
+   * @param <T> Response type
+   */
+  public interface AgentRequest<T> {
+
+    T execute() throws RemoteApiException;
+
+  }
+
   public AgentApiClient() {
     super(SERVICE_NAME);
   }
 
+  /**
+   * Executes the request on the endpoint selected by the balancer. Connectivity failures are
+   * reported to the balancer, so the endpoint can be ejected, and then rethrown.
+   * @param request Request to the Agent API
+   * @return Request response
+   */
+  public <T> T invoke(AgentRequest<T> request) throws RemoteApiException {
+    AgentEndpoint endpoint = balancer.acquire();
+    currentEndpoint.set(endpoint);
+
+    boolean connectivityFailure = false;
+
+    try {
+      return request.execute();
+    } catch (ConnectivityException | ProcessingException e) {
+      connectivityFailure = true;
+      throw e;
+    } finally {
+      currentEndpoint.remove();
+      balancer.release(endpoint, connectivityFailure);
+    }
+  }
+
   @Override
   protected String getBasePath() {
+    AgentEndpoint endpoint = currentEndpoint.get();
+
+    if (endpoint != null) {
+      return endpoint.getUrl();
+    }
+
+    List<AgentEndpoint> endpoints = balancer.getEndpoints();
+
+    if (!endpoints.isEmpty()) {
+      return endpoints.get(0).getUrl();
+    }
+
     String url = properties.getAgentUrl();
 
     if (StringUtils.isBlank(url)) {
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.agent.api.client;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Agent endpoint tracked by the {@link AgentEndpointBalancer}.
+ */
+public class AgentEndpoint {
+
+  private final String url;
+
+  /**
+   * Requests sent to this endpoint that haven't finished yet
+   */
+  private final AtomicInteger outstanding = new AtomicInteger();
+
+  /**
+   * Connectivity failures since the last successful request
+   */
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+  /**
+   * Time (in milliseconds) until this endpoint is ejected from the balancing
+   */
+  private volatile long ejectedUntil;
+
+  public AgentEndpoint(String url) {
+    this.url = url;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public int getOutstanding() {
+    return outstanding.get();
+  }
+
+  public boolean isEjected(long now) {
+    return now < ejectedUntil;
+  }
+
+  public long getEjectedUntil() {
+    return ejectedUntil;
+  }
+
+  void acquire() {
+    outstanding.incrementAndGet();
+  }
+
+  void release() {
+    outstanding.decrementAndGet();
+  }
+
+  void onSuccess() {
+    consecutiveFailures.set(0);
+  }
+
+  /**
+   * Registers a connectivity failure.
+   * @return Number of consecutive failures
+   */
+  int onFailure() {
+    return consecutiveFailures.incrementAndGet();
+  }
+
+  void eject(long until) {
+    this.ejectedUntil = until;
+    consecutiveFailures.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return url;
+  }
+
+}
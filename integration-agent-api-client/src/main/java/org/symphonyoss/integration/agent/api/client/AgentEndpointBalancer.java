@@ -0,0 +1,186 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.agent.api.client;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.exception.MissingConfigurationException;
+import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Client-side balancer for the Agent endpoints.
+ *
+ * The Agent URLs are read from the property "agent.urls" (comma-separated). When it's not set,
+ * the single Agent URL from the YAML file is used and the balancing is a no-op.
+ *
+ * Each request goes to the endpoint with the least outstanding requests, with ties broken in
+ * round-robin order. Endpoints that fail with connectivity errors are ejected for a cooldown
+ * period and then added back. If all the endpoints are ejected, the one closest to the end of its
+ * cooldown is used, so requests are never refused by the balancer itself.
+ */
+@Component
+public class AgentEndpointBalancer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AgentEndpointBalancer.class);
+
+  public static final String AGENT_URLS_KEY = "agent.urls";
+
+  public static final String EJECTION_FAILURES_KEY = "agent.balancer.ejection.failures";
+
+  public static final String EJECTION_TIME_KEY = "agent.balancer.ejection.ms";
+
+  public static final Integer DEFAULT_EJECTION_FAILURES = 3;
+
+  public static final Long DEFAULT_EJECTION_TIME = TimeUnit.SECONDS.toMillis(30);
+
+  private static final String SERVICE_NAME = "Agent";
+
+  private static final String REQUIRED_KEY = "agent.host";
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private IntegrationProperties properties;
+
+  private List<AgentEndpoint> endpoints = Collections.emptyList();
+
+  private int ejectionFailures;
+
+  private long ejectionTime;
+
+  private final AtomicInteger next = new AtomicInteger();
+
+  @PostConstruct
+  public void init() {
+    this.ejectionFailures =
+        environment.getProperty(EJECTION_FAILURES_KEY, Integer.class, DEFAULT_EJECTION_FAILURES);
+    this.ejectionTime = environment.getProperty(EJECTION_TIME_KEY, Long.class, DEFAULT_EJECTION_TIME);
+
+    List<AgentEndpoint> configured = new ArrayList<>();
+    String[] urls = StringUtils.split(environment.getProperty(AGENT_URLS_KEY), ',');
+
+    if (urls != null) {
+      for (String url : urls) {
+        if (StringUtils.isNotBlank(url)) {
+          configured.add(new AgentEndpoint(StringUtils.removeEnd(url.trim(), "/")));
+        }
+      }
+    }
+
+    this.endpoints = Collections.unmodifiableList(configured);
+
+    if (isEnabled()) {
+      LOG.info("Agent balancing enabled. Endpoints: {}", endpoints);
+    }
+  }
+
+  /**
+   * Returns true if more than one Agent URL is configured.
+   */
+  public boolean isEnabled() {
+    return endpoints.size() > 1;
+  }
+
+  /**
+   * Returns the configured endpoints.
+   */
+  public List<AgentEndpoint> getEndpoints() {
+    return endpoints;
+  }
+
+  /**
+   * Selects the endpoint for a new request. The endpoint must be released by
+   * {@link #release(AgentEndpoint, boolean)} once the request finishes.
+   * @return Selected endpoint
+   */
+  public AgentEndpoint acquire() {
+    AgentEndpoint endpoint = isEnabled() ? select() : getDefaultEndpoint();
+    endpoint.acquire();
+    return endpoint;
+  }
+
+  /**
+   * Releases the endpoint and records the request outcome.
+   * @param endpoint Endpoint returned by {@link #acquire()}
+   * @param connectivityFailure true if the request failed because the endpoint was unreachable
+   */
+  public void release(AgentEndpoint endpoint, boolean connectivityFailure) {
+    endpoint.release();
+
+    if (!connectivityFailure) {
+      endpoint.onSuccess();
+    } else if (isEnabled() && endpoint.onFailure() >= ejectionFailures) {
+      endpoint.eject(System.currentTimeMillis() + ejectionTime);
+      LOG.warn("Agent endpoint {} ejected for {} ms", endpoint, ejectionTime);
+    }
+  }
+
+  private AgentEndpoint select() {
+    long now = System.currentTimeMillis();
+    int size = endpoints.size();
+    int start = Math.abs(next.getAndIncrement() % size);
+
+    AgentEndpoint selected = null;
+    AgentEndpoint leastEjected = null;
+
+    for (int i = 0; i < size; i++) {
+      AgentEndpoint endpoint = endpoints.get((start + i) % size);
+
+      if (endpoint.isEjected(now)) {
+        if (leastEjected == null || endpoint.getEjectedUntil() < leastEjected.getEjectedUntil()) {
+          leastEjected = endpoint;
+        }
+      } else if (selected == null || endpoint.getOutstanding() < selected.getOutstanding()) {
+        selected = endpoint;
+      }
+    }
+
+    return selected != null ? selected : leastEjected;
+  }
+
+  /**
+   * Returns the single Agent endpoint from the YAML file. A new instance is built on each call as
+   * the properties may be reloaded.
+   */
+  private AgentEndpoint getDefaultEndpoint() {
+    if (endpoints.size() == 1) {
+      return endpoints.get(0);
+    }
+
+    String url = properties.getAgentUrl();
+
+    if (StringUtils.isBlank(url)) {
+      throw new MissingConfigurationException(SERVICE_NAME, REQUIRED_KEY);
+    }
+
+    return new AgentEndpoint(url);
+  }
+
+}
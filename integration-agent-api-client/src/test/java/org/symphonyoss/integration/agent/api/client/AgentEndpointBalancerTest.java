@@ -0,0 +1,148 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.agent.api.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+import org.symphonyoss.integration.exception.MissingConfigurationException;
+import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+
+/**
+ * Unit tests for {@link AgentEndpointBalancer}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AgentEndpointBalancerTest {
+
+  private static final String AGENT1 = "https://agent1.symphony.com:8444/agent";
+
+  private static final String AGENT2 = "https://agent2.symphony.com:8444/agent";
+
+  @Mock
+  private Environment environment;
+
+  @Mock
+  private IntegrationProperties properties;
+
+  @InjectMocks
+  private AgentEndpointBalancer balancer = new AgentEndpointBalancer();
+
+  @Before
+  public void init() {
+    doReturn(2).when(environment).getProperty(AgentEndpointBalancer.EJECTION_FAILURES_KEY,
+        Integer.class, AgentEndpointBalancer.DEFAULT_EJECTION_FAILURES);
+    doReturn(60000L).when(environment).getProperty(AgentEndpointBalancer.EJECTION_TIME_KEY,
+        Long.class, AgentEndpointBalancer.DEFAULT_EJECTION_TIME);
+  }
+
+  @Test
+  public void testSingleAgent() {
+    doReturn(AGENT1).when(properties).getAgentUrl();
+    balancer.init();
+
+    assertFalse(balancer.isEnabled());
+
+    AgentEndpoint endpoint = balancer.acquire();
+    assertEquals(AGENT1, endpoint.getUrl());
+
+    balancer.release(endpoint, true);
+    balancer.release(balancer.acquire(), true);
+
+    // a single Agent is never ejected
+    assertEquals(AGENT1, balancer.acquire().getUrl());
+  }
+
+  @Test(expected = MissingConfigurationException.class)
+  public void testMissingAgent() {
+    balancer.init();
+    balancer.acquire();
+  }
+
+  @Test
+  public void testLeastOutstanding() {
+    mockAgents();
+
+    AgentEndpoint first = balancer.acquire();
+    AgentEndpoint second = balancer.acquire();
+    assertNotEquals(first, second);
+
+    // the first endpoint has no outstanding requests after each release
+    balancer.release(first, false);
+    assertEquals(first, balancer.acquire());
+
+    balancer.release(first, false);
+    assertEquals(first, balancer.acquire());
+
+    assertEquals(1, first.getOutstanding());
+    assertEquals(1, second.getOutstanding());
+  }
+
+  @Test
+  public void testEjection() {
+    mockAgents();
+
+    AgentEndpoint failing = balancer.getEndpoints().get(0);
+    AgentEndpoint healthy = balancer.getEndpoints().get(1);
+
+    failing.acquire();
+    balancer.release(failing, true);
+    assertFalse(failing.isEjected(System.currentTimeMillis()));
+
+    failing.acquire();
+    balancer.release(failing, true);
+    assertTrue(failing.isEjected(System.currentTimeMillis()));
+
+    for (int i = 0; i < 4; i++) {
+      assertEquals(healthy, balancer.acquire());
+    }
+  }
+
+  @Test
+  public void testAllEjected() {
+    mockAgents();
+
+    for (AgentEndpoint endpoint : balancer.getEndpoints()) {
+      endpoint.eject(System.currentTimeMillis() + 60000L);
+    }
+
+    AgentEndpoint soonest = balancer.getEndpoints().get(1);
+    soonest.eject(System.currentTimeMillis() + 1000L);
+
+    assertEquals(soonest, balancer.acquire());
+  }
+
+  private void mockAgents() {
+    doReturn(AGENT1 + ", " + AGENT2 + "/").when(environment)
+        .getProperty(AgentEndpointBalancer.AGENT_URLS_KEY);
+    balancer.init();
+
+    assertTrue(balancer.isEnabled());
+    assertEquals(AGENT1, balancer.getEndpoints().get(0).getUrl());
+    assertEquals(AGENT2, balancer.getEndpoints().get(1).getUrl());
+  }
+
+}
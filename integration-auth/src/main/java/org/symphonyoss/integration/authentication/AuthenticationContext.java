@@ -16,17 +16,16 @@
 
 package org.symphonyoss.integration.authentication;
 
-import org.glassfish.jersey.client.ClientConfig;
-
-import java.security.KeyStore;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 
 /**
  * Created by ecarrenho on 8/23/16.
  *
- * Stores authentication context for an integration (Symphony user, keystore and token).
+ * Stores authentication context for an integration (Symphony user, HTTP client and token).
  */
 public class AuthenticationContext {
 
@@ -34,66 +33,164 @@ public class AuthenticationContext {
 
   private final Client client;
 
-  private boolean isTokenValid = false;
-
-  private AuthenticationToken token = AuthenticationToken.VOID_AUTH_TOKEN;
+  /**
+   * Current token state. Readers get it without locking, while writers are serialized and replace
+   * the whole snapshot at once.
+   */
+  private volatile TokenState state =
+      new TokenState(AuthenticationToken.VOID_AUTH_TOKEN, AuthenticationToken.VOID_AUTH_TOKEN, false,
+          false);
 
   /**
-   * The current token and the previous one are kept on the authentication context map, as for a
-   * short
-   * time window, some threads may have the previous valid token in hands, while another thread has
-   * just renewed it.
+   * Reverse index from session token to authentication context, shared by all the contexts. Each
+   * context keeps its current and previous session tokens registered on it.
    */
-  private AuthenticationToken previousToken = AuthenticationToken.VOID_AUTH_TOKEN;
+  private final ConcurrentMap<String, AuthenticationContext> sessionTokenIndex;
 
+  /**
+   * Serializes the re-authentication of this user without blocking the other users.
+   */
+  private final Lock reAuthLock = new ReentrantLock();
 
-  public AuthenticationContext(String userId, KeyStore keyStore, String keyStorePass) {
+  public AuthenticationContext(String userId, Client client,
+      ConcurrentMap<String, AuthenticationContext> sessionTokenIndex) {
     this.userId = userId;
-
-    final ClientConfig clientConfig = new ClientConfig();
-
-    final ClientBuilder clientBuilder = ClientBuilder.newBuilder()
-        .keyStore(keyStore, keyStorePass)
-        .withConfig(clientConfig);
-
-    client = clientBuilder.build();
+    this.client = client;
+    this.sessionTokenIndex = sessionTokenIndex;
   }
 
   public String getUserId() {
     return userId;
   }
 
-  public synchronized AuthenticationToken getToken() {
-    return token;
+  public AuthenticationToken getToken() {
+    return state.token;
   }
 
-  public synchronized AuthenticationToken getPreviousToken() {
-    return previousToken;
+  public AuthenticationToken getPreviousToken() {
+    return state.previousToken;
   }
 
   public synchronized void setToken(AuthenticationToken newToken) {
+    TokenState current = state;
+
     if (newToken == null || newToken.equals(AuthenticationToken.VOID_AUTH_TOKEN)) {
       // Current and previous tokens are just overridden with new non-void tokens.
       // The authentication context is retrieved by the session token on POD and Agent API clients,
       // and therefore the token should not not be thrown away when invalidated.
-      isTokenValid = false;
+      state = current.invalidate();
     } else {
-      previousToken = token;
-      token = newToken;
-      isTokenValid = true;
+      replaceToken(current, newToken, false);
+    }
+  }
+
+  /**
+   * Sets a token restored from a previous execution. The token is assumed to be valid until the
+   * first unauthorized response, when it must be renewed regardless of its authentication time.
+   * @param restoredToken Token restored from the token store
+   */
+  public synchronized void restoreToken(AuthenticationToken restoredToken) {
+    replaceToken(state, restoredToken, true);
+  }
+
+  /**
+   * Returns true if the current token was restored from a previous execution and hasn't been
+   * renewed yet.
+   */
+  public boolean isRestored() {
+    return state.restored;
+  }
+
+  private void replaceToken(TokenState current, AuthenticationToken newToken, boolean restored) {
+    state = new TokenState(newToken, current.token, true, restored);
+
+    indexSessionToken(newToken.getSessionToken());
+    evictSessionToken(current.previousToken.getSessionToken());
+  }
+
+  /**
+   * Removes the current and previous session tokens from the index. Must be invoked when this
+   * context is replaced by another one for the same user.
+   */
+  public synchronized void evictSessionTokens() {
+    TokenState current = state;
+
+    removeFromIndex(current.token.getSessionToken());
+    removeFromIndex(current.previousToken.getSessionToken());
+  }
+
+  private void indexSessionToken(String sessionToken) {
+    if (sessionToken != null) {
+      sessionTokenIndex.put(sessionToken, this);
+    }
+  }
+
+  /**
+   * Evicts a rotated out session token, unless the POD issued the same token again.
+   */
+  private void evictSessionToken(String sessionToken) {
+    TokenState current = state;
+
+    if (sessionToken != null && !sessionToken.equals(current.token.getSessionToken())
+        && !sessionToken.equals(current.previousToken.getSessionToken())) {
+      removeFromIndex(sessionToken);
+    }
+  }
+
+  /**
+   * Removes the session token only if it still points to this context.
+   */
+  private void removeFromIndex(String sessionToken) {
+    if (sessionToken != null) {
+      sessionTokenIndex.remove(sessionToken, this);
     }
   }
 
   public synchronized void invalidateAuthentication() {
-    isTokenValid = false;
+    state = state.invalidate();
+  }
+
+  public boolean isAuthenticated() {
+    return state.valid;
   }
 
-  public synchronized boolean isAuthenticated() {
-    return isTokenValid;
+  public Lock getReAuthLock() {
+    return reAuthLock;
   }
 
   public Client httpClientForContext() {
     return client;
   }
 
-}
\ No newline at end of file
+  /**
+   * Immutable snapshot of the token state.
+   *
+   * The current token and the previous one are kept on the authentication context map, as for a
+   * short time window, some threads may have the previous valid token in hands, while another
+   * thread has just renewed it.
+   */
+  private static final class TokenState {
+
+    private final AuthenticationToken token;
+
+    private final AuthenticationToken previousToken;
+
+    private final boolean valid;
+
+    private final boolean restored;
+
+    private TokenState(AuthenticationToken token, AuthenticationToken previousToken,
+        boolean valid, boolean restored) {
+      this.token = token;
+      this.previousToken = previousToken;
+      this.valid = valid;
+      this.restored = restored;
+    }
+
+    private TokenState invalidate() {
+      return valid ? new TokenState(token, previousToken, false, restored) : this;
+    }
+
+  }
+
+}
@@ -16,8 +16,14 @@
 
 package org.symphonyoss.integration.authentication;
 
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.symphonyoss.integration.auth.api.client.AuthenticationApiClient;
@@ -33,11 +39,24 @@ import org.symphonyoss.integration.exception.authentication.UnauthorizedUserExce
 import org.symphonyoss.integration.exception.authentication.UnexpectedAuthException;
 
 import java.security.KeyStore;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.core.Response.Status;
 
@@ -53,6 +72,23 @@ public class AuthenticationProxyImpl implements AuthenticationProxy {
 
   private static final Long MAX_SESSION_TIME_MILLIS = TimeUnit.MINUTES.toMillis(3);
 
+  private static final String AUTHENTICATION = "authentication";
+
+  private static final String REAUTH_CONTENDED = "reAuthContended";
+
+  private static final String REAUTH_WAIT = "reAuthWait";
+
+  /**
+   * Maximum number of concurrent Key Manager authentications
+   */
+  private static final int AUTH_POOL_SIZE = 4;
+
+  /**
+   * Maximum number of Key Manager authentications waiting for a thread. When the queue is full the
+   * authentication runs on the caller thread.
+   */
+  private static final int AUTH_QUEUE_SIZE = 64;
+
   /**
    * SBE Authentication API Client
    */
@@ -65,12 +101,43 @@ public class AuthenticationProxyImpl implements AuthenticationProxy {
 
   private Map<String, AuthenticationContext> authContexts = new ConcurrentHashMap<>();
 
+  /**
+   * Reverse index from session token (current and previous) to authentication context. It's
+   * maintained by the contexts whenever their tokens are renewed.
+   */
+  private ConcurrentMap<String, AuthenticationContext> sessionTokenIndex =
+      new ConcurrentHashMap<>();
+
   @Autowired
   private PodAuthHttpApiClient podAuthHttpApiClient;
 
   @Autowired
   private KmAuthHttpApiClient kmAuthHttpApiClient;
 
+  @Autowired
+  private MetricRegistry metricsRegistry;
+
+  @Autowired
+  private AuthenticationTokenStore tokenStore;
+
+  @Autowired
+  private PooledHttpClientFactory clientFactory;
+
+  /**
+   * Number of re-authentications that had to wait for another one of the same user
+   */
+  private Meter reAuthContended;
+
+  /**
+   * Time spent waiting for another re-authentication of the same user
+   */
+  private Timer reAuthWait;
+
+  /**
+   * Runs the Key Manager authentication concurrently with the session token request
+   */
+  private ExecutorService authExecutor;
+
   /**
    * Initialize HTTP clients.
    */
@@ -78,6 +145,26 @@ public class AuthenticationProxyImpl implements AuthenticationProxy {
   public void init() {
     this.sbeAuthApi = new AuthenticationApiClient(podAuthHttpApiClient);
     this.keyManagerAuthApi = new AuthenticationApiClient(kmAuthHttpApiClient);
+
+    this.reAuthContended =
+        metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, AUTHENTICATION, REAUTH_CONTENDED));
+    this.reAuthWait =
+        metricsRegistry.timer(MetricRegistry.name(BASE_METRIC_NAME, AUTHENTICATION, REAUTH_WAIT));
+
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(AUTH_POOL_SIZE, AUTH_POOL_SIZE, 60L,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(AUTH_QUEUE_SIZE),
+        new AuthThreadFactory(),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.allowCoreThreadTimeOut(true);
+
+    this.authExecutor = executor;
+  }
+
+  @PreDestroy
+  public void destroy() {
+    if (authExecutor != null) {
+      authExecutor.shutdown();
+    }
   }
 
   @Override
@@ -86,13 +173,132 @@ public class AuthenticationProxyImpl implements AuthenticationProxy {
 
     if (!context.isAuthenticated()) {
       LOG.info("Authenticate {}", userId);
-      Token sessionToken = sbeAuthApi.authenticate(userId);
-      Token keyManagerToken = keyManagerAuthApi.authenticate(userId);
+      updateToken(context, requestToken(userId));
+    }
+
+  }
+
+  /**
+   * Renews the user tokens while the current ones are still valid. The new token replaces the
+   * current one atomically and the current one is kept as the previous token, so the threads
+   * holding it are not affected.
+   *
+   * Nothing is done if the user is not authenticated or a re-authentication of the same user is
+   * in progress.
+   * @param userId User identifier
+   * @return true if the tokens were renewed or false otherwise
+   * @throws RemoteApiException Failure to authenticate the user
+   */
+  public boolean renewToken(String userId) throws RemoteApiException {
+    AuthenticationContext context = contextForUser(userId);
+    Lock lock = context.getReAuthLock();
+
+    if (!lock.tryLock()) {
+      return false;
+    }
+
+    try {
+      if (!context.isAuthenticated()) {
+        return false;
+      }
+
+      LOG.info("Renew authentication {}", userId);
+      updateToken(context, requestToken(userId));
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Sets the new user token and keeps it on the token store.
+   */
+  private void updateToken(AuthenticationContext context, AuthenticationToken token) {
+    context.setToken(token);
+    tokenStore.save(context.getUserId(), token);
+  }
+
+  /**
+   * Retrieves new session and key manager tokens for the user. Both calls are independent, so the
+   * Key Manager authentication runs on the authentication pool while the session token is
+   * retrieved on the caller thread.
+   */
+  private AuthenticationToken requestToken(final String userId) throws RemoteApiException {
+    final Map<String, String> parentContext = MDC.getCopyOfContextMap();
+
+    Future<Token> keyManagerCall = authExecutor.submit(new Callable<Token>() {
+      @Override
+      public Token call() throws Exception {
+        // the task may run on the caller thread when the pool is saturated
+        Map<String, String> currentContext = MDC.getCopyOfContextMap();
+
+        if (parentContext != null) {
+          MDC.setContextMap(parentContext);
+        }
+
+        try {
+          return keyManagerAuthApi.authenticate(userId);
+        } finally {
+          if (currentContext != null) {
+            MDC.setContextMap(currentContext);
+          } else {
+            MDC.clear();
+          }
+        }
+      }
+    });
+
+    Token sessionToken;
 
-      context.setToken(
-          new AuthenticationToken(sessionToken.getToken(), keyManagerToken.getToken()));
+    try {
+      sessionToken = sbeAuthApi.authenticate(userId);
+    } catch (RemoteApiException | RuntimeException e) {
+      keyManagerCall.cancel(true);
+      LOG.error("Fail to retrieve the session token for the user {}", userId);
+      throw e;
     }
 
+    Token keyManagerToken = getKeyManagerToken(userId, keyManagerCall);
+
+    return new AuthenticationToken(sessionToken.getToken(), keyManagerToken.getToken());
+  }
+
+  /**
+   * Waits for the Key Manager authentication, rethrowing its failure.
+   */
+  private Token getKeyManagerToken(String userId, Future<Token> keyManagerCall)
+      throws RemoteApiException {
+    try {
+      return keyManagerCall.get();
+    } catch (InterruptedException e) {
+      keyManagerCall.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new UnexpectedAuthException(
+          "Interrupted while retrieving the key manager token for the user - ID: " + userId, e);
+    } catch (ExecutionException e) {
+      LOG.error("Session token retrieved, but fail to retrieve the key manager token for the user {}",
+          userId);
+
+      Throwable cause = e.getCause();
+
+      if (cause instanceof RemoteApiException) {
+        throw (RemoteApiException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+
+      throw new UnexpectedAuthException(
+          "Failed to retrieve the key manager token for the user - ID: " + userId, e);
+    }
+  }
+
+  /**
+   * Returns the authentication contexts of the registered users.
+   */
+  public Collection<AuthenticationContext> getAuthenticationContexts() {
+    return Collections.unmodifiableCollection(authContexts.values());
   }
 
   /**
@@ -116,16 +322,10 @@ public class AuthenticationProxyImpl implements AuthenticationProxy {
    * find bugs.
    */
   private AuthenticationContext contextForSessionToken(String sessionToken) {
-    for (AuthenticationContext context : this.authContexts.values()) {
-      if (context.getToken().getSessionToken().equals(sessionToken)) {
-        return context;
-      }
-    }
+    AuthenticationContext context = sessionToken == null ? null : sessionTokenIndex.get(sessionToken);
 
-    for (AuthenticationContext context : this.authContexts.values()) {
-      if (context.getPreviousToken().getSessionToken().equals(sessionToken)) {
-        return context;
-      }
+    if (context != null) {
+      return context;
     }
 
     throw new UnregisteredSessionTokenException(
@@ -169,33 +369,62 @@ public class AuthenticationProxyImpl implements AuthenticationProxy {
 
   /**
    * If the provided exception is of type unauthorized, then authenticate again, else rethrow the
-   * same exception
+   * same exception.
+   *
+   * Re-authentication is serialized per user. Concurrent calls for the same user wait for the one
+   * in progress and then skip the remote calls, as the session has just been renewed. Calls for
+   * other users are not blocked.
    * @param userId
    * @param code
    * @param e
    * @throws RemoteApiException the original exception
    */
   @Override
-  public synchronized void reAuthOrThrow(String userId, int code, Exception e)
-      throws RemoteApiException {
+  public void reAuthOrThrow(String userId, int code, Exception e) throws RemoteApiException {
     if (validateResponseCode(Status.UNAUTHORIZED, code)) {
-      if (shouldInvalidateSession(userId)) {
-        invalidate(userId);
-        try {
-          authenticate(userId);
-        } catch (RemoteApiException e1) {
-          checkAndThrowException(e1, userId);
-        } catch (ConnectivityException e2) {
-          throw e2;
-        } catch (Exception e3) {
-          throw new UnexpectedAuthException("Failed to process certificate login", e3);
+      Lock lock = contextForUser(userId).getReAuthLock();
+      acquireReAuthLock(lock);
+
+      try {
+        if (shouldInvalidateSession(userId)) {
+          invalidate(userId);
+          try {
+            authenticate(userId);
+          } catch (RemoteApiException e1) {
+            checkAndThrowException(e1, userId);
+          } catch (ConnectivityException e2) {
+            throw e2;
+          } catch (Exception e3) {
+            throw new UnexpectedAuthException("Failed to process certificate login", e3);
+          }
         }
+      } finally {
+        lock.unlock();
       }
     } else {
       throw new RemoteApiException(code, e);
     }
   }
 
+  /**
+   * Acquires the user re-authentication lock, measuring the time spent waiting when another
+   * re-authentication of the same user is in progress.
+   */
+  private void acquireReAuthLock(Lock lock) {
+    if (lock.tryLock()) {
+      return;
+    }
+
+    reAuthContended.mark();
+    Timer.Context context = reAuthWait.time();
+
+    try {
+      lock.lock();
+    } finally {
+      context.stop();
+    }
+  }
+
   private void checkAndThrowException(RemoteApiException e, String userId) throws RemoteApiException {
     int code = e.getCode();
 
@@ -212,7 +441,7 @@ public class AuthenticationProxyImpl implements AuthenticationProxy {
   }
 
   @Override
-  public synchronized AuthenticationToken reAuthSessionOrThrow(String sessionToken, int code, Exception e)
+  public AuthenticationToken reAuthSessionOrThrow(String sessionToken, int code, Exception e)
       throws RemoteApiException {
     AuthenticationContext authContext = contextForSessionToken(sessionToken);
     reAuthOrThrow(authContext.getUserId(), code, e);
@@ -224,8 +453,15 @@ public class AuthenticationProxyImpl implements AuthenticationProxy {
    * @return
    */
   private boolean shouldInvalidateSession(String userId) {
+    AuthenticationContext context = contextForUser(userId);
+
+    if (context.isRestored()) {
+      // Tokens restored from a previous execution are only checked on the first unauthorized call
+      return true;
+    }
+
     Long timeSinceLastAuthMillis =
-        System.currentTimeMillis() - contextForUser(userId).getToken().getAuthenticationTime();
+        System.currentTimeMillis() - context.getToken().getAuthenticationTime();
     return timeSinceLastAuthMillis > MAX_SESSION_TIME_MILLIS;
   }
 
@@ -261,7 +497,20 @@ public class AuthenticationProxyImpl implements AuthenticationProxy {
    */
   @Override
   public void registerUser(String userId, KeyStore keyStore, String keyStorePass) {
-    authContexts.put(userId, new AuthenticationContext(userId, keyStore, keyStorePass));
+    Client client = clientFactory.newClient(userId, keyStore, keyStorePass);
+    AuthenticationContext context = new AuthenticationContext(userId, client, sessionTokenIndex);
+    AuthenticationToken storedToken = tokenStore.load(userId);
+
+    if (storedToken != null) {
+      LOG.info("Reusing the stored token of the user {}", userId);
+      context.restoreToken(storedToken);
+    }
+
+    AuthenticationContext previous = authContexts.put(userId, context);
+
+    if (previous != null) {
+      previous.evictSessionTokens();
+    }
   }
 
   /**
@@ -280,4 +529,20 @@ public class AuthenticationProxyImpl implements AuthenticationProxy {
     return contextForSessionToken(sessionToken).httpClientForContext();
   }
 
+  /**
+   * Creates the named daemon threads used by the Key Manager authentication.
+   */
+  private static final class AuthThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "km-auth-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+
+  }
+
 }
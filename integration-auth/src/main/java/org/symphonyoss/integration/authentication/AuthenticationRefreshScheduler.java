@@ -0,0 +1,176 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.authentication;
+
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.exception.RemoteApiException;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Renews the tokens of the registered users in the background before their sessions expire, so the
+ * first call after the expiration doesn't have to recover from a 401.
+ *
+ * A user is renewed once its token is older than the session lifetime minus the refresh margin.
+ * Each user also gets a fixed offset within the jitter window, so the users authenticated at the
+ * same time don't renew their tokens all at once.
+ */
+@Component
+public class AuthenticationRefreshScheduler {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AuthenticationRefreshScheduler.class);
+
+  public static final String REFRESH_ENABLED_KEY = "authentication.refresh.enabled";
+
+  public static final String SESSION_LIFETIME_KEY = "authentication.session.lifetime.ms";
+
+  public static final String REFRESH_MARGIN_KEY = "authentication.refresh.margin.ms";
+
+  public static final String REFRESH_JITTER_KEY = "authentication.refresh.jitter.ms";
+
+  public static final String CHECK_INTERVAL_KEY = "authentication.refresh.check.interval.ms";
+
+  public static final Long DEFAULT_SESSION_LIFETIME = TimeUnit.HOURS.toMillis(2);
+
+  public static final Long DEFAULT_REFRESH_MARGIN = TimeUnit.MINUTES.toMillis(10);
+
+  public static final Long DEFAULT_REFRESH_JITTER = TimeUnit.MINUTES.toMillis(5);
+
+  public static final Long DEFAULT_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+  private static final String AUTHENTICATION = "authentication";
+
+  private static final String REFRESHED = "tokenRefreshed";
+
+  private static final String REFRESH_FAILURES = "tokenRefreshFailures";
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private AuthenticationProxyImpl authenticationProxy;
+
+  @Autowired
+  private MetricRegistry metricsRegistry;
+
+  private long sessionLifetime;
+
+  private long refreshMargin;
+
+  private long refreshJitter;
+
+  private Meter refreshed;
+
+  private Meter refreshFailures;
+
+  private ScheduledExecutorService scheduler;
+
+  @PostConstruct
+  public void init() {
+    this.sessionLifetime =
+        environment.getProperty(SESSION_LIFETIME_KEY, Long.class, DEFAULT_SESSION_LIFETIME);
+    this.refreshMargin =
+        environment.getProperty(REFRESH_MARGIN_KEY, Long.class, DEFAULT_REFRESH_MARGIN);
+    this.refreshJitter =
+        environment.getProperty(REFRESH_JITTER_KEY, Long.class, DEFAULT_REFRESH_JITTER);
+
+    this.refreshed =
+        metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, AUTHENTICATION, REFRESHED));
+    this.refreshFailures = metricsRegistry.meter(
+        MetricRegistry.name(BASE_METRIC_NAME, AUTHENTICATION, REFRESH_FAILURES));
+
+    boolean enabled = environment.getProperty(REFRESH_ENABLED_KEY, Boolean.class, Boolean.FALSE);
+
+    if (!enabled) {
+      return;
+    }
+
+    long interval = environment.getProperty(CHECK_INTERVAL_KEY, Long.class, DEFAULT_CHECK_INTERVAL);
+
+    this.scheduler = Executors.newSingleThreadScheduledExecutor();
+    this.scheduler.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        refreshExpiringTokens();
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+
+    LOG.info("Proactive token refresh enabled. Session lifetime: {} ms, margin: {} ms",
+        sessionLifetime, refreshMargin);
+  }
+
+  @PreDestroy
+  public void destroy() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+  }
+
+  /**
+   * Renews the tokens of the authenticated users whose refresh time has been reached.
+   */
+  public void refreshExpiringTokens() {
+    long now = System.currentTimeMillis();
+
+    for (AuthenticationContext context : authenticationProxy.getAuthenticationContexts()) {
+      if (context.isAuthenticated() && now >= getRefreshTime(context)) {
+        refresh(context.getUserId());
+      }
+    }
+  }
+
+  /**
+   * Returns the time the user token should be renewed.
+   */
+  private long getRefreshTime(AuthenticationContext context) {
+    long offset = 0;
+
+    if (refreshJitter > 0) {
+      // non-negative remainder, as the hash code may be negative
+      long hash = context.getUserId().hashCode();
+      offset = ((hash % refreshJitter) + refreshJitter) % refreshJitter;
+    }
+
+    return context.getToken().getAuthenticationTime() + sessionLifetime - refreshMargin - offset;
+  }
+
+  private void refresh(String userId) {
+    try {
+      if (authenticationProxy.renewToken(userId)) {
+        refreshed.mark();
+      }
+    } catch (RemoteApiException | RuntimeException e) {
+      // The current token is kept, and the 401 recovery path still applies if it expires
+      refreshFailures.mark();
+      LOG.warn("Fail to renew the authentication of the user " + userId, e);
+    }
+  }
+
+}
@@ -0,0 +1,295 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.authentication;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Optional encrypted local store for the user tokens, used to avoid re-authenticating every user
+ * when the application restarts.
+ *
+ * Each user token is kept on its own file, encrypted with AES-CBC and authenticated with
+ * HMAC-SHA256 (encrypt-then-MAC), using keys derived from the configured secret. The user
+ * identifier is part of the authenticated data, so a file can't be reused for another user. Stored
+ * tokens older than the session lifetime are ignored.
+ *
+ * Any failure to read or write the store is only logged, as the store is just an optimization.
+ */
+@Component
+public class AuthenticationTokenStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AuthenticationTokenStore.class);
+
+  public static final String ENABLED_KEY = "authentication.token.store.enabled";
+
+  public static final String DIRECTORY_KEY = "authentication.token.store.directory";
+
+  public static final String SECRET_KEY = "authentication.token.store.secret";
+
+  public static final String DEFAULT_DIRECTORY = "tokens";
+
+  private static final String TOKEN_SUFFIX = ".token";
+
+  private static final String TMP_SUFFIX = ".tmp";
+
+  private static final String CIPHER = "AES/CBC/PKCS5Padding";
+
+  private static final String MAC = "HmacSHA256";
+
+  private static final int IV_LENGTH = 16;
+
+  private static final int MAC_LENGTH = 32;
+
+  private static final int KEY_LENGTH = 16;
+
+  private static final String ENCRYPTION_KEY_LABEL = "encryption";
+
+  private static final String MAC_KEY_LABEL = "authentication";
+
+  private static final String SEPARATOR = "\n";
+
+  @Autowired
+  private Environment environment;
+
+  private boolean enabled;
+
+  private Path directory;
+
+  private SecretKey encryptionKey;
+
+  private SecretKey macKey;
+
+  private long sessionLifetime;
+
+  private final SecureRandom random = new SecureRandom();
+
+  @PostConstruct
+  public void init() {
+    this.enabled = environment.getProperty(ENABLED_KEY, Boolean.class, Boolean.FALSE);
+
+    if (!enabled) {
+      return;
+    }
+
+    String secret = environment.getProperty(SECRET_KEY);
+
+    if (StringUtils.isBlank(secret)) {
+      LOG.warn("Token store disabled. The property {} is required to encrypt the tokens", SECRET_KEY);
+      this.enabled = false;
+      return;
+    }
+
+    try {
+      this.directory = Paths.get(environment.getProperty(DIRECTORY_KEY, DEFAULT_DIRECTORY));
+      Files.createDirectories(directory);
+
+      this.encryptionKey = deriveKey(secret, ENCRYPTION_KEY_LABEL, "AES", KEY_LENGTH);
+      this.macKey = deriveKey(secret, MAC_KEY_LABEL, MAC, MAC_LENGTH);
+    } catch (IOException | GeneralSecurityException e) {
+      LOG.error("Token store disabled. Fail to initialize the store", e);
+      this.enabled = false;
+      return;
+    }
+
+    this.sessionLifetime = environment.getProperty(AuthenticationRefreshScheduler.SESSION_LIFETIME_KEY,
+        Long.class, AuthenticationRefreshScheduler.DEFAULT_SESSION_LIFETIME);
+
+    LOG.info("Token store enabled. Directory: {}", directory.toAbsolutePath());
+  }
+
+  /**
+   * Returns true if the token store is enabled or false otherwise.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Stores the user token, replacing the previous one.
+   * @param userId User identifier
+   * @param token Authentication token
+   */
+  public void save(String userId, AuthenticationToken token) {
+    if (!enabled) {
+      return;
+    }
+
+    String content = token.getAuthenticationTime() + SEPARATOR + token.getSessionToken() + SEPARATOR
+        + token.getKeyManagerToken();
+
+    Path file = getTokenFile(userId);
+    Path tmp = file.resolveSibling(file.getFileName() + TMP_SUFFIX);
+
+    try {
+      Files.write(tmp, encrypt(userId, content.getBytes(StandardCharsets.UTF_8)));
+      restrictPermissions(tmp);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException | GeneralSecurityException e) {
+      LOG.warn("Fail to store the token of the user " + userId, e);
+    }
+  }
+
+  /**
+   * Loads the user token stored by a previous execution. The token keeps its original
+   * authentication time.
+   * @param userId User identifier
+   * @return Stored token or null if there is no token still inside the session lifetime
+   */
+  public AuthenticationToken load(String userId) {
+    if (!enabled) {
+      return null;
+    }
+
+    Path file = getTokenFile(userId);
+
+    if (!Files.exists(file)) {
+      return null;
+    }
+
+    try {
+      byte[] content = decrypt(userId, Files.readAllBytes(file));
+      String[] fields = new String(content, StandardCharsets.UTF_8).split(SEPARATOR);
+
+      long authenticationTime = Long.parseLong(fields[0]);
+
+      if (System.currentTimeMillis() - authenticationTime > sessionLifetime) {
+        LOG.info("Stored token of the user {} has expired", userId);
+        Files.deleteIfExists(file);
+        return null;
+      }
+
+      return new StoredAuthenticationToken(fields[1], fields[2], authenticationTime);
+    } catch (IOException | GeneralSecurityException | RuntimeException e) {
+      LOG.warn("Fail to load the stored token of the user {}. Cause: {}", userId, e.getMessage());
+      return null;
+    }
+  }
+
+  private Path getTokenFile(String userId) {
+    return directory.resolve(userId.replaceAll("[^A-Za-z0-9._-]", "_") + TOKEN_SUFFIX);
+  }
+
+  /**
+   * Encrypts the content. The file layout is IV, ciphertext and the MAC of the user identifier, IV
+   * and ciphertext.
+   */
+  private byte[] encrypt(String userId, byte[] content) throws GeneralSecurityException {
+    byte[] iv = new byte[IV_LENGTH];
+    random.nextBytes(iv);
+
+    Cipher cipher = Cipher.getInstance(CIPHER);
+    cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new IvParameterSpec(iv));
+
+    byte[] encrypted = cipher.doFinal(content);
+    byte[] tag = computeMac(userId, iv, encrypted, 0, encrypted.length);
+
+    return ByteBuffer.allocate(IV_LENGTH + encrypted.length + MAC_LENGTH)
+        .put(iv)
+        .put(encrypted)
+        .put(tag)
+        .array();
+  }
+
+  /**
+   * Checks the MAC before decrypting the content, so a tampered file or a file that belongs to
+   * another user is rejected.
+   */
+  private byte[] decrypt(String userId, byte[] content) throws GeneralSecurityException {
+    int encryptedLength = content.length - IV_LENGTH - MAC_LENGTH;
+
+    if (encryptedLength <= 0) {
+      throw new GeneralSecurityException("Invalid token file");
+    }
+
+    byte[] iv = Arrays.copyOf(content, IV_LENGTH);
+    byte[] tag = Arrays.copyOfRange(content, content.length - MAC_LENGTH, content.length);
+    byte[] expectedTag = computeMac(userId, iv, content, IV_LENGTH, encryptedLength);
+
+    if (!MessageDigest.isEqual(tag, expectedTag)) {
+      throw new GeneralSecurityException("Token file authentication failed");
+    }
+
+    Cipher cipher = Cipher.getInstance(CIPHER);
+    cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new IvParameterSpec(iv));
+
+    return cipher.doFinal(content, IV_LENGTH, encryptedLength);
+  }
+
+  private byte[] computeMac(String userId, byte[] iv, byte[] encrypted, int offset, int length)
+      throws GeneralSecurityException {
+    byte[] user = userId.getBytes(StandardCharsets.UTF_8);
+
+    Mac mac = Mac.getInstance(MAC);
+    mac.init(macKey);
+    mac.update(ByteBuffer.allocate(4).putInt(user.length).array());
+    mac.update(user);
+    mac.update(iv);
+    mac.update(encrypted, offset, length);
+
+    return mac.doFinal();
+  }
+
+  /**
+   * Derives a key from the configured secret. Each key uses its own label, so the encryption and
+   * MAC keys are independent.
+   */
+  private SecretKey deriveKey(String secret, String label, String algorithm, int length)
+      throws GeneralSecurityException {
+    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    digest.update(label.getBytes(StandardCharsets.UTF_8));
+    digest.update(secret.getBytes(StandardCharsets.UTF_8));
+
+    return new SecretKeySpec(Arrays.copyOf(digest.digest(), length), algorithm);
+  }
+
+  /**
+   * Makes the token file readable only by the owner, when supported by the file system.
+   */
+  private void restrictPermissions(Path file) throws IOException {
+    try {
+      Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+    } catch (UnsupportedOperationException e) {
+      LOG.debug("File system doesn't support POSIX permissions");
+    }
+  }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.authentication;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+import org.glassfish.jersey.SslConfigurator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.KeyStore;
+
+import javax.net.ssl.SSLContext;
+
+/**
+ * TLS socket factory that authenticates with the integration user certificate.
+ *
+ * The SSL context is only created when the first connection is opened, in the same way the Jersey
+ * client does when it receives a key store.
+ */
+class KeyStoreSslSocketFactory implements LayeredConnectionSocketFactory {
+
+  private final KeyStore keyStore;
+
+  private final String keyStorePass;
+
+  private volatile SSLConnectionSocketFactory delegate;
+
+  KeyStoreSslSocketFactory(KeyStore keyStore, String keyStorePass) {
+    this.keyStore = keyStore;
+    this.keyStorePass = keyStorePass;
+  }
+
+  @Override
+  public Socket createSocket(HttpContext context) throws IOException {
+    return getDelegate().createSocket(context);
+  }
+
+  @Override
+  public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host,
+      InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context)
+      throws IOException {
+    return getDelegate().connectSocket(connectTimeout, socket, host, remoteAddress, localAddress,
+        context);
+  }
+
+  @Override
+  public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+      throws IOException {
+    return getDelegate().createLayeredSocket(socket, target, port, context);
+  }
+
+  private SSLConnectionSocketFactory getDelegate() {
+    SSLConnectionSocketFactory factory = delegate;
+
+    if (factory == null) {
+      synchronized (this) {
+        factory = delegate;
+
+        if (factory == null) {
+          SSLContext sslContext = SslConfigurator.newInstance()
+              .keyStore(keyStore)
+              .keyPassword(keyStorePass)
+              .createSSLContext();
+
+          factory = new SSLConnectionSocketFactory(sslContext);
+          delegate = factory;
+        }
+      }
+    }
+
+    return factory;
+  }
+
+}
@@ -0,0 +1,292 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.authentication;
+
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.security.KeyStore;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+
+/**
+ * Builds the HTTP clients used by the integration users.
+ *
+ * Each user gets its own pool of keep-alive connections, backed by the Apache HttpClient
+ * connector, so the TLS handshakes are paid once per connection instead of once per request.
+ * Expired and idle connections are evicted in the background, and the pool usage of each user is
+ * exported through the metric registry. A request waits at most the lease timeout for a connection
+ * when the pool is exhausted, instead of blocking the caller indefinitely. The client and pool replaced by a new registration of the
+ * same user are closed, as well as all the pools when the application stops.
+ */
+@Component
+public class PooledHttpClientFactory {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PooledHttpClientFactory.class);
+
+  public static final String MAX_TOTAL_KEY = "http.client.pool.max.total";
+
+  public static final String MAX_PER_ROUTE_KEY = "http.client.pool.max.per.route";
+
+  public static final String IDLE_TIMEOUT_KEY = "http.client.pool.idle.timeout.ms";
+
+  public static final String CONNECT_TIMEOUT_KEY = "http.client.connect.timeout.ms";
+
+  public static final String READ_TIMEOUT_KEY = "http.client.read.timeout.ms";
+
+  public static final String LEASE_TIMEOUT_KEY = "http.client.pool.lease.timeout.ms";
+
+  public static final Integer DEFAULT_MAX_TOTAL = 100;
+
+  public static final Integer DEFAULT_MAX_PER_ROUTE = 20;
+
+  public static final Long DEFAULT_IDLE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+  public static final Integer DEFAULT_CONNECT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
+
+  public static final Integer DEFAULT_READ_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(60);
+
+  public static final Integer DEFAULT_LEASE_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(10);
+
+  /**
+   * Connections idle for longer than this are validated before being leased
+   */
+  private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+
+  private static final long EVICTION_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+  private static final String HTTP_CLIENT = "httpClient";
+
+  private static final String LEASED = "leased";
+
+  private static final String PENDING = "pending";
+
+  private static final String AVAILABLE = "available";
+
+  private static final String HTTP = "http";
+
+  private static final String HTTPS = "https";
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private MetricRegistry metricsRegistry;
+
+  private int maxTotal;
+
+  private int maxPerRoute;
+
+  private long idleTimeout;
+
+  private int connectTimeout;
+
+  private int readTimeout;
+
+  private int leaseTimeout;
+
+  /**
+   * HTTP clients and connection pools per user
+   */
+  private final Map<String, UserClient> clients = new ConcurrentHashMap<>();
+
+  private ScheduledExecutorService evictor;
+
+  @PostConstruct
+  public void init() {
+    this.maxTotal = environment.getProperty(MAX_TOTAL_KEY, Integer.class, DEFAULT_MAX_TOTAL);
+    this.maxPerRoute = environment.getProperty(MAX_PER_ROUTE_KEY, Integer.class, DEFAULT_MAX_PER_ROUTE);
+    this.idleTimeout = environment.getProperty(IDLE_TIMEOUT_KEY, Long.class, DEFAULT_IDLE_TIMEOUT);
+    this.connectTimeout =
+        environment.getProperty(CONNECT_TIMEOUT_KEY, Integer.class, DEFAULT_CONNECT_TIMEOUT);
+    this.readTimeout = environment.getProperty(READ_TIMEOUT_KEY, Integer.class, DEFAULT_READ_TIMEOUT);
+    this.leaseTimeout =
+        environment.getProperty(LEASE_TIMEOUT_KEY, Integer.class, DEFAULT_LEASE_TIMEOUT);
+
+    this.evictor = Executors.newSingleThreadScheduledExecutor();
+    this.evictor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        evictConnections();
+      }
+    }, EVICTION_INTERVAL_MILLIS, EVICTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void destroy() {
+    if (evictor != null) {
+      evictor.shutdown();
+    }
+
+    for (UserClient client : clients.values()) {
+      client.close();
+    }
+
+    clients.clear();
+  }
+
+  /**
+   * Builds a HTTP client that authenticates with the user certificate.
+   * @param userId User identifier
+   * @param keyStore User key store
+   * @param keyStorePass Key store password
+   * @return HTTP client backed by the user connection pool
+   */
+  public Client newClient(String userId, KeyStore keyStore, String keyStorePass) {
+    Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+        .register(HTTP, PlainConnectionSocketFactory.getSocketFactory())
+        .register(HTTPS, new KeyStoreSslSocketFactory(keyStore, keyStorePass))
+        .build();
+
+    PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager(socketFactories);
+    pool.setMaxTotal(maxTotal);
+    pool.setDefaultMaxPerRoute(maxPerRoute);
+    pool.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+
+    // the connector copies this config and applies the connect and read timeouts over it
+    RequestConfig requestConfig = RequestConfig.custom()
+        .setConnectionRequestTimeout(leaseTimeout)
+        .build();
+
+    final ClientConfig clientConfig = new ClientConfig()
+        .connectorProvider(new ApacheConnectorProvider())
+        .property(ApacheClientProperties.CONNECTION_MANAGER, pool)
+        .property(ApacheClientProperties.REQUEST_CONFIG, requestConfig)
+        .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
+        .property(ClientProperties.READ_TIMEOUT, readTimeout);
+
+    Client client = ClientBuilder.newBuilder().withConfig(clientConfig).build();
+
+    UserClient previous = clients.put(userId, new UserClient(client, pool));
+    registerMetrics(userId, pool);
+
+    if (previous != null) {
+      LOG.info("Closing the replaced HTTP client of the user {}", userId);
+      previous.close();
+    }
+
+    return client;
+  }
+
+  /**
+   * Returns the connection pool of the user or null if there is no client for the user.
+   */
+  public PoolingHttpClientConnectionManager getConnectionPool(String userId) {
+    UserClient client = clients.get(userId);
+    return client != null ? client.pool : null;
+  }
+
+  private void registerMetrics(String userId, final PoolingHttpClientConnectionManager pool) {
+    registerGauge(MetricRegistry.name(BASE_METRIC_NAME, HTTP_CLIENT, userId, LEASED),
+        new Gauge<Integer>() {
+          @Override
+          public Integer getValue() {
+            return pool.getTotalStats().getLeased();
+          }
+        });
+
+    registerGauge(MetricRegistry.name(BASE_METRIC_NAME, HTTP_CLIENT, userId, PENDING),
+        new Gauge<Integer>() {
+          @Override
+          public Integer getValue() {
+            return pool.getTotalStats().getPending();
+          }
+        });
+
+    registerGauge(MetricRegistry.name(BASE_METRIC_NAME, HTTP_CLIENT, userId, AVAILABLE),
+        new Gauge<Integer>() {
+          @Override
+          public Integer getValue() {
+            return pool.getTotalStats().getAvailable();
+          }
+        });
+  }
+
+  private void registerGauge(String name, Gauge<Integer> gauge) {
+    metricsRegistry.remove(name);
+    metricsRegistry.register(name, gauge);
+  }
+
+  /**
+   * Closes the expired connections and the ones idle for longer than the idle timeout.
+   */
+  private void evictConnections() {
+    for (UserClient client : clients.values()) {
+      try {
+        client.pool.closeExpiredConnections();
+        client.pool.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+      } catch (RuntimeException e) {
+        LOG.warn("Fail to evict idle connections", e);
+      }
+    }
+  }
+
+  /**
+   * HTTP client of a user and the connection pool that backs it.
+   */
+  private static final class UserClient {
+
+    private final Client client;
+
+    private final PoolingHttpClientConnectionManager pool;
+
+    private UserClient(Client client, PoolingHttpClientConnectionManager pool) {
+      this.client = client;
+      this.pool = pool;
+    }
+
+    /**
+     * Closes the client and its connection pool. Requests still running on the client fail.
+     */
+    private void close() {
+      try {
+        client.close();
+      } catch (RuntimeException e) {
+        LOG.warn("Fail to close the HTTP client", e);
+      } finally {
+        pool.shutdown();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.authentication;
+
+/**
+ * Token restored from the {@link AuthenticationTokenStore}. It keeps the time the user was
+ * authenticated by the previous execution instead of the time the token was loaded.
+ */
+class StoredAuthenticationToken extends AuthenticationToken {
+
+  private final Long authenticationTime;
+
+  StoredAuthenticationToken(String sessionToken, String keyManagerToken,
+      long authenticationTime) {
+    super(sessionToken, keyManagerToken);
+    this.authenticationTime = authenticationTime;
+  }
+
+  @Override
+  public Long getAuthenticationTime() {
+    return authenticationTime;
+  }
+
+}
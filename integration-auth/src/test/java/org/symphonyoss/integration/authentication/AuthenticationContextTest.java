@@ -0,0 +1,109 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.authentication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ws.rs.client.Client;
+
+/**
+ * Unit tests for {@link AuthenticationContext}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AuthenticationContextTest {
+
+  private static final String USER_ID = "jirawebhook";
+
+  @Mock
+  private Client client;
+
+  private ConcurrentMap<String, AuthenticationContext> index = new ConcurrentHashMap<>();
+
+  private AuthenticationContext context;
+
+  @Before
+  public void init() {
+    this.context = new AuthenticationContext(USER_ID, client, index);
+  }
+
+  @Test
+  public void testInitialState() {
+    assertFalse(context.isAuthenticated());
+    assertEquals(AuthenticationToken.VOID_AUTH_TOKEN, context.getToken());
+    assertEquals(AuthenticationToken.VOID_AUTH_TOKEN, context.getPreviousToken());
+  }
+
+  @Test
+  public void testTokenRotation() {
+    AuthenticationToken first = new AuthenticationToken("session1", "km1");
+    AuthenticationToken second = new AuthenticationToken("session2", "km2");
+    AuthenticationToken third = new AuthenticationToken("session3", "km3");
+
+    context.setToken(first);
+    context.setToken(second);
+    context.setToken(third);
+
+    assertTrue(context.isAuthenticated());
+    assertSame(third, context.getToken());
+    assertSame(second, context.getPreviousToken());
+
+    assertSame(context, index.get("session3"));
+    assertSame(context, index.get("session2"));
+    assertNull(index.get("session1"));
+  }
+
+  @Test
+  public void testInvalidate() {
+    AuthenticationToken token = new AuthenticationToken("session1", "km1");
+    context.setToken(token);
+
+    context.invalidateAuthentication();
+
+    // the token is kept, so the context can still be found by the session token
+    assertFalse(context.isAuthenticated());
+    assertSame(token, context.getToken());
+    assertSame(context, index.get("session1"));
+
+    context.setToken(AuthenticationToken.VOID_AUTH_TOKEN);
+    assertFalse(context.isAuthenticated());
+    assertSame(token, context.getToken());
+  }
+
+  @Test
+  public void testEvictSessionTokens() {
+    context.setToken(new AuthenticationToken("session1", "km1"));
+    context.setToken(new AuthenticationToken("session2", "km2"));
+
+    context.evictSessionTokens();
+
+    assertTrue(index.isEmpty());
+  }
+
+}
@@ -18,16 +18,25 @@ package org.symphonyoss.integration.authentication;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.codahale.metrics.MetricRegistry;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -38,11 +47,18 @@ import org.symphonyoss.integration.auth.api.client.AuthenticationApiClient;
 import org.symphonyoss.integration.auth.api.client.KmAuthHttpApiClient;
 import org.symphonyoss.integration.auth.api.client.PodAuthHttpApiClient;
 import org.symphonyoss.integration.auth.api.model.Token;
+import org.symphonyoss.integration.authentication.exception.UnregisteredSessionTokenException;
 import org.symphonyoss.integration.exception.RemoteApiException;
 import org.symphonyoss.integration.exception.authentication.UnexpectedAuthException;
 import org.symphonyoss.integration.model.yaml.IntegrationProperties;
 
 import java.security.KeyStore;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.core.Response;
 
@@ -53,7 +69,8 @@ import javax.ws.rs.core.Response;
 @RunWith(SpringRunner.class)
 @SpringBootTest
 @EnableConfigurationProperties
-@ContextConfiguration(classes = {IntegrationProperties.class, AuthenticationProxyImpl.class})
+@ContextConfiguration(classes = {IntegrationProperties.class, MetricRegistry.class,
+    PooledHttpClientFactory.class, AuthenticationProxyImpl.class})
 public class AuthenticationProxyImplTest {
 
   private static final String JIRAWEBHOOK = "jirawebhook";
@@ -84,6 +101,9 @@ public class AuthenticationProxyImplTest {
   @MockBean
   private KmAuthHttpApiClient kmAuthHttpApiClient;
 
+  @MockBean
+  private AuthenticationTokenStore tokenStore;
+
   @Mock
   private AuthenticationApiClient sbeAuthApi;
 
@@ -207,4 +227,201 @@ public class AuthenticationProxyImplTest {
     doReturn(new Token()).when(keyManagerAuthApi).authenticate(JIRAWEBHOOK);
     proxy.reAuthOrThrow(JIRAWEBHOOK, 401, new RuntimeException());
   }
+
+  @Test
+  public void testHttpClientForSessionToken() throws RemoteApiException {
+    testAuthentication();
+
+    assertEquals(proxy.httpClientForUser(JIRAWEBHOOK),
+        proxy.httpClientForSessionToken(SESSION_TOKEN));
+    assertEquals(proxy.httpClientForUser(SIMPLEWEBHOOK),
+        proxy.httpClientForSessionToken(SESSION_TOKEN2));
+  }
+
+  @Test(expected = UnregisteredSessionTokenException.class)
+  public void testHttpClientForUnknownSessionToken() {
+    proxy.httpClientForSessionToken("unknown");
+  }
+
+  @Test
+  public void testHttpClientForRotatedSessionTokens() throws RemoteApiException {
+    Token rotatedSessionToken = new Token();
+    rotatedSessionToken.setToken("6f0a6c0e-4a42-4d2b-9d6f-1f4c0a3b2e11");
+
+    doReturn(sessionToken).doReturn(sessionToken2).doReturn(rotatedSessionToken)
+        .when(sbeAuthApi).authenticate(JIRAWEBHOOK);
+    doReturn(kmToken).when(keyManagerAuthApi).authenticate(JIRAWEBHOOK);
+
+    for (int i = 0; i < 3; i++) {
+      proxy.invalidate(JIRAWEBHOOK);
+      proxy.authenticate(JIRAWEBHOOK);
+    }
+
+    // current and previous tokens are kept, the oldest one rotated out
+    assertNotNull(proxy.httpClientForSessionToken(rotatedSessionToken.getToken()));
+    assertNotNull(proxy.httpClientForSessionToken(SESSION_TOKEN2));
+
+    try {
+      proxy.httpClientForSessionToken(SESSION_TOKEN);
+      fail();
+    } catch (UnregisteredSessionTokenException e) {
+      assertFalse(proxy.getToken(JIRAWEBHOOK).getSessionToken().equals(SESSION_TOKEN));
+    }
+  }
+
+  @Test(expected = UnregisteredSessionTokenException.class)
+  public void testHttpClientForReplacedContext() throws RemoteApiException {
+    testAuthentication();
+
+    proxy.registerUser(JIRAWEBHOOK, jiraKs, "");
+    proxy.httpClientForSessionToken(SESSION_TOKEN);
+  }
+
+  @Test
+  public void testReAuthSingleFlight() throws Exception {
+    final CountDownLatch authenticating = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    doAnswer(new Answer<Token>() {
+      @Override
+      public Token answer(InvocationOnMock invocation) throws Throwable {
+        authenticating.countDown();
+        release.await(5, TimeUnit.SECONDS);
+        return sessionToken;
+      }
+    }).when(sbeAuthApi).authenticate(JIRAWEBHOOK);
+    doReturn(kmToken).when(keyManagerAuthApi).authenticate(JIRAWEBHOOK);
+
+    doReturn(sessionToken2).when(sbeAuthApi).authenticate(SIMPLEWEBHOOK);
+    doReturn(kmToken2).when(keyManagerAuthApi).authenticate(SIMPLEWEBHOOK);
+
+    Callable<Void> reAuth = new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        proxy.reAuthOrThrow(JIRAWEBHOOK, 401, new RuntimeException());
+        return null;
+      }
+    };
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    try {
+      Future<Void> first = executor.submit(reAuth);
+      assertTrue(authenticating.await(5, TimeUnit.SECONDS));
+      Future<Void> second = executor.submit(reAuth);
+
+      // other users aren't blocked by the re-authentication in progress
+      proxy.reAuthOrThrow(SIMPLEWEBHOOK, 401, new RuntimeException());
+      assertTrue(proxy.isAuthenticated(SIMPLEWEBHOOK));
+      assertFalse(proxy.isAuthenticated(JIRAWEBHOOK));
+
+      release.countDown();
+      first.get(5, TimeUnit.SECONDS);
+      second.get(5, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertTrue(proxy.isAuthenticated(JIRAWEBHOOK));
+    assertEquals(SESSION_TOKEN, proxy.getSessionToken(JIRAWEBHOOK));
+    verify(sbeAuthApi, times(1)).authenticate(JIRAWEBHOOK);
+  }
+
+  @Test
+  public void testRenewToken() throws RemoteApiException {
+    testAuthentication();
+
+    doReturn(sessionToken2).when(sbeAuthApi).authenticate(JIRAWEBHOOK);
+    doReturn(kmToken2).when(keyManagerAuthApi).authenticate(JIRAWEBHOOK);
+
+    assertTrue(proxy.renewToken(JIRAWEBHOOK));
+
+    // the renewed token is in use and the replaced one is still accepted
+    assertTrue(proxy.isAuthenticated(JIRAWEBHOOK));
+    assertEquals(SESSION_TOKEN2, proxy.getSessionToken(JIRAWEBHOOK));
+    assertEquals(proxy.httpClientForUser(JIRAWEBHOOK),
+        proxy.httpClientForSessionToken(SESSION_TOKEN));
+  }
+
+  @Test
+  public void testRenewTokenNotAuthenticated() throws RemoteApiException {
+    assertFalse(proxy.renewToken(JIRAWEBHOOK));
+    verify(sbeAuthApi, never()).authenticate(JIRAWEBHOOK);
+  }
+
+  @Test
+  public void testConcurrentAuthentication() throws RemoteApiException {
+    final CountDownLatch sessionRequested = new CountDownLatch(1);
+    final CountDownLatch keyManagerRequested = new CountDownLatch(1);
+
+    // each call only completes once the other one has started
+    doAnswer(new Answer<Token>() {
+      @Override
+      public Token answer(InvocationOnMock invocation) throws Throwable {
+        sessionRequested.countDown();
+        return keyManagerRequested.await(5, TimeUnit.SECONDS) ? sessionToken : null;
+      }
+    }).when(sbeAuthApi).authenticate(JIRAWEBHOOK);
+
+    doAnswer(new Answer<Token>() {
+      @Override
+      public Token answer(InvocationOnMock invocation) throws Throwable {
+        keyManagerRequested.countDown();
+        return sessionRequested.await(5, TimeUnit.SECONDS) ? kmToken : null;
+      }
+    }).when(keyManagerAuthApi).authenticate(JIRAWEBHOOK);
+
+    proxy.authenticate(JIRAWEBHOOK);
+
+    assertTrue(proxy.isAuthenticated(JIRAWEBHOOK));
+    assertEquals(SESSION_TOKEN, proxy.getToken(JIRAWEBHOOK).getSessionToken());
+    assertEquals(KM_TOKEN, proxy.getToken(JIRAWEBHOOK).getKeyManagerToken());
+  }
+
+  @Test
+  public void testFailAuthenticationBoth() throws RemoteApiException {
+    doThrow(new RemoteApiException(401, new RuntimeException())).when(sbeAuthApi)
+        .authenticate(JIRAWEBHOOK);
+    doThrow(new RemoteApiException(500, new RuntimeException())).when(keyManagerAuthApi)
+        .authenticate(JIRAWEBHOOK);
+
+    try {
+      proxy.authenticate(JIRAWEBHOOK);
+      fail();
+    } catch (RemoteApiException e) {
+      // the session manager failure is reported
+      assertEquals(401, e.getCode());
+      assertFalse(proxy.isAuthenticated(JIRAWEBHOOK));
+    }
+  }
+
+  @Test
+  public void testStoreToken() throws RemoteApiException {
+    testAuthentication();
+
+    verify(tokenStore).save(JIRAWEBHOOK, proxy.getToken(JIRAWEBHOOK));
+    verify(tokenStore).save(SIMPLEWEBHOOK, proxy.getToken(SIMPLEWEBHOOK));
+  }
+
+  @Test
+  public void testRestoredToken() throws RemoteApiException {
+    AuthenticationToken storedToken = new AuthenticationToken(SESSION_TOKEN, KM_TOKEN);
+    doReturn(storedToken).when(tokenStore).load(JIRAWEBHOOK);
+
+    proxy.registerUser(JIRAWEBHOOK, jiraKs, "");
+
+    assertTrue(proxy.isAuthenticated(JIRAWEBHOOK));
+    assertEquals(SESSION_TOKEN, proxy.getSessionToken(JIRAWEBHOOK));
+    assertEquals(proxy.httpClientForUser(JIRAWEBHOOK),
+        proxy.httpClientForSessionToken(SESSION_TOKEN));
+
+    // the first unauthorized response renews the restored token
+    doReturn(sessionToken2).when(sbeAuthApi).authenticate(JIRAWEBHOOK);
+    doReturn(kmToken2).when(keyManagerAuthApi).authenticate(JIRAWEBHOOK);
+
+    proxy.reAuthOrThrow(JIRAWEBHOOK, 401, new RuntimeException());
+
+    assertTrue(proxy.isAuthenticated(JIRAWEBHOOK));
+    assertEquals(SESSION_TOKEN2, proxy.getSessionToken(JIRAWEBHOOK));
+  }
 }
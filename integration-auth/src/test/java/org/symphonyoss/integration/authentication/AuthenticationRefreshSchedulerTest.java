@@ -0,0 +1,142 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.authentication;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+import org.symphonyoss.integration.exception.RemoteApiException;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.ws.rs.client.Client;
+
+/**
+ * Unit tests for {@link AuthenticationRefreshScheduler}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AuthenticationRefreshSchedulerTest {
+
+  private static final String JIRAWEBHOOK = "jirawebhook";
+
+  private static final String SIMPLEWEBHOOK = "simplewebhook";
+
+  @Mock
+  private Environment environment;
+
+  @Mock
+  private AuthenticationProxyImpl authenticationProxy;
+
+  @Mock
+  private Client client;
+
+  @Spy
+  private MetricRegistry metricsRegistry = new MetricRegistry();
+
+  @InjectMocks
+  private AuthenticationRefreshScheduler scheduler = new AuthenticationRefreshScheduler();
+
+  private AuthenticationContext jiraContext;
+
+  private AuthenticationContext simpleContext;
+
+  @Before
+  public void init() {
+    ConcurrentHashMap<String, AuthenticationContext> index = new ConcurrentHashMap<>();
+
+    this.jiraContext = new AuthenticationContext(JIRAWEBHOOK, client, index);
+    this.simpleContext = new AuthenticationContext(SIMPLEWEBHOOK, client, index);
+
+    doReturn(Arrays.asList(jiraContext, simpleContext)).when(authenticationProxy)
+        .getAuthenticationContexts();
+    doReturn(Boolean.FALSE).when(environment).getProperty(
+        AuthenticationRefreshScheduler.REFRESH_ENABLED_KEY, Boolean.class, Boolean.FALSE);
+    doReturn(0L).when(environment).getProperty(AuthenticationRefreshScheduler.REFRESH_MARGIN_KEY,
+        Long.class, AuthenticationRefreshScheduler.DEFAULT_REFRESH_MARGIN);
+    doReturn(0L).when(environment).getProperty(AuthenticationRefreshScheduler.REFRESH_JITTER_KEY,
+        Long.class, AuthenticationRefreshScheduler.DEFAULT_REFRESH_JITTER);
+  }
+
+  @After
+  public void cleanup() {
+    scheduler.destroy();
+  }
+
+  @Test
+  public void testTokenNotExpiring() throws RemoteApiException {
+    mockSessionLifetime(AuthenticationRefreshScheduler.DEFAULT_SESSION_LIFETIME);
+    jiraContext.setToken(new AuthenticationToken("session", "km"));
+
+    scheduler.refreshExpiringTokens();
+
+    verify(authenticationProxy, never()).renewToken(anyString());
+  }
+
+  @Test
+  public void testRefreshExpiringToken() throws RemoteApiException {
+    mockSessionLifetime(0L);
+    jiraContext.setToken(new AuthenticationToken("session", "km"));
+    doReturn(true).when(authenticationProxy).renewToken(JIRAWEBHOOK);
+
+    scheduler.refreshExpiringTokens();
+
+    // users not authenticated are left to the regular authentication flow
+    verify(authenticationProxy).renewToken(JIRAWEBHOOK);
+    verify(authenticationProxy, never()).renewToken(SIMPLEWEBHOOK);
+    assertEquals(1, metricsRegistry.meter(
+        MetricRegistry.name(BASE_METRIC_NAME, "authentication", "tokenRefreshed")).getCount());
+  }
+
+  @Test
+  public void testRefreshFailure() throws RemoteApiException {
+    mockSessionLifetime(0L);
+    jiraContext.setToken(new AuthenticationToken("session", "km"));
+    simpleContext.setToken(new AuthenticationToken("session2", "km2"));
+    doThrow(RemoteApiException.class).when(authenticationProxy).renewToken(JIRAWEBHOOK);
+    doReturn(true).when(authenticationProxy).renewToken(SIMPLEWEBHOOK);
+
+    scheduler.refreshExpiringTokens();
+
+    verify(authenticationProxy).renewToken(SIMPLEWEBHOOK);
+    assertEquals(1, metricsRegistry.meter(
+        MetricRegistry.name(BASE_METRIC_NAME, "authentication", "tokenRefreshFailures")).getCount());
+  }
+
+  private void mockSessionLifetime(Long lifetime) {
+    doReturn(lifetime).when(environment).getProperty(
+        AuthenticationRefreshScheduler.SESSION_LIFETIME_KEY, Long.class,
+        AuthenticationRefreshScheduler.DEFAULT_SESSION_LIFETIME);
+    scheduler.init();
+  }
+
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.authentication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link AuthenticationTokenStore}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AuthenticationTokenStoreTest {
+
+  private static final String USER_ID = "jirawebhook";
+
+  private static final String SECRET = "5c6a1e3f-26f4-4a53-8bd8-4b8b4ad0a0a1";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Mock
+  private Environment environment;
+
+  @InjectMocks
+  private AuthenticationTokenStore store = new AuthenticationTokenStore();
+
+  private String directory;
+
+  @Before
+  public void init() throws IOException {
+    this.directory = folder.newFolder().getAbsolutePath();
+  }
+
+  @Test
+  public void testDisabled() {
+    doReturn(Boolean.FALSE).when(environment)
+        .getProperty(AuthenticationTokenStore.ENABLED_KEY, Boolean.class, Boolean.FALSE);
+
+    store.init();
+    store.save(USER_ID, new AuthenticationToken("session", "km"));
+
+    assertFalse(store.isEnabled());
+    assertNull(store.load(USER_ID));
+  }
+
+  @Test
+  public void testMissingSecret() {
+    mockEnvironment(null, AuthenticationRefreshScheduler.DEFAULT_SESSION_LIFETIME);
+    store.init();
+
+    assertFalse(store.isEnabled());
+  }
+
+  @Test
+  public void testSaveAndLoad() {
+    mockEnvironment(SECRET, AuthenticationRefreshScheduler.DEFAULT_SESSION_LIFETIME);
+    store.init();
+
+    assertTrue(store.isEnabled());
+    assertNull(store.load(USER_ID));
+
+    store.save(USER_ID, new AuthenticationToken("session", "km"));
+
+    AuthenticationToken token = store.load(USER_ID);
+    assertEquals("session", token.getSessionToken());
+    assertEquals("km", token.getKeyManagerToken());
+
+    // the file is bound to the user
+    assertNull(store.load("simplewebhook"));
+  }
+
+  @Test
+  public void testLoadKeepsAuthenticationTime() {
+    mockEnvironment(SECRET, AuthenticationRefreshScheduler.DEFAULT_SESSION_LIFETIME);
+    store.init();
+
+    long authenticationTime = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(10);
+    store.save(USER_ID, new StoredAuthenticationToken("session", "km", authenticationTime));
+
+    AuthenticationToken token = store.load(USER_ID);
+    assertEquals("session", token.getSessionToken());
+    assertEquals(Long.valueOf(authenticationTime), token.getAuthenticationTime());
+  }
+
+  @Test
+  public void testTamperedFile() throws IOException {
+    mockEnvironment(SECRET, AuthenticationRefreshScheduler.DEFAULT_SESSION_LIFETIME);
+    store.init();
+    store.save(USER_ID, new AuthenticationToken("session", "km"));
+
+    Path file = new File(directory, USER_ID + ".token").toPath();
+    byte[] content = Files.readAllBytes(file);
+    content[content.length / 2] ^= 1;
+    Files.write(file, content);
+
+    assertNull(store.load(USER_ID));
+  }
+
+  @Test
+  public void testWrongSecret() {
+    mockEnvironment(SECRET, AuthenticationRefreshScheduler.DEFAULT_SESSION_LIFETIME);
+    store.init();
+    store.save(USER_ID, new AuthenticationToken("session", "km"));
+
+    mockEnvironment("another-secret", AuthenticationRefreshScheduler.DEFAULT_SESSION_LIFETIME);
+    store.init();
+
+    assertNull(store.load(USER_ID));
+  }
+
+  @Test
+  public void testExpiredToken() throws InterruptedException {
+    mockEnvironment(SECRET, 0L);
+    store.init();
+    store.save(USER_ID, new AuthenticationToken("session", "km"));
+
+    Thread.sleep(5);
+
+    assertNull(store.load(USER_ID));
+  }
+
+  private void mockEnvironment(String secret, Long sessionLifetime) {
+    doReturn(Boolean.TRUE).when(environment)
+        .getProperty(AuthenticationTokenStore.ENABLED_KEY, Boolean.class, Boolean.FALSE);
+    doReturn(secret).when(environment).getProperty(AuthenticationTokenStore.SECRET_KEY);
+    doReturn(directory).when(environment).getProperty(AuthenticationTokenStore.DIRECTORY_KEY,
+        AuthenticationTokenStore.DEFAULT_DIRECTORY);
+    doReturn(sessionLifetime).when(environment).getProperty(
+        AuthenticationRefreshScheduler.SESSION_LIFETIME_KEY, Long.class,
+        AuthenticationRefreshScheduler.DEFAULT_SESSION_LIFETIME);
+  }
+
+}
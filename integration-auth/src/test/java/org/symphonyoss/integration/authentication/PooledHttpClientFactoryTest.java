@@ -0,0 +1,178 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.authentication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.security.KeyStore;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.Client;
+
+/**
+ * Unit tests for {@link PooledHttpClientFactory}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PooledHttpClientFactoryTest {
+
+  private static final String USER_ID = "jirawebhook";
+
+  private static final int LEASE_TIMEOUT = 100;
+
+  @Mock
+  private Environment environment;
+
+  @Mock
+  private KeyStore keyStore;
+
+  @Spy
+  private MetricRegistry metricsRegistry = new MetricRegistry();
+
+  @InjectMocks
+  private PooledHttpClientFactory factory = new PooledHttpClientFactory();
+
+  @Before
+  public void init() {
+    doReturn(50).when(environment).getProperty(PooledHttpClientFactory.MAX_TOTAL_KEY,
+        Integer.class, PooledHttpClientFactory.DEFAULT_MAX_TOTAL);
+    doReturn(10).when(environment).getProperty(PooledHttpClientFactory.MAX_PER_ROUTE_KEY,
+        Integer.class, PooledHttpClientFactory.DEFAULT_MAX_PER_ROUTE);
+    doReturn(1000L).when(environment).getProperty(PooledHttpClientFactory.IDLE_TIMEOUT_KEY,
+        Long.class, PooledHttpClientFactory.DEFAULT_IDLE_TIMEOUT);
+    doReturn(1000).when(environment).getProperty(PooledHttpClientFactory.CONNECT_TIMEOUT_KEY,
+        Integer.class, PooledHttpClientFactory.DEFAULT_CONNECT_TIMEOUT);
+    doReturn(1000).when(environment).getProperty(PooledHttpClientFactory.READ_TIMEOUT_KEY,
+        Integer.class, PooledHttpClientFactory.DEFAULT_READ_TIMEOUT);
+    doReturn(LEASE_TIMEOUT).when(environment).getProperty(PooledHttpClientFactory.LEASE_TIMEOUT_KEY,
+        Integer.class, PooledHttpClientFactory.DEFAULT_LEASE_TIMEOUT);
+
+    factory.init();
+  }
+
+  @After
+  public void cleanup() {
+    factory.destroy();
+  }
+
+  @Test
+  public void testNewClient() {
+    Client client = factory.newClient(USER_ID, keyStore, "");
+    assertNotNull(client);
+
+    PoolingHttpClientConnectionManager pool = factory.getConnectionPool(USER_ID);
+    assertEquals(50, pool.getMaxTotal());
+    assertEquals(10, pool.getDefaultMaxPerRoute());
+
+    assertEquals(0, getGauge("leased").getValue());
+    assertEquals(0, getGauge("pending").getValue());
+    assertEquals(0, getGauge("available").getValue());
+  }
+
+  @Test
+  public void testLeaseTimeoutOnExhaustedPool()
+      throws IOException, InterruptedException, ExecutionException {
+    Client client = factory.newClient(USER_ID, keyStore, "");
+
+    RequestConfig requestConfig = (RequestConfig) client.getConfiguration()
+        .getProperty(ApacheClientProperties.REQUEST_CONFIG);
+    assertEquals(LEASE_TIMEOUT, requestConfig.getConnectionRequestTimeout());
+
+    PoolingHttpClientConnectionManager pool = factory.getConnectionPool(USER_ID);
+    HttpRoute route = new HttpRoute(new HttpHost("localhost", 8080));
+
+    for (int i = 0; i < pool.getDefaultMaxPerRoute(); i++) {
+      ConnectionRequest request = pool.requestConnection(route, null);
+      assertNotNull(request.get(LEASE_TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    assertEquals(10, getGauge("leased").getValue());
+
+    try {
+      pool.requestConnection(route, null).get(requestConfig.getConnectionRequestTimeout(),
+          TimeUnit.MILLISECONDS);
+      fail();
+    } catch (ConnectionPoolTimeoutException e) {
+      // expected, the pool is exhausted
+    }
+  }
+
+  @Test
+  public void testRegisterUserAgain() {
+    Client previous = factory.newClient(USER_ID, keyStore, "");
+    PoolingHttpClientConnectionManager pool = factory.getConnectionPool(USER_ID);
+
+    Client client = factory.newClient(USER_ID, keyStore, "");
+
+    assertNotSame(pool, factory.getConnectionPool(USER_ID));
+    assertNotNull(getGauge("leased"));
+
+    assertClosed(previous);
+    assertNotNull(client.target("https://localhost"));
+  }
+
+  @Test
+  public void testDestroyClosesClients() {
+    Client client = factory.newClient(USER_ID, keyStore, "");
+
+    factory.destroy();
+
+    assertClosed(client);
+    assertNull(factory.getConnectionPool(USER_ID));
+  }
+
+  private void assertClosed(Client client) {
+    try {
+      client.target("https://localhost");
+      fail();
+    } catch (IllegalStateException e) {
+      // expected, the client was closed
+    }
+  }
+
+  private Gauge getGauge(String name) {
+    return metricsRegistry.getGauges().get(
+        MetricRegistry.name(BASE_METRIC_NAME, "httpClient", USER_ID, name));
+  }
+
+}
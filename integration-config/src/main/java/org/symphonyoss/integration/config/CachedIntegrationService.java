@@ -0,0 +1,330 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.config;
+
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.config.exception.InstanceNotFoundException;
+import org.symphonyoss.integration.model.config.IntegrationInstance;
+import org.symphonyoss.integration.model.config.IntegrationSettings;
+import org.symphonyoss.integration.service.IntegrationService;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Decorates the {@link RemoteIntegrationService} keeping the integration instances in memory.
+ *
+ * The cached instances expire after a TTL, but they are refreshed in the background some time
+ * before that, so the callers don't wait for the POD while an instance is being used. Saving an
+ * instance through this service updates the cache immediately.
+ *
+ * The instances not found on the POD are also remembered for a short period, so requests with
+ * unknown instance identifiers are rejected without a remote call. These requests get the same
+ * exception instance, without stack trace, as they're expected and frequent.
+ *
+ * This component is registered as "remoteIntegrationService", so all the components that use the
+ * remote configuration get the cached instances.
+ */
+@Component("remoteIntegrationService")
+public class CachedIntegrationService implements IntegrationService {
+
+  public static final String INSTANCE_TTL_KEY = "config.cache.instance.ttl.ms";
+
+  public static final String INSTANCE_REFRESH_KEY = "config.cache.instance.refresh.ms";
+
+  public static final String INSTANCE_MAX_SIZE_KEY = "config.cache.instance.size";
+
+  public static final String NOT_FOUND_TTL_KEY = "config.cache.instance.notfound.ttl.ms";
+
+  public static final String NOT_FOUND_MAX_SIZE_KEY = "config.cache.instance.notfound.size";
+
+  public static final Long DEFAULT_INSTANCE_TTL = 300000L;
+
+  public static final Long DEFAULT_INSTANCE_REFRESH = 60000L;
+
+  public static final Long DEFAULT_INSTANCE_MAX_SIZE = 10000L;
+
+  public static final Long DEFAULT_NOT_FOUND_TTL = 30000L;
+
+  public static final Long DEFAULT_NOT_FOUND_MAX_SIZE = 10000L;
+
+  private static final String INSTANCE_CACHE = "instanceCache";
+
+  private static final String HITS = "hits";
+
+  private static final String MISSES = "misses";
+
+  private static final String LOAD = "load";
+
+  private static final String NOT_FOUND_REJECTED = "notFoundRejected";
+
+  private static final int REFRESH_POOL_SIZE = 2;
+
+  @Autowired
+  @Qualifier("podIntegrationService")
+  private IntegrationService delegate;
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private MetricRegistry metricsRegistry;
+
+  private ExecutorService refreshExecutor;
+
+  private LoadingCache<InstanceKey, IntegrationInstance> instanceCache;
+
+  /**
+   * Instances not found on the POD and the exception to reject them
+   */
+  private Cache<InstanceKey, InstanceNotFoundException> notFoundCache;
+
+  private Timer loadTimer;
+
+  private Meter notFoundRejectedMeter;
+
+  @Override
+  @PostConstruct
+  public void init() {
+    long ttl = environment.getProperty(INSTANCE_TTL_KEY, Long.class, DEFAULT_INSTANCE_TTL);
+    long refresh = environment.getProperty(INSTANCE_REFRESH_KEY, Long.class, DEFAULT_INSTANCE_REFRESH);
+    long maxSize = environment.getProperty(INSTANCE_MAX_SIZE_KEY, Long.class, DEFAULT_INSTANCE_MAX_SIZE);
+
+    this.loadTimer = metricsRegistry.timer(MetricRegistry.name(BASE_METRIC_NAME, INSTANCE_CACHE, LOAD));
+    this.refreshExecutor = Executors.newFixedThreadPool(REFRESH_POOL_SIZE);
+
+    CacheLoader<InstanceKey, IntegrationInstance> loader =
+        new CacheLoader<InstanceKey, IntegrationInstance>() {
+          @Override
+          public IntegrationInstance load(InstanceKey key) throws Exception {
+            Timer.Context context = loadTimer.time();
+
+            try {
+              return delegate.getInstanceById(key.configurationId, key.instanceId, key.userId);
+            } finally {
+              context.stop();
+            }
+          }
+        };
+
+    this.instanceCache = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+        .refreshAfterWrite(refresh, TimeUnit.MILLISECONDS)
+        .recordStats()
+        .build(CacheLoader.asyncReloading(loader, refreshExecutor));
+
+    long notFoundTtl = environment.getProperty(NOT_FOUND_TTL_KEY, Long.class, DEFAULT_NOT_FOUND_TTL);
+    long notFoundMaxSize =
+        environment.getProperty(NOT_FOUND_MAX_SIZE_KEY, Long.class, DEFAULT_NOT_FOUND_MAX_SIZE);
+
+    this.notFoundCache = CacheBuilder.newBuilder()
+        .maximumSize(notFoundMaxSize)
+        .expireAfterWrite(notFoundTtl, TimeUnit.MILLISECONDS)
+        .build();
+
+    initMetrics();
+  }
+
+  private void initMetrics() {
+    this.notFoundRejectedMeter =
+        metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, INSTANCE_CACHE, NOT_FOUND_REJECTED));
+
+    metricsRegistry.register(MetricRegistry.name(BASE_METRIC_NAME, INSTANCE_CACHE, HITS),
+        new Gauge<Long>() {
+          @Override
+          public Long getValue() {
+            return instanceCache.stats().hitCount();
+          }
+        });
+
+    metricsRegistry.register(MetricRegistry.name(BASE_METRIC_NAME, INSTANCE_CACHE, MISSES),
+        new Gauge<Long>() {
+          @Override
+          public Long getValue() {
+            return instanceCache.stats().missCount();
+          }
+        });
+  }
+
+  @PreDestroy
+  public void destroy() {
+    if (refreshExecutor != null) {
+      refreshExecutor.shutdown();
+    }
+  }
+
+  @Override
+  public IntegrationSettings getIntegrationById(String integrationId, String userId) {
+    return delegate.getIntegrationById(integrationId, userId);
+  }
+
+  @Override
+  public IntegrationSettings getIntegrationByType(String integrationType, String userId) {
+    return delegate.getIntegrationByType(integrationType, userId);
+  }
+
+  @Override
+  public IntegrationSettings save(IntegrationSettings settings, String userId) {
+    return delegate.save(settings, userId);
+  }
+
+  @Override
+  public IntegrationInstance getInstanceById(String configurationId, String instanceId,
+      String userId) {
+    InstanceKey notFoundKey = new InstanceKey(configurationId, instanceId, null);
+
+    InstanceNotFoundException notFound = notFoundCache.getIfPresent(notFoundKey);
+
+    if (notFound != null) {
+      notFoundRejectedMeter.mark();
+      throw notFound;
+    }
+
+    InstanceKey key = new InstanceKey(configurationId, instanceId, userId);
+
+    try {
+      return IntegrationModelCopies.copy(instanceCache.getUnchecked(key));
+    } catch (UncheckedExecutionException e) {
+      Throwable cause = e.getCause();
+
+      if (cause instanceof InstanceNotFoundException) {
+        notFoundCache.put(notFoundKey, new RejectedInstanceException(instanceId));
+      }
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      throw e;
+    }
+  }
+
+  @Override
+  public IntegrationInstance save(IntegrationInstance instance, String userId) {
+    IntegrationInstance result = delegate.save(instance, userId);
+    invalidateInstance(instance.getInstanceId());
+
+    if (result != null && result.getInstanceId() != null) {
+      InstanceKey key = new InstanceKey(result.getConfigurationId(), result.getInstanceId(), userId);
+      instanceCache.put(key, IntegrationModelCopies.copy(result));
+    }
+
+    return result;
+  }
+
+  /**
+   * Discards all the cached entries of the instance.
+   * @param instanceId Instance identifier
+   */
+  public void invalidateInstance(String instanceId) {
+    if (instanceId == null) {
+      return;
+    }
+
+    removeKeys(instanceCache.asMap().keySet().iterator(), instanceId);
+    removeKeys(notFoundCache.asMap().keySet().iterator(), instanceId);
+  }
+
+  private void removeKeys(Iterator<InstanceKey> keys, String instanceId) {
+    while (keys.hasNext()) {
+      if (instanceId.equals(keys.next().instanceId)) {
+        keys.remove();
+      }
+    }
+  }
+
+  /**
+   * Cache key. The user is part of the key because the POD checks if the user can read the
+   * instance. The user is not used to remember the instances not found.
+   */
+  private static final class InstanceKey {
+
+    private final String configurationId;
+
+    private final String instanceId;
+
+    private final String userId;
+
+    private InstanceKey(String configurationId, String instanceId, String userId) {
+      this.configurationId = configurationId;
+      this.instanceId = instanceId;
+      this.userId = userId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      InstanceKey that = (InstanceKey) o;
+
+      return Objects.equals(configurationId, that.configurationId)
+          && Objects.equals(instanceId, that.instanceId)
+          && Objects.equals(userId, that.userId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(configurationId, instanceId, userId);
+    }
+
+  }
+
+  /**
+   * Exception reused to reject the instances not found on the POD. The stack trace isn't filled, as
+   * it would only point to this cache.
+   */
+  private static final class RejectedInstanceException extends InstanceNotFoundException {
+
+    private RejectedInstanceException(String instanceId) {
+      super(instanceId);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+
+  }
+
+}
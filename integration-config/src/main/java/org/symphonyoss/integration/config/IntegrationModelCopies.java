@@ -0,0 +1,63 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.config;
+
+import org.symphonyoss.integration.model.config.IntegrationInstance;
+import org.symphonyoss.integration.model.config.IntegrationSettings;
+
+/**
+ * Copies the configuration models handed out by the integration services, so a caller can't change
+ * the object seen by other callers. All the model fields are immutable values, so a shallow copy
+ * is enough.
+ */
+final class IntegrationModelCopies {
+
+  private IntegrationModelCopies() {
+  }
+
+  static IntegrationInstance copy(IntegrationInstance instance) {
+    if (instance == null) {
+      return null;
+    }
+
+    IntegrationInstance copy = new IntegrationInstance();
+    copy.setInstanceId(instance.getInstanceId());
+    copy.setConfigurationId(instance.getConfigurationId());
+    copy.setName(instance.getName());
+    copy.setCreatorId(instance.getCreatorId());
+    copy.setCreatedDate(instance.getCreatedDate());
+    copy.setOptionalProperties(instance.getOptionalProperties());
+    return copy;
+  }
+
+  static IntegrationSettings copy(IntegrationSettings settings) {
+    if (settings == null) {
+      return null;
+    }
+
+    IntegrationSettings copy = new IntegrationSettings();
+    copy.setConfigurationId(settings.getConfigurationId());
+    copy.setType(settings.getType());
+    copy.setName(settings.getName());
+    copy.setDescription(settings.getDescription());
+    copy.setEnabled(settings.getEnabled());
+    copy.setVisible(settings.getVisible());
+    copy.setOwner(settings.getOwner());
+    return copy;
+  }
+
+}
@@ -22,9 +22,11 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.config.event.IntegrationInstanceUpdatedEvent;
 import org.symphonyoss.integration.config.exception.ConfigurationNotFoundException;
 import org.symphonyoss.integration.config.exception.InitializationConfigException;
 import org.symphonyoss.integration.config.exception.InstanceNotFoundException;
@@ -85,6 +87,9 @@ public class LocalIntegrationService implements IntegrationService {
   @Autowired
   private Environment environment;
 
+  @Autowired
+  private ApplicationEventPublisher publisher;
+
   @Override
   @PostConstruct
   public void init() {
@@ -227,6 +232,7 @@ public class LocalIntegrationService implements IntegrationService {
       copy.putInstance(instance);
 
       saveRepository(copy);
+      publisher.publishEvent(new IntegrationInstanceUpdatedEvent(this, instance.getInstanceId()));
 
       return instance;
     } catch (IOException e) {
@@ -20,9 +20,12 @@ import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 import static javax.ws.rs.core.Response.Status.FORBIDDEN;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.symphonyoss.integration.authentication.AuthenticationProxy;
+import org.symphonyoss.integration.config.event.IntegrationInstanceUpdatedEvent;
 import org.symphonyoss.integration.config.exception.ConfigurationNotFoundException;
+import org.symphonyoss.integration.config.exception.InstanceNotFoundException;
 import org.symphonyoss.integration.exception.RemoteApiException;
 import org.symphonyoss.integration.exception.config.ForbiddenUserException;
 import org.symphonyoss.integration.exception.config.RemoteConfigurationException;
@@ -36,14 +39,20 @@ import org.symphonyoss.integration.pod.api.model.IntegrationInstanceSubmissionUp
 import org.symphonyoss.integration.pod.api.model.IntegrationSubmissionCreate;
 import org.symphonyoss.integration.service.IntegrationService;
 
+import java.util.Arrays;
+import java.util.List;
+
 import javax.annotation.PostConstruct;
 
 /**
  * Reads configurations from any configured server.
  *
+ * The instances read by this service are cached by the {@link CachedIntegrationService}, which is
+ * the component registered as "remoteIntegrationService".
+ *
  * Created by mquilzini on 26/05/16.
  */
-@Component
+@Component("podIntegrationService")
 public class RemoteIntegrationService implements IntegrationService {
 
   @Autowired
@@ -52,10 +61,35 @@ public class RemoteIntegrationService implements IntegrationService {
   @Autowired
   private PodHttpApiClient client;
 
+  @Autowired
+  private ApplicationEventPublisher publisher;
+
   private IntegrationApiClient integrationApiClient;
 
   private IntegrationInstanceApiClient instanceApiClient;
 
+  /**
+   * Coalesces concurrent lookups of the same integration
+   */
+  private final RequestCoalescer<List<String>, IntegrationSettings> integrationRequests =
+      new RequestCoalescer<>(new RequestCoalescer.Copier<IntegrationSettings>() {
+        @Override
+        public IntegrationSettings copy(IntegrationSettings value) {
+          return IntegrationModelCopies.copy(value);
+        }
+      });
+
+  /**
+   * Coalesces concurrent lookups of the same instance
+   */
+  private final RequestCoalescer<List<String>, IntegrationInstance> instanceRequests =
+      new RequestCoalescer<>(new RequestCoalescer.Copier<IntegrationInstance>() {
+        @Override
+        public IntegrationInstance copy(IntegrationInstance value) {
+          return IntegrationModelCopies.copy(value);
+        }
+      });
+
   @Override
   @PostConstruct
   public void init() {
@@ -64,7 +98,18 @@ public class RemoteIntegrationService implements IntegrationService {
   }
 
   @Override
-  public IntegrationSettings getIntegrationById(String integrationId, String userId) {
+  public IntegrationSettings getIntegrationById(final String integrationId, final String userId) {
+    List<String> key = Arrays.asList(integrationId, userId);
+
+    return integrationRequests.execute(key, new RequestCoalescer.Request<IntegrationSettings>() {
+      @Override
+      public IntegrationSettings execute() {
+        return fetchIntegrationById(integrationId, userId);
+      }
+    });
+  }
+
+  private IntegrationSettings fetchIntegrationById(String integrationId, String userId) {
     try {
       return integrationApiClient.getIntegrationById(authenticationProxy.getSessionToken(userId),
           integrationId);
@@ -107,13 +152,30 @@ public class RemoteIntegrationService implements IntegrationService {
   }
 
   @Override
-  public IntegrationInstance getInstanceById(String configurationId, String instanceId,
+  public IntegrationInstance getInstanceById(final String configurationId,
+      final String instanceId, final String userId) {
+    List<String> key = Arrays.asList(configurationId, instanceId, userId);
+
+    return instanceRequests.execute(key, new RequestCoalescer.Request<IntegrationInstance>() {
+      @Override
+      public IntegrationInstance execute() {
+        return fetchInstanceById(configurationId, instanceId, userId);
+      }
+    });
+  }
+
+  private IntegrationInstance fetchInstanceById(String configurationId, String instanceId,
       String userId) {
     try {
       return instanceApiClient.getInstanceById(authenticationProxy.getSessionToken(userId),
           configurationId, instanceId);
     } catch (RemoteApiException e) {
       checkExceptionCodeForbidden(e);
+
+      if (e.getCode() == BAD_REQUEST.getStatusCode()) {
+        throw new InstanceNotFoundException(instanceId);
+      }
+
       throw new RemoteConfigurationException(e);
     }
   }
@@ -121,7 +183,9 @@ public class RemoteIntegrationService implements IntegrationService {
   @Override
   public IntegrationInstance save(IntegrationInstance instance, String userId) {
     if (instanceExists(instance, userId)) {
-      return updateInstance(instance, userId);
+      IntegrationInstance result = updateInstance(instance, userId);
+      publisher.publishEvent(new IntegrationInstanceUpdatedEvent(this, instance.getInstanceId()));
+      return result;
     } else {
       return createInstance(instance, userId);
     }
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.config;
+
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesces concurrent identical requests, so only one of them is executed.
+ *
+ * The first caller executes the request on its own thread. The callers that arrive with the same
+ * key while the request is in flight wait for it and receive the same exception or their own copy
+ * of the result, so a caller can't change the object seen by the others. Nothing is kept after the
+ * request completes, so this is not a cache.
+ * @param <K> Request key
+ * @param <V> Result type
+ */
+public class RequestCoalescer<K, V> {
+
+  /**
+   * Request to be executed.
+   * @param <V> Result type
+   */
+  public interface Request<V> {
+
+    V execute();
+
+  }
+
+  /**
+   * Copies the result handed to the callers that waited for the request.
+   * @param <V> Result type
+   */
+  public interface Copier<V> {
+
+    V copy(V value);
+
+  }
+
+  private final ConcurrentMap<K, FutureTask<V>> inFlight = new ConcurrentHashMap<>();
+
+  private final Copier<V> copier;
+
+  public RequestCoalescer(Copier<V> copier) {
+    this.copier = copier;
+  }
+
+  /**
+   * Executes the request or waits for the identical request already in flight.
+   * @param key Request key
+   * @param request Request to be executed
+   * @return Request result
+   */
+  public V execute(K key, final Request<V> request) {
+    FutureTask<V> task = new FutureTask<>(new Callable<V>() {
+      @Override
+      public V call() throws Exception {
+        return request.execute();
+      }
+    });
+
+    FutureTask<V> current = inFlight.putIfAbsent(key, task);
+
+    if (current == null) {
+      current = task;
+
+      try {
+        task.run();
+      } finally {
+        inFlight.remove(key, task);
+      }
+    }
+
+    try {
+      V result = Uninterruptibles.getUninterruptibly(current);
+      return current == task ? result : copier.copy(result);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+
+      throw new UncheckedExecutionException(cause);
+    }
+  }
+
+  /**
+   * Returns the number of requests in flight.
+   */
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+}
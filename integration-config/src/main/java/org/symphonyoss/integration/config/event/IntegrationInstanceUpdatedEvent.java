@@ -0,0 +1,42 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.config.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event published when an integration instance is saved. Components that keep data derived from
+ * the instance should discard it when receiving this event.
+ */
+public class IntegrationInstanceUpdatedEvent extends ApplicationEvent {
+
+  private final String instanceId;
+
+  /**
+   * @param source Component that saved the instance
+   * @param instanceId Instance identifier
+   */
+  public IntegrationInstanceUpdatedEvent(Object source, String instanceId) {
+    super(source);
+    this.instanceId = instanceId;
+  }
+
+  public String getInstanceId() {
+    return instanceId;
+  }
+
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+import org.symphonyoss.integration.config.exception.InstanceNotFoundException;
+import org.symphonyoss.integration.exception.config.ForbiddenUserException;
+import org.symphonyoss.integration.model.config.IntegrationInstance;
+import org.symphonyoss.integration.service.IntegrationService;
+
+/**
+ * Unit tests for {@link CachedIntegrationService}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CachedIntegrationServiceTest {
+
+  private static final String USER_ID = "jiraWebHookIntegration";
+
+  private static final String CONFIGURATION_ID = "57756bca4b54433738037005";
+
+  private static final String INSTANCE_ID = "1234";
+
+  @Mock
+  private IntegrationService delegate;
+
+  @Mock
+  private Environment environment;
+
+  @Spy
+  private MetricRegistry metricsRegistry = new MetricRegistry();
+
+  @InjectMocks
+  private CachedIntegrationService service = new CachedIntegrationService();
+
+  @Before
+  public void init() {
+    doReturn(CachedIntegrationService.DEFAULT_INSTANCE_TTL).when(environment)
+        .getProperty(CachedIntegrationService.INSTANCE_TTL_KEY, Long.class,
+            CachedIntegrationService.DEFAULT_INSTANCE_TTL);
+    doReturn(CachedIntegrationService.DEFAULT_INSTANCE_REFRESH).when(environment)
+        .getProperty(CachedIntegrationService.INSTANCE_REFRESH_KEY, Long.class,
+            CachedIntegrationService.DEFAULT_INSTANCE_REFRESH);
+    doReturn(CachedIntegrationService.DEFAULT_INSTANCE_MAX_SIZE).when(environment)
+        .getProperty(CachedIntegrationService.INSTANCE_MAX_SIZE_KEY, Long.class,
+            CachedIntegrationService.DEFAULT_INSTANCE_MAX_SIZE);
+    doReturn(CachedIntegrationService.DEFAULT_NOT_FOUND_TTL).when(environment)
+        .getProperty(CachedIntegrationService.NOT_FOUND_TTL_KEY, Long.class,
+            CachedIntegrationService.DEFAULT_NOT_FOUND_TTL);
+    doReturn(CachedIntegrationService.DEFAULT_NOT_FOUND_MAX_SIZE).when(environment)
+        .getProperty(CachedIntegrationService.NOT_FOUND_MAX_SIZE_KEY, Long.class,
+            CachedIntegrationService.DEFAULT_NOT_FOUND_MAX_SIZE);
+
+    service.init();
+  }
+
+  @After
+  public void cleanup() {
+    service.destroy();
+  }
+
+  @Test
+  public void testGetCachedInstance() {
+    IntegrationInstance instance = buildInstance("options");
+    doReturn(instance).when(delegate).getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+
+    IntegrationInstance first = service.getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+    IntegrationInstance second = service.getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+
+    assertEquals(INSTANCE_ID, first.getInstanceId());
+    assertEquals("options", second.getOptionalProperties());
+    assertNotSame(first, second);
+
+    verify(delegate, times(1)).getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+  }
+
+  @Test
+  public void testCachedInstanceCopy() {
+    IntegrationInstance instance = buildInstance("options");
+    instance.setName("name");
+    instance.setCreatorId(USER_ID);
+    instance.setCreatedDate(1462371116436L);
+    doReturn(instance).when(delegate).getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+
+    IntegrationInstance first = service.getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+    assertEquals(CONFIGURATION_ID, first.getConfigurationId());
+    assertEquals("name", first.getName());
+    assertEquals(USER_ID, first.getCreatorId());
+    assertEquals(new Long(1462371116436L), first.getCreatedDate());
+
+    first.setOptionalProperties("changed");
+
+    IntegrationInstance second = service.getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+    assertEquals("options", second.getOptionalProperties());
+  }
+
+  @Test
+  public void testSaveUpdatesCache() {
+    doReturn(buildInstance("options")).when(delegate)
+        .getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+
+    service.getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+
+    IntegrationInstance updated = buildInstance("new options");
+    doReturn(updated).when(delegate).save(updated, USER_ID);
+
+    service.save(updated, USER_ID);
+
+    IntegrationInstance result = service.getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+    assertEquals("new options", result.getOptionalProperties());
+
+    verify(delegate, times(1)).getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+  }
+
+  @Test(expected = ForbiddenUserException.class)
+  public void testGetInstanceFailure() {
+    doThrow(ForbiddenUserException.class).when(delegate)
+        .getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+
+    service.getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+  }
+
+  @Test
+  public void testRejectInstanceNotFound() {
+    doThrow(new InstanceNotFoundException(INSTANCE_ID)).when(delegate)
+        .getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+
+    InstanceNotFoundException rejected = null;
+
+    for (int i = 0; i < 3; i++) {
+      try {
+        service.getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+        fail();
+      } catch (InstanceNotFoundException e) {
+        assertEquals("Instance " + INSTANCE_ID + " not found.", e.getMessage());
+
+        if (i > 0) {
+          // the rejections reuse the same exception, without stack trace
+          assertTrue(rejected == null || rejected == e);
+          assertEquals(0, e.getStackTrace().length);
+          rejected = e;
+        }
+      }
+    }
+
+    verify(delegate, times(1)).getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+    assertEquals(2, metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME,
+        "instanceCache", "notFoundRejected")).getCount());
+  }
+
+  private IntegrationInstance buildInstance(String optionalProperties) {
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId(CONFIGURATION_ID);
+    instance.setInstanceId(INSTANCE_ID);
+    instance.setOptionalProperties(optionalProperties);
+
+    return instance;
+  }
+
+}
@@ -20,7 +20,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
 import static org.symphonyoss.integration.utils.WebHookConfigurationUtils.LAST_POSTED_DATE;
 import static org.symphonyoss.integration.utils.WebHookConfigurationUtils.OWNER;
 
@@ -32,7 +34,9 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.env.Environment;
+import org.symphonyoss.integration.config.event.IntegrationInstanceUpdatedEvent;
 import org.symphonyoss.integration.config.exception.ConfigurationNotFoundException;
 import org.symphonyoss.integration.config.exception.InitializationConfigException;
 import org.symphonyoss.integration.config.exception.InstanceNotFoundException;
@@ -63,6 +67,9 @@ public class LocalIntegrationServiceTest {
   @Mock
   private Environment environment;
 
+  @Mock
+  private ApplicationEventPublisher publisher;
+
   @InjectMocks
   private IntegrationService service = new LocalIntegrationService();
 
@@ -249,6 +256,8 @@ public class LocalIntegrationServiceTest {
     instance.setOptionalProperties(optionalProperties);
     service.save(instance, TEST_USER);
 
+    verify(publisher).publishEvent(any(IntegrationInstanceUpdatedEvent.class));
+
     IntegrationInstance saved =
         service.getInstanceById("575062074b54ba5e759c0fd0", "4321", TEST_USER);
 
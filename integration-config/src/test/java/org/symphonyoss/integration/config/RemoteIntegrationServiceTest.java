@@ -22,6 +22,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.Before;
@@ -30,8 +31,11 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
 import org.symphonyoss.integration.authentication.AuthenticationProxy;
+import org.symphonyoss.integration.config.event.IntegrationInstanceUpdatedEvent;
 import org.symphonyoss.integration.config.exception.ConfigurationNotFoundException;
+import org.symphonyoss.integration.config.exception.InstanceNotFoundException;
 import org.symphonyoss.integration.exception.RemoteApiException;
 import org.symphonyoss.integration.exception.config.ForbiddenUserException;
 import org.symphonyoss.integration.exception.config.RemoteConfigurationException;
@@ -75,6 +79,9 @@ public class RemoteIntegrationServiceTest {
   @Mock
   private IntegrationInstanceApiClient instanceApiClient;
 
+  @Mock
+  private ApplicationEventPublisher publisher;
+
   @InjectMocks
   private IntegrationService remoteIntegrationService = new RemoteIntegrationService();
 
@@ -183,6 +190,15 @@ public class RemoteIntegrationServiceTest {
     remoteIntegrationService.getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
   }
 
+  @Test(expected = InstanceNotFoundException.class)
+  public void testGetInstanceByIdNotFound() throws Exception {
+    RemoteApiException exception =
+        new RemoteApiException(STATUS_CODE_BAD_REQUEST, "Instance not found");
+    doThrow(exception).when(instanceApiClient).getInstanceById(TOKEN, CONFIGURATION_ID, INSTANCE_ID);
+
+    remoteIntegrationService.getInstanceById(CONFIGURATION_ID, INSTANCE_ID, USER_ID);
+  }
+
   @Test
   public void testGetInstanceById() throws Exception {
     IntegrationInstance expectedConfigurationInstance = buildInstance();
@@ -240,6 +256,7 @@ public class RemoteIntegrationServiceTest {
         .updateInstance(eq(TOKEN), any(IntegrationInstanceSubmissionUpdate.class));
 
     assertEquals(instance, remoteIntegrationService.save(instance, USER_ID));
+    verify(publisher).publishEvent(any(IntegrationInstanceUpdatedEvent.class));
   }
 
   private IntegrationSettings buildIntegrationSettings() {
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link RequestCoalescer}
+ */
+public class RequestCoalescerTest {
+
+  private static final int CALLERS = 5;
+
+  private static final String COPY_SUFFIX = "-copy";
+
+  private RequestCoalescer<String, String> coalescer =
+      new RequestCoalescer<>(new RequestCoalescer.Copier<String>() {
+        @Override
+        public String copy(String value) {
+          return value + COPY_SUFFIX;
+        }
+      });
+
+  @Test
+  public void testSequentialRequests() {
+    final AtomicInteger executions = new AtomicInteger();
+
+    RequestCoalescer.Request<String> request = new RequestCoalescer.Request<String>() {
+      @Override
+      public String execute() {
+        return "result" + executions.incrementAndGet();
+      }
+    };
+
+    assertEquals("result1", coalescer.execute("key", request));
+    assertEquals("result2", coalescer.execute("key", request));
+    assertEquals(0, coalescer.getInFlightCount());
+  }
+
+  @Test
+  public void testConcurrentRequestsCopyResult()
+      throws InterruptedException, ExecutionException {
+    final AtomicInteger executions = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+
+    List<Future<String>> results = executeConcurrently(new RequestCoalescer.Request<String>() {
+      @Override
+      public String execute() {
+        executions.incrementAndGet();
+        awaitRelease(release);
+        return "result";
+      }
+    }, release);
+
+    int originals = 0;
+
+    // only the caller that executed the request receives the original result
+    for (Future<String> result : results) {
+      String value = result.get();
+
+      if ("result".equals(value)) {
+        originals++;
+      } else {
+        assertEquals("result" + COPY_SUFFIX, value);
+      }
+    }
+
+    assertEquals(1, originals);
+
+    assertEquals(1, executions.get());
+    assertEquals(0, coalescer.getInFlightCount());
+  }
+
+  @Test
+  public void testConcurrentRequestsShareException() throws InterruptedException {
+    final AtomicInteger executions = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    final IllegalStateException failure = new IllegalStateException();
+
+    List<Future<String>> results = executeConcurrently(new RequestCoalescer.Request<String>() {
+      @Override
+      public String execute() {
+        executions.incrementAndGet();
+        awaitRelease(release);
+        throw failure;
+      }
+    }, release);
+
+    for (Future<String> result : results) {
+      try {
+        result.get();
+        fail();
+      } catch (ExecutionException e) {
+        assertSame(failure, e.getCause());
+      }
+    }
+
+    assertEquals(1, executions.get());
+    assertEquals(0, coalescer.getInFlightCount());
+  }
+
+  /**
+   * Starts the callers and releases the request once all of them are waiting on the same key.
+   */
+  private List<Future<String>> executeConcurrently(final RequestCoalescer.Request<String> request,
+      CountDownLatch release) throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+    List<Future<String>> results = new ArrayList<>();
+
+    try {
+      for (int i = 0; i < CALLERS; i++) {
+        results.add(executor.submit(new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            return coalescer.execute("key", request);
+          }
+        }));
+      }
+
+      // Wait until the first caller is running the request, then give the others time to join it
+      while (coalescer.getInFlightCount() == 0) {
+        TimeUnit.MILLISECONDS.sleep(10);
+      }
+
+      TimeUnit.MILLISECONDS.sleep(200);
+      release.countDown();
+
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return results;
+  }
+
+  private void awaitRelease(CountDownLatch release) {
+    try {
+      release.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
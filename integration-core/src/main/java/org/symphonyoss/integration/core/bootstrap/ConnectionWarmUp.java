@@ -0,0 +1,206 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.bootstrap;
+
+import static org.symphonyoss.integration.logging.DistributedTracingUtils.TRACE_ID;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.agent.api.client.AgentEndpoint;
+import org.symphonyoss.integration.agent.api.client.AgentEndpointBalancer;
+import org.symphonyoss.integration.authentication.AuthenticationProxy;
+import org.symphonyoss.integration.core.runnable.IntegrationAbstractRunnable;
+import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Response;
+
+/**
+ * Opens pooled connections to the Agent and POD for an integration user before the integration
+ * starts to receive requests, so the first requests don't pay the DNS, TCP and TLS handshake
+ * costs.
+ *
+ * The warm-up sends concurrent HEAD requests to the base URLs, as each concurrent request opens
+ * its own connection. Every Agent endpoint known by the {@link AgentEndpointBalancer} is warmed
+ * up. The response status is irrelevant, and failures are only logged.
+ */
+@Component
+public class ConnectionWarmUp {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionWarmUp.class);
+
+  public static final String ENABLED_KEY = "bootstrap.warmup.enabled";
+
+  public static final String CONNECTIONS_KEY = "bootstrap.warmup.connections";
+
+  public static final String TIMEOUT_KEY = "bootstrap.warmup.timeout.ms";
+
+  public static final Integer DEFAULT_CONNECTIONS = 2;
+
+  public static final Long DEFAULT_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private IntegrationProperties properties;
+
+  @Autowired
+  private AuthenticationProxy authenticationProxy;
+
+  @Autowired
+  private AgentEndpointBalancer agentBalancer;
+
+  private boolean enabled;
+
+  private int connections;
+
+  private long timeout;
+
+  private ExecutorService executor;
+
+  @PostConstruct
+  public void init() {
+    this.enabled = environment.getProperty(ENABLED_KEY, Boolean.class, Boolean.FALSE);
+
+    if (enabled) {
+      this.connections = environment.getProperty(CONNECTIONS_KEY, Integer.class, DEFAULT_CONNECTIONS);
+      this.timeout = environment.getProperty(TIMEOUT_KEY, Long.class, DEFAULT_TIMEOUT);
+
+      // one thread per connection to open, released once the warm-up is done
+      int poolSize = Math.max(1, getUrls().size() * connections);
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>());
+      pool.allowCoreThreadTimeOut(true);
+
+      this.executor = pool;
+    }
+  }
+
+  @PreDestroy
+  public void destroy() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns true if the warm-up is enabled or false otherwise.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Opens the configured number of connections from the user HTTP client to the Agent and POD.
+   * Waits until the connections are opened or the warm-up timeout expires.
+   * @param integrationUser Integration user
+   */
+  public void warmUp(String integrationUser) {
+    if (!enabled) {
+      return;
+    }
+
+    Set<String> urls = getUrls();
+
+    Client client;
+
+    try {
+      client = authenticationProxy.httpClientForUser(integrationUser);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Skipping the connection warm-up for {}. Cause: {}", integrationUser, e.getMessage());
+      return;
+    }
+
+    CountDownLatch done = new CountDownLatch(urls.size() * connections);
+
+    long start = System.currentTimeMillis();
+
+    for (String url : urls) {
+      for (int i = 0; i < connections; i++) {
+        submitRequest(client, url, done);
+      }
+    }
+
+    try {
+      if (done.await(timeout, TimeUnit.MILLISECONDS)) {
+        LOGGER.info("Connections warmed up for {} in {} ms", integrationUser,
+            System.currentTimeMillis() - start);
+      } else {
+        LOGGER.warn("Connection warm-up for {} didn't finish in {} ms", integrationUser, timeout);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns the Agent endpoints known by the balancer, the Agent URL from the YAML file and the POD
+   * URL, without duplicates.
+   */
+  private Set<String> getUrls() {
+    Set<String> urls = new LinkedHashSet<>();
+
+    for (AgentEndpoint endpoint : agentBalancer.getEndpoints()) {
+      addUrl(urls, endpoint.getUrl());
+    }
+
+    addUrl(urls, StringUtils.removeEnd(properties.getAgentUrl(), "/"));
+    addUrl(urls, properties.getPodUrl());
+
+    return urls;
+  }
+
+  private void addUrl(Set<String> urls, String url) {
+    if (StringUtils.isNotEmpty(url)) {
+      urls.add(url);
+    }
+  }
+
+  private void submitRequest(final Client client, final String url, final CountDownLatch done) {
+    executor.submit(new IntegrationAbstractRunnable(MDC.get(TRACE_ID)) {
+      @Override
+      protected void execute() {
+        try {
+          Response response = client.target(url).request().head();
+          response.close();
+        } catch (ProcessingException e) {
+          LOGGER.warn("Fail to warm up the connection to {}. Cause: {}", url, e.getMessage());
+        } finally {
+          done.countDown();
+        }
+      }
+    });
+  }
+
+}
@@ -29,6 +29,7 @@ import org.symphonyoss.integration.Integration;
 import org.symphonyoss.integration.authentication.AuthenticationProxy;
 import org.symphonyoss.integration.core.NullIntegration;
 import org.symphonyoss.integration.core.runnable.IntegrationAbstractRunnable;
+import org.symphonyoss.integration.core.whitelist.WhiteListRegistry;
 import org.symphonyoss.integration.exception.IntegrationRuntimeException;
 import org.symphonyoss.integration.exception.authentication.ConnectivityException;
 import org.symphonyoss.integration.exception.bootstrap.RetryLifecycleException;
@@ -97,6 +98,12 @@ public class IntegrationBootstrapContext implements IntegrationBootstrap {
   @Autowired
   private ApplicationsHealthIndicator applicationsHealthIndicator;
 
+  @Autowired
+  private ConnectionWarmUp connectionWarmUp;
+
+  @Autowired
+  private WhiteListRegistry whiteListRegistry;
+
   @Override
   public void startup() {
     DistributedTracingUtils.setMDC();
@@ -224,6 +231,11 @@ public class IntegrationBootstrapContext implements IntegrationBootstrap {
     try {
       integration.onCreate(integrationUser);
 
+      // The integration is only made available once its connections are warmed up
+      connectionWarmUp.warmUp(integrationUser);
+
+      whiteListRegistry.register(integrationUser, integration);
+
       IntegrationSettings settings = integration.getSettings();
       this.integrations.put(settings.getConfigurationId(), integration);
 
@@ -268,6 +280,12 @@ public class IntegrationBootstrapContext implements IntegrationBootstrap {
 
     if (integration != null) {
       this.integrations.remove(id);
+
+      IntegrationSettings settings = integration.getSettings();
+
+      if (settings != null) {
+        whiteListRegistry.remove(settings.getType());
+      }
     }
   }
 
@@ -16,6 +16,8 @@
 
 package org.symphonyoss.integration.core.bridge;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +25,8 @@ import org.springframework.stereotype.Component;
 import org.symphonyoss.integration.Integration;
 import org.symphonyoss.integration.authentication.AuthenticationProxy;
 import org.symphonyoss.integration.core.bootstrap.IntegrationBootstrapContext;
+import org.symphonyoss.integration.core.exception.MessagePostInterruptedException;
+import org.symphonyoss.integration.core.outbox.MessageOutbox;
 import org.symphonyoss.integration.exception.RemoteApiException;
 import org.symphonyoss.integration.exception.authentication.ConnectivityException;
 import org.symphonyoss.integration.model.config.IntegrationInstance;
@@ -32,6 +36,13 @@ import org.symphonyoss.integration.service.StreamService;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ws.rs.ProcessingException;
 
@@ -52,6 +63,12 @@ public class IntegrationBridgeImpl implements IntegrationBridge {
   @Autowired
   private IntegrationBridgeExceptionHandler exceptionHandler;
 
+  @Autowired
+  private OutboundMessageExecutor outboundExecutor;
+
+  @Autowired
+  private MessageOutbox outbox;
+
   @Override
   public List<Message> sendMessage(IntegrationInstance instance, String integrationUser, String message) {
     List<Message> result = new ArrayList<>();
@@ -68,12 +85,198 @@ public class IntegrationBridgeImpl implements IntegrationBridge {
   @Override
   public List<Message> sendMessage(IntegrationInstance instance, String integrationUser,
       List<String> streams, String message) {
+    int parallelism = outboundExecutor.getParallelism();
+
+    if (streams.size() > 1 && parallelism > 1) {
+      return sendMessageInParallel(instance, integrationUser, streams, message, parallelism);
+    }
+
+    return sendMessageSequentially(instance, integrationUser, streams, message);
+  }
+
+  /**
+   * Asynchronous version of {@link #sendMessage(IntegrationInstance, String, String)}. The message
+   * is posted on the outbound pool, so the caller thread isn't blocked during the Agent
+   * round-trip.
+   * @param instance Integration instance
+   * @param integrationUser Integration user
+   * @param message Message to be posted
+   * @return Future that completes with the messages posted, in stream order
+   */
+  public ListenableFuture<List<Message>> sendMessageAsync(IntegrationInstance instance,
+      String integrationUser, String message) {
+    List<String> streams = streamService.getStreams(instance);
+
+    if (streams.isEmpty()) {
+      LOGGER.info("No streams configured to instance {}", instance.getInstanceId());
+
+      SettableFuture<List<Message>> result = SettableFuture.create();
+      result.set(new ArrayList<Message>());
+      return result;
+    }
+
+    return sendMessageAsync(instance, integrationUser, streams, message);
+  }
+
+  /**
+   * Asynchronous version of {@link #sendMessage(IntegrationInstance, String, List, String)}.
+   *
+   * At most "parallelism" streams are posted at the same time: the same number of workers is
+   * started on the outbound pool and each one posts the next stream not posted yet.
+   *
+   * The error handling is the same as the synchronous flow: {@link RemoteApiException} is handled
+   * per stream and the returned future fails with {@link ConnectivityException} or
+   * {@link ProcessingException}. The streams not posted yet are skipped after one of those
+   * failures.
+   *
+   * The posts never run on the caller thread. If the outbound pool is saturated and no worker can
+   * be started, the returned future fails with {@link RejectedExecutionException}.
+   * @param instance Integration instance
+   * @param integrationUser Integration user
+   * @param streams Streams to post the message
+   * @param message Message to be posted
+   * @return Future that completes with the messages posted, in stream order
+   */
+  public ListenableFuture<List<Message>> sendMessageAsync(IntegrationInstance instance,
+      String integrationUser, List<String> streams, String message) {
+    int workers = Math.max(1, Math.min(outboundExecutor.getParallelism(), streams.size()));
+    AsyncFanOut fanOut = new AsyncFanOut(instance, integrationUser, streams, message, workers);
+
+    for (int i = 0; i < workers; i++) {
+      if (!outboundExecutor.tryExecute(fanOut)) {
+        fanOut.workerFinished();
+      }
+    }
+
+    return fanOut.result;
+  }
+
+  /**
+   * Posts the message to the streams on behalf of the asynchronous flow. Each worker takes the next
+   * stream not posted yet, and the last worker to finish collects the results.
+   */
+  private final class AsyncFanOut implements Runnable {
+
+    private final IntegrationInstance instance;
+
+    private final String integrationUser;
+
+    private final List<String> streams;
+
+    private final String message;
+
+    private final SettableFuture<List<Message>> result = SettableFuture.create();
+
+    private final AtomicInteger nextStream = new AtomicInteger();
+
+    private final AtomicInteger pendingWorkers;
+
+    private final AtomicBoolean aborted = new AtomicBoolean(false);
+
+    /**
+     * Outcome of each post. They are published to the last worker through pendingWorkers.
+     */
+    private final Message[] messages;
+
+    private final Throwable[] failures;
+
+    private AsyncFanOut(IntegrationInstance instance, String integrationUser, List<String> streams,
+        String message, int workers) {
+      this.instance = instance;
+      this.integrationUser = integrationUser;
+      this.streams = streams;
+      this.message = message;
+      this.pendingWorkers = new AtomicInteger(workers);
+      this.messages = new Message[streams.size()];
+      this.failures = new Throwable[streams.size()];
+    }
+
+    @Override
+    public void run() {
+      try {
+        int index;
+
+        while ((index = nextStream.getAndIncrement()) < streams.size()) {
+          if (!aborted.get()) {
+            post(index);
+          }
+        }
+      } finally {
+        workerFinished();
+      }
+    }
+
+    private void post(int index) {
+      try {
+        messages[index] = postOrStore(integrationUser, streams.get(index), message);
+      } catch (ConnectivityException | ProcessingException e) {
+        aborted.set(true);
+        failures[index] = e;
+      } catch (Exception | Error e) {
+        failures[index] = e;
+      }
+    }
+
+    /**
+     * Completes the result once all the workers have finished or have been rejected.
+     */
+    private void workerFinished() {
+      if (pendingWorkers.decrementAndGet() > 0) {
+        return;
+      }
+
+      if (nextStream.get() == 0) {
+        result.setException(new RejectedExecutionException(
+            "Outbound pool is saturated. Message not posted for the instance "
+                + instance.getInstanceId()));
+        return;
+      }
+
+      try {
+        result.set(collectResults());
+      } catch (RuntimeException | Error e) {
+        result.setException(e);
+      }
+    }
+
+    /**
+     * Collects the results in stream order. Posts stored on the outbox or skipped after an aborted
+     * fan-out have no message and are ignored.
+     */
+    private List<Message> collectResults() {
+      List<Message> posted = new ArrayList<>();
+
+      for (int i = 0; i < streams.size(); i++) {
+        if (failures[i] != null) {
+          handlePostFailure(failures[i], instance, integrationUser, message, streams.get(i));
+        } else if (messages[i] != null) {
+          posted.add(messages[i]);
+        }
+      }
+
+      return posted;
+    }
+  }
+
+  /**
+   * Posts the message to each stream, one after another.
+   * @param instance Integration instance
+   * @param integrationUser Integration user
+   * @param streams Streams to post the message
+   * @param message Message to be posted
+   * @return Messages posted, in stream order
+   */
+  private List<Message> sendMessageSequentially(IntegrationInstance instance,
+      String integrationUser, List<String> streams, String message) {
     List<Message> result = new ArrayList<>();
 
     for (String stream : streams) {
       try {
-        Message messageResponse = postMessageWithRetry(integrationUser, stream, message);
-        result.add(messageResponse);
+        Message messageResponse = postOrStore(integrationUser, stream, message);
+
+        if (messageResponse != null) {
+          result.add(messageResponse);
+        }
       } catch (RemoteApiException e) {
         exceptionHandler.handleRemoteApiException(e, instance, integrationUser, message, stream);
       } catch (ConnectivityException e) {
@@ -89,7 +292,165 @@ public class IntegrationBridgeImpl implements IntegrationBridge {
   }
 
   /**
-   * Sends a message to a specific stream using {@link AuthenticationProxy}.
+   * Posts the message to all the streams concurrently using the outbound pool. At most
+   * "parallelism" streams are posted at the same time.
+   *
+   * The error handling is the same as the sequential flow: {@link RemoteApiException} is handled
+   * per stream, while {@link ConnectivityException} and {@link ProcessingException} abort the
+   * whole fan-out. If the caller is interrupted, the pending posts are cancelled and
+   * {@link MessagePostInterruptedException} is thrown, as some streams may not have received the
+   * message. If the pool is shut down, the remaining streams are posted on the caller thread.
+   * @param instance Integration instance
+   * @param integrationUser Integration user
+   * @param streams Streams to post the message
+   * @param message Message to be posted
+   * @param parallelism Maximum number of concurrent posts
+   * @return Messages posted, in stream order
+   */
+  private List<Message> sendMessageInParallel(IntegrationInstance instance,
+      final String integrationUser, List<String> streams, final String message, int parallelism) {
+    final Semaphore permits = new Semaphore(parallelism);
+    final AtomicBoolean aborted = new AtomicBoolean(false);
+
+    List<Future<Message>> futures = new ArrayList<>(streams.size());
+    boolean rejected = false;
+
+    try {
+      for (final String stream : streams) {
+        permits.acquire();
+
+        if (aborted.get()) {
+          permits.release();
+          break;
+        }
+
+        Callable<Message> post = new Callable<Message>() {
+          @Override
+          public Message call() throws Exception {
+            try {
+              return postOrStore(integrationUser, stream, message);
+            } catch (ConnectivityException | ProcessingException e) {
+              aborted.set(true);
+              throw e;
+            } finally {
+              permits.release();
+            }
+          }
+        };
+
+        try {
+          futures.add(outboundExecutor.submit(post));
+        } catch (RejectedExecutionException e) {
+          permits.release();
+          rejected = true;
+          break;
+        }
+      }
+
+      List<Message> result = collectResults(instance, integrationUser, streams, message, futures);
+
+      if (rejected) {
+        LOGGER.warn("Outbound pool rejected the posts for the instance {}. Posting the remaining "
+            + "streams on the caller thread", instance.getInstanceId());
+
+        List<String> remaining = streams.subList(futures.size(), streams.size());
+        result.addAll(sendMessageSequentially(instance, integrationUser, remaining, message));
+      }
+
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      cancel(futures);
+      throw new MessagePostInterruptedException(
+          "Interrupted while posting messages for the instance " + instance.getInstanceId(), e);
+    }
+  }
+
+  /**
+   * Waits for the posts submitted to the outbound pool and collects the results in stream order.
+   */
+  private List<Message> collectResults(IntegrationInstance instance, String integrationUser,
+      List<String> streams, String message, List<Future<Message>> futures)
+      throws InterruptedException {
+    List<Message> result = new ArrayList<>();
+
+    for (int i = 0; i < futures.size(); i++) {
+      String stream = streams.get(i);
+
+      try {
+        Message messageResponse = futures.get(i).get();
+
+        if (messageResponse != null) {
+          result.add(messageResponse);
+        }
+      } catch (ExecutionException e) {
+        try {
+          handlePostFailure(e.getCause(), instance, integrationUser, message, stream);
+        } catch (RuntimeException | Error fatal) {
+          cancel(futures);
+          throw fatal;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Handles the failure to post the message to a stream in the same way as the sequential flow.
+   * {@link ConnectivityException}, {@link ProcessingException} and errors are rethrown.
+   */
+  private void handlePostFailure(Throwable cause, IntegrationInstance instance,
+      String integrationUser, String message, String stream) {
+    if (cause instanceof RemoteApiException) {
+      exceptionHandler.handleRemoteApiException((RemoteApiException) cause, instance,
+          integrationUser, message, stream);
+    } else if (cause instanceof ConnectivityException || cause instanceof ProcessingException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    } else {
+      exceptionHandler.handleUnexpectedException((Exception) cause);
+    }
+  }
+
+  private void cancel(List<Future<Message>> futures) {
+    for (Future<Message> future : futures) {
+      future.cancel(true);
+    }
+  }
+
+  /**
+   * Posts the message to the stream or stores it on the {@link MessageOutbox} if the outbox is
+   * enabled and the Agent is unreachable. The message is also stored if the stream has messages
+   * waiting on the outbox, otherwise it would be posted ahead of them.
+   * @param integrationUser Integration user
+   * @param stream Stream identifier
+   * @param message Message to be posted
+   * @return Message posted or null if the message was stored on the outbox
+   */
+  private Message postOrStore(String integrationUser, String stream, String message)
+      throws RemoteApiException {
+    if (outbox.isEnabled() && outbox.hasPending(stream)
+        && outbox.append(integrationUser, stream, message)) {
+      return null;
+    }
+
+    try {
+      return postMessageWithRetry(integrationUser, stream, message);
+    } catch (ConnectivityException | ProcessingException e) {
+      if (outbox.isEnabled() && outbox.append(integrationUser, stream, message)) {
+        LOGGER.warn("Agent unreachable. Message to the stream {} stored on the outbox", stream);
+        return null;
+      }
+
+      throw e;
+    }
+  }
+
+  /**
+   * Sends a message to a specific stream using {@link AuthenticationProxy}. The transient failures
+   * are retried by the {@link StreamService} through the {@link MessageRetryEngine}.
    * @param integrationUser the user of integration
    * @param stream the stream identifier.
    * @param message the actual message. It's expected to be already on proper format.
@@ -0,0 +1,230 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.bridge;
+
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.exception.RemoteApiException;
+import org.symphonyoss.integration.exception.authentication.ConnectivityException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Retries the calls to the Agent that failed due to transient errors.
+ *
+ * Only the HTTP status codes 429, 502, 503 and 504 and the connectivity failures are retried. The
+ * delay between the attempts grows exponentially and uses full jitter to spread the retries of
+ * concurrent callers. Each integration has its own {@link RetryBudget}, so the retries can't
+ * exceed a share of the integration traffic.
+ */
+@Component
+public class MessageRetryEngine {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MessageRetryEngine.class);
+
+  public static final String MAX_ATTEMPTS_KEY = "bridge.retry.max.attempts";
+
+  public static final String INITIAL_BACKOFF_KEY = "bridge.retry.initial.backoff.ms";
+
+  public static final String MAX_BACKOFF_KEY = "bridge.retry.max.backoff.ms";
+
+  public static final String BUDGET_RATIO_KEY = "bridge.retry.budget.ratio";
+
+  public static final String BUDGET_MAX_TOKENS_KEY = "bridge.retry.budget.max.tokens";
+
+  public static final Integer DEFAULT_MAX_ATTEMPTS = 3;
+
+  public static final Long DEFAULT_INITIAL_BACKOFF = 200L;
+
+  public static final Long DEFAULT_MAX_BACKOFF = 5000L;
+
+  public static final Double DEFAULT_BUDGET_RATIO = 0.1;
+
+  public static final Double DEFAULT_BUDGET_MAX_TOKENS = 10.0;
+
+  private static final String MESSAGE_RETRY = "messageRetry";
+
+  private static final String RETRIES = "retries";
+
+  private static final String BUDGET_EXHAUSTED = "budgetExhausted";
+
+  private static final String BACKOFF = "backoff";
+
+  private static final int TOO_MANY_REQUESTS = 429;
+
+  private static final int BAD_GATEWAY = 502;
+
+  private static final int SERVICE_UNAVAILABLE = 503;
+
+  private static final int GATEWAY_TIMEOUT = 504;
+
+  /**
+   * Call to be executed by the retry engine.
+   * @param <T> Result type
+   */
+  public interface RetryableCall<T> {
+
+    T call() throws RemoteApiException;
+
+  }
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private MetricRegistry metricsRegistry;
+
+  private int maxAttempts;
+
+  private long initialBackoff;
+
+  private long maxBackoff;
+
+  private double budgetRatio;
+
+  private double budgetMaxTokens;
+
+  /**
+   * Retry budget per integration
+   */
+  private ConcurrentMap<String, RetryBudget> budgets = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  public void init() {
+    this.maxAttempts = environment.getProperty(MAX_ATTEMPTS_KEY, Integer.class, DEFAULT_MAX_ATTEMPTS);
+    this.initialBackoff = environment.getProperty(INITIAL_BACKOFF_KEY, Long.class, DEFAULT_INITIAL_BACKOFF);
+    this.maxBackoff = environment.getProperty(MAX_BACKOFF_KEY, Long.class, DEFAULT_MAX_BACKOFF);
+    this.budgetRatio = environment.getProperty(BUDGET_RATIO_KEY, Double.class, DEFAULT_BUDGET_RATIO);
+    this.budgetMaxTokens =
+        environment.getProperty(BUDGET_MAX_TOKENS_KEY, Double.class, DEFAULT_BUDGET_MAX_TOKENS);
+  }
+
+  /**
+   * Executes the call retrying the transient failures while there are attempts left and the
+   * integration retry budget allows it.
+   * @param integrationUser Integration user
+   * @param call Call to be executed
+   * @return Call result
+   * @throws RemoteApiException Last failure reported by the call
+   */
+  public <T> T execute(String integrationUser, RetryableCall<T> call) throws RemoteApiException {
+    RetryBudget budget = getBudget(integrationUser);
+    budget.onRequest();
+
+    int attempt = 1;
+
+    while (true) {
+      try {
+        return call.call();
+      } catch (RemoteApiException e) {
+        if (!isRetryable(e.getCode()) || !canRetry(integrationUser, budget, attempt)) {
+          throw e;
+        }
+
+        LOGGER.warn("Fail to post message. HTTP status: {}. Attempt {} of {}", e.getCode(), attempt,
+            maxAttempts);
+        backoff(integrationUser, attempt, e);
+      } catch (ConnectivityException | ProcessingException e) {
+        if (!canRetry(integrationUser, budget, attempt)) {
+          throw e;
+        }
+
+        LOGGER.warn("Fail to reach the Agent. Attempt {} of {}", attempt, maxAttempts);
+        backoff(integrationUser, attempt, e);
+      }
+
+      attempt++;
+    }
+  }
+
+  private boolean isRetryable(int code) {
+    return code == TOO_MANY_REQUESTS || code == BAD_GATEWAY || code == SERVICE_UNAVAILABLE
+        || code == GATEWAY_TIMEOUT;
+  }
+
+  private boolean canRetry(String integrationUser, RetryBudget budget, int attempt) {
+    if (attempt >= maxAttempts) {
+      return false;
+    }
+
+    if (!budget.tryAcquireRetry()) {
+      metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, integrationUser, MESSAGE_RETRY,
+          BUDGET_EXHAUSTED)).mark();
+      LOGGER.warn("Retry budget exhausted for the integration {}", integrationUser);
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Waits before the next attempt. The delay is a random value between zero and the exponential
+   * backoff for the current attempt (full jitter).
+   */
+  private <E extends Exception> void backoff(String integrationUser, int attempt, E cause)
+      throws E {
+    metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, integrationUser, MESSAGE_RETRY,
+        RETRIES)).mark();
+
+    long delay = computeDelay(attempt);
+
+    metricsRegistry.timer(MetricRegistry.name(BASE_METRIC_NAME, integrationUser, MESSAGE_RETRY,
+        BACKOFF)).update(delay, TimeUnit.MILLISECONDS);
+
+    try {
+      TimeUnit.MILLISECONDS.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw cause;
+    }
+  }
+
+  private long computeDelay(int attempt) {
+    long exponential = initialBackoff << Math.min(attempt - 1, 30);
+    long cap = Math.min(maxBackoff, exponential);
+
+    if (cap <= 0) {
+      return 0;
+    }
+
+    return ThreadLocalRandom.current().nextLong(cap + 1);
+  }
+
+  private RetryBudget getBudget(String integrationUser) {
+    RetryBudget budget = budgets.get(integrationUser);
+
+    if (budget == null) {
+      budgets.putIfAbsent(integrationUser, new RetryBudget(budgetRatio, budgetMaxTokens));
+      budget = budgets.get(integrationUser);
+    }
+
+    return budget;
+  }
+
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.bridge;
+
+import static org.symphonyoss.integration.logging.DistributedTracingUtils.TRACE_ID;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.logging.DistributedTracingUtils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Bounded thread pool used to post messages to the Agent.
+ *
+ * When the pool and its queue are saturated the tasks submitted through {@link #submit(Callable)}
+ * run on the caller thread, so the callers are slowed down instead of having their messages
+ * discarded. The asynchronous tasks are rejected instead, as running them on the caller thread
+ * would block the callers that asked not to be blocked.
+ *
+ * After the pool is shut down every task is rejected with {@link RejectedExecutionException}.
+ */
+@Component
+public class OutboundMessageExecutor {
+
+  public static final String POOL_SIZE_KEY = "bridge.outbound.pool.size";
+
+  public static final String QUEUE_CAPACITY_KEY = "bridge.outbound.queue.capacity";
+
+  public static final String PARALLELISM_KEY = "bridge.outbound.parallelism";
+
+  public static final Integer DEFAULT_POOL_SIZE = 20;
+
+  public static final Integer DEFAULT_QUEUE_CAPACITY = 500;
+
+  public static final Integer DEFAULT_PARALLELISM = 4;
+
+  @Autowired
+  private Environment environment;
+
+  /**
+   * Maximum number of streams posted concurrently by a single call
+   */
+  private int parallelism;
+
+  private ThreadPoolExecutor executor;
+
+  @PostConstruct
+  public void init() {
+    int poolSize = environment.getProperty(POOL_SIZE_KEY, Integer.class, DEFAULT_POOL_SIZE);
+    int capacity = environment.getProperty(QUEUE_CAPACITY_KEY, Integer.class, DEFAULT_QUEUE_CAPACITY);
+
+    this.parallelism = environment.getProperty(PARALLELISM_KEY, Integer.class, DEFAULT_PARALLELISM);
+    this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(capacity),
+        new ThreadFactoryBuilder().setNameFormat("outbound-message-%d").setDaemon(true).build(),
+        new SaturationPolicy());
+  }
+
+  @PreDestroy
+  public void destroy() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Returns the maximum number of streams that a single call should post concurrently.
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Submits a task to the outbound pool keeping the caller trace ID.
+   * @param task Task to be executed
+   * @return Future representing the pending result of the task
+   * @throws RejectedExecutionException if the pool is shut down
+   */
+  public <T> Future<T> submit(final Callable<T> task) {
+    final String parentTraceId = MDC.get(TRACE_ID);
+
+    return executor.submit(new Callable<T>() {
+      @Override
+      public T call() throws Exception {
+        String currentTraceId = MDC.get(TRACE_ID);
+        DistributedTracingUtils.setMDC(parentTraceId);
+
+        try {
+          return task.call();
+        } finally {
+          restoreTraceId(currentTraceId);
+        }
+      }
+    });
+  }
+
+  /**
+   * Submits a task to the outbound pool keeping the caller trace ID. The task never runs on the
+   * caller thread.
+   * @param task Task to be executed
+   * @return Future representing the pending result of the task. It fails with
+   * {@link RejectedExecutionException} if the pool is saturated.
+   */
+  public <T> ListenableFuture<T> submitAsync(Callable<T> task) {
+    ListenableFutureTask<T> future = ListenableFutureTask.create(task);
+
+    if (tryExecute(future)) {
+      return future;
+    }
+
+    return Futures.<T>immediateFailedFuture(
+        new RejectedExecutionException("Outbound pool is saturated"));
+  }
+
+  /**
+   * Executes a task on the outbound pool keeping the caller trace ID. The task never runs on the
+   * caller thread.
+   * @param task Task to be executed
+   * @return true if the task was accepted or false if the pool is saturated
+   */
+  public boolean tryExecute(Runnable task) {
+    try {
+      executor.execute(new AsyncTask(task, MDC.get(TRACE_ID)));
+      return true;
+    } catch (RejectedExecutionException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Restores the trace ID of the thread that ran the task. This is required when the task runs
+   * on the caller thread because the pool is saturated.
+   */
+  private void restoreTraceId(String traceId) {
+    if (traceId == null) {
+      MDC.remove(TRACE_ID);
+    } else {
+      MDC.put(TRACE_ID, traceId);
+    }
+  }
+
+  /**
+   * Asynchronous task that must be rejected, instead of running on the caller thread, when the
+   * pool is saturated.
+   */
+  private final class AsyncTask implements Runnable {
+
+    private final Runnable task;
+
+    private final String parentTraceId;
+
+    private AsyncTask(Runnable task, String parentTraceId) {
+      this.task = task;
+      this.parentTraceId = parentTraceId;
+    }
+
+    @Override
+    public void run() {
+      String currentTraceId = MDC.get(TRACE_ID);
+      DistributedTracingUtils.setMDC(parentTraceId);
+
+      try {
+        task.run();
+      } finally {
+        restoreTraceId(currentTraceId);
+      }
+    }
+  }
+
+  /**
+   * Runs the synchronous tasks on the caller thread and rejects the asynchronous ones when the pool
+   * is saturated. Every task is rejected once the pool is shut down, as the caller runs policy
+   * would silently discard it.
+   */
+  private static final class SaturationPolicy implements RejectedExecutionHandler {
+
+    private final RejectedExecutionHandler callerRuns = new ThreadPoolExecutor.CallerRunsPolicy();
+
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+      if (executor.isShutdown()) {
+        throw new RejectedExecutionException("Outbound pool is shut down");
+      }
+
+      if (task instanceof AsyncTask) {
+        throw new RejectedExecutionException("Outbound pool is saturated");
+      }
+
+      callerRuns.rejectedExecution(task, executor);
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.bridge;
+
+/**
+ * Token bucket that limits the share of the outbound traffic that can be retries.
+ *
+ * Each request deposits a fraction of a token (the budget ratio) and each retry withdraws one
+ * token. The bucket is capped, so an idle period allows at most a small burst of retries. When the
+ * bucket is empty the retries are denied, which prevents the retries from amplifying an outage.
+ */
+public class RetryBudget {
+
+  private final double ratio;
+
+  private final double maxTokens;
+
+  private double tokens;
+
+  /**
+   * @param ratio Fraction of a token deposited for each request
+   * @param maxTokens Maximum number of retries that can be accumulated
+   */
+  public RetryBudget(double ratio, double maxTokens) {
+    this.ratio = ratio;
+    this.maxTokens = maxTokens;
+    this.tokens = maxTokens;
+  }
+
+  /**
+   * Deposits the share of tokens related to a new request.
+   */
+  public synchronized void onRequest() {
+    tokens = Math.min(maxTokens, tokens + ratio);
+  }
+
+  /**
+   * Withdraws one token from the bucket.
+   * @return true if the retry is allowed or false if the budget is exhausted
+   */
+  public synchronized boolean tryAcquireRetry() {
+    if (tokens < 1) {
+      return false;
+    }
+
+    tokens -= 1;
+    return true;
+  }
+
+}
@@ -16,14 +16,19 @@
 
 package org.symphonyoss.integration.core.bridge;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Component;
 import org.symphonyoss.integration.agent.api.client.AgentApiClient;
 import org.symphonyoss.integration.agent.api.client.MessageApiClient;
 import org.symphonyoss.integration.authentication.AuthenticationProxy;
 import org.symphonyoss.integration.authentication.AuthenticationToken;
+import org.symphonyoss.integration.config.event.IntegrationInstanceUpdatedEvent;
 import org.symphonyoss.integration.exception.RemoteApiException;
 import org.symphonyoss.integration.model.config.IntegrationInstance;
 import org.symphonyoss.integration.model.message.Message;
@@ -38,6 +43,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
 
 import javax.annotation.PostConstruct;
 
@@ -45,10 +52,16 @@ import javax.annotation.PostConstruct;
  * Created by rsanchez on 13/05/16.
  */
 @Component
-public class StreamServiceImpl implements StreamService {
+public class StreamServiceImpl implements StreamService,
+    ApplicationListener<IntegrationInstanceUpdatedEvent> {
 
   private static final Logger LOG = LoggerFactory.getLogger(StreamServiceImpl.class);
 
+  /**
+   * Maximum number of instances whose stream settings are kept in memory
+   */
+  private static final int MAX_CACHED_INSTANCES = 1000;
+
   @Autowired
   private AuthenticationProxy authenticationProxy;
 
@@ -58,6 +71,12 @@ public class StreamServiceImpl implements StreamService {
   @Autowired
   private PodHttpApiClient podApiClient;
 
+  @Autowired
+  private OutboundMessageExecutor outboundExecutor;
+
+  @Autowired
+  private MessageRetryEngine retryEngine;
+
   /**
    * Agent Message API Client
    */
@@ -68,6 +87,12 @@ public class StreamServiceImpl implements StreamService {
    */
   private StreamApiClient streamsApi;
 
+  /**
+   * Stream settings parsed from the instance optional properties, indexed by instance ID
+   */
+  private final Cache<String, StreamSettings> streamSettingsCache =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_INSTANCES).build();
+
   /**
    * Initialize
    */
@@ -79,7 +104,12 @@ public class StreamServiceImpl implements StreamService {
 
   @Override
   public List<String> getStreams(IntegrationInstance instance) {
-    return getStreams(instance.getOptionalProperties());
+    if (instance.getInstanceId() == null) {
+      return getStreams(instance.getOptionalProperties());
+    }
+
+    // callers are allowed to change the returned list
+    return new ArrayList<>(getStreamSettings(instance).getStreams());
   }
 
   @Override
@@ -94,6 +124,46 @@ public class StreamServiceImpl implements StreamService {
 
   @Override
   public StreamType getStreamType(IntegrationInstance instance) {
+    if (instance.getInstanceId() == null) {
+      return parseStreamType(instance);
+    }
+
+    return getStreamSettings(instance).getStreamType();
+  }
+
+  /**
+   * Discards the stream settings cached for the instance.
+   * @param instanceId Instance identifier
+   */
+  public void invalidateStreamSettings(String instanceId) {
+    if (instanceId != null) {
+      streamSettingsCache.invalidate(instanceId);
+    }
+  }
+
+  @Override
+  public void onApplicationEvent(IntegrationInstanceUpdatedEvent event) {
+    invalidateStreamSettings(event.getInstanceId());
+  }
+
+  /**
+   * Returns the stream settings of the instance. The optional properties are parsed only if the
+   * instance is not cached or its optional properties have changed.
+   */
+  private StreamSettings getStreamSettings(IntegrationInstance instance) {
+    String optionalProperties = instance.getOptionalProperties();
+    StreamSettings settings = streamSettingsCache.getIfPresent(instance.getInstanceId());
+
+    if (settings == null || !settings.matches(optionalProperties)) {
+      settings = new StreamSettings(optionalProperties, getStreams(optionalProperties),
+          parseStreamType(instance));
+      streamSettingsCache.put(instance.getInstanceId(), settings);
+    }
+
+    return settings;
+  }
+
+  private StreamType parseStreamType(IntegrationInstance instance) {
     try {
       return WebHookConfigurationUtils.getStreamType(instance.getOptionalProperties());
     } catch (IOException e) {
@@ -102,16 +172,54 @@ public class StreamServiceImpl implements StreamService {
     }
   }
 
+  /**
+   * Posts a message to the stream. Transient failures are retried by the
+   * {@link MessageRetryEngine}.
+   */
   @Override
-  public Message postMessage(String integrationUser, String stream, Message messageSubmission)
-      throws RemoteApiException {
+  public Message postMessage(final String integrationUser, final String stream,
+      final Message messageSubmission) throws RemoteApiException {
+    return retryEngine.execute(integrationUser, new MessageRetryEngine.RetryableCall<Message>() {
+      @Override
+      public Message call() throws RemoteApiException {
+        return doPostMessage(integrationUser, stream, messageSubmission);
+      }
+    });
+  }
+
+  private Message doPostMessage(String integrationUser, final String stream,
+      final Message messageSubmission) throws RemoteApiException {
     AuthenticationToken authToken = authenticationProxy.getToken(integrationUser);
 
-    String sessionToken = authToken.getSessionToken();
-    String keyManagerToken = authToken.getKeyManagerToken();
+    final String sessionToken = authToken.getSessionToken();
+    final String keyManagerToken = authToken.getKeyManagerToken();
 
-    // Post Message using Message API
-    return messagesApi.postMessage(sessionToken, keyManagerToken, stream, messageSubmission);
+    // Post Message using Message API, balanced across the Agent endpoints
+    return agentApiClient.invoke(new AgentApiClient.AgentRequest<Message>() {
+      @Override
+      public Message execute() throws RemoteApiException {
+        return messagesApi.postMessage(sessionToken, keyManagerToken, stream, messageSubmission);
+      }
+    });
+  }
+
+  /**
+   * Posts a message to the stream on the outbound pool. The returned future fails with the same
+   * exceptions thrown by {@link #postMessage(String, String, Message)}, or with
+   * {@link java.util.concurrent.RejectedExecutionException} if the outbound pool is saturated.
+   * @param integrationUser Integration user
+   * @param stream Stream identifier
+   * @param messageSubmission Message to be posted
+   * @return Future that completes with the message posted
+   */
+  public ListenableFuture<Message> postMessageAsync(final String integrationUser,
+      final String stream, final Message messageSubmission) {
+    return outboundExecutor.submitAsync(new Callable<Message>() {
+      @Override
+      public Message call() throws RemoteApiException {
+        return postMessage(integrationUser, stream, messageSubmission);
+      }
+    });
   }
 
   @Override
@@ -123,4 +231,44 @@ public class StreamServiceImpl implements StreamService {
     return streamsApi.createIM(authenticationProxy.getSessionToken(integrationUser), userIdList);
   }
 
+  /**
+   * Stream settings parsed from the optional properties of an instance.
+   */
+  private static final class StreamSettings {
+
+    private final int optionalPropertiesHash;
+
+    private final String optionalProperties;
+
+    private final List<String> streams;
+
+    private final StreamType streamType;
+
+    private StreamSettings(String optionalProperties, List<String> streams,
+        StreamType streamType) {
+      this.optionalPropertiesHash = Objects.hashCode(optionalProperties);
+      this.optionalProperties = optionalProperties;
+      this.streams = streams == null ? Collections.<String>emptyList()
+          : Collections.unmodifiableList(new ArrayList<>(streams));
+      this.streamType = streamType;
+    }
+
+    /**
+     * Checks if these settings were parsed from the given optional properties.
+     */
+    private boolean matches(String optionalProperties) {
+      return optionalPropertiesHash == Objects.hashCode(optionalProperties)
+          && Objects.equals(this.optionalProperties, optionalProperties);
+    }
+
+    private List<String> getStreams() {
+      return streams;
+    }
+
+    private StreamType getStreamType() {
+      return streamType;
+    }
+
+  }
+
 }
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.circuit;
+
+/**
+ * Circuit breaker that protects the calls from an integration to a single downstream service.
+ *
+ * While CLOSED, the outcome of the last calls is kept in a count-based sliding window. Once the
+ * window holds the minimum number of calls and the failure rate reaches the threshold, the circuit
+ * moves to OPEN and rejects every call. After the open timeout, the circuit moves to HALF_OPEN and
+ * lets a limited number of probe calls through: a single failed probe opens the circuit again,
+ * while enough successful probes close it.
+ *
+ * Reading the state is lock-free, so a closed circuit doesn't add contention to the request path.
+ */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  /**
+   * Listener notified when the circuit changes its state
+   */
+  public interface StateListener {
+
+    void onStateChange(CircuitBreaker circuitBreaker, State from, State to);
+
+  }
+
+  private final String name;
+
+  private final int minimumCalls;
+
+  private final int failureRateThreshold;
+
+  private final long openTimeout;
+
+  private final int halfOpenProbes;
+
+  private final StateListener listener;
+
+  /**
+   * Outcome of the last calls, true for the failed ones
+   */
+  private final boolean[] window;
+
+  private int windowIndex;
+
+  private int windowCalls;
+
+  private int windowFailures;
+
+  private volatile State state = State.CLOSED;
+
+  private long openedAt;
+
+  private int probesAcquired;
+
+  private int probesSucceeded;
+
+  /**
+   * @param name Circuit breaker name
+   * @param windowSize Number of calls kept on the sliding window
+   * @param minimumCalls Minimum number of calls before the failure rate is evaluated
+   * @param failureRateThreshold Failure rate, in percent, that opens the circuit
+   * @param openTimeout Time, in milliseconds, the circuit remains open before probing again
+   * @param halfOpenProbes Number of probe calls allowed while the circuit is half-open
+   * @param listener Listener notified about the state transitions
+   */
+  public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+      long openTimeout, int halfOpenProbes, StateListener listener) {
+    this.name = name;
+    this.window = new boolean[Math.max(1, windowSize)];
+    this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+    this.failureRateThreshold = failureRateThreshold;
+    this.openTimeout = openTimeout;
+    this.halfOpenProbes = Math.max(1, halfOpenProbes);
+    this.listener = listener;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * Asks permission to perform a call. Every permitted call must be reported later through
+   * {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+   * @return true if the call is permitted or false if the circuit is rejecting calls
+   */
+  public boolean tryAcquire() {
+    if (state == State.CLOSED) {
+      return true;
+    }
+
+    synchronized (this) {
+      if (state == State.OPEN) {
+        if (System.currentTimeMillis() - openedAt < openTimeout) {
+          return false;
+        }
+
+        transitionTo(State.HALF_OPEN);
+      }
+
+      if (state == State.HALF_OPEN) {
+        if (probesAcquired >= halfOpenProbes) {
+          return false;
+        }
+
+        probesAcquired++;
+      }
+
+      return true;
+    }
+  }
+
+  /**
+   * Reports a call that reached the downstream service successfully.
+   */
+  public synchronized void onSuccess() {
+    if (state == State.CLOSED) {
+      record(false);
+    } else if (state == State.HALF_OPEN) {
+      probesSucceeded++;
+
+      if (probesSucceeded >= halfOpenProbes) {
+        transitionTo(State.CLOSED);
+      }
+    }
+  }
+
+  /**
+   * Reports a call that couldn't reach the downstream service.
+   */
+  public synchronized void onFailure() {
+    if (state == State.CLOSED) {
+      record(true);
+
+      if (windowCalls >= minimumCalls
+          && windowFailures * 100 >= failureRateThreshold * windowCalls) {
+        transitionTo(State.OPEN);
+      }
+    } else if (state == State.HALF_OPEN) {
+      transitionTo(State.OPEN);
+    }
+  }
+
+  /**
+   * Reports a permitted call whose outcome says nothing about the downstream service, for example
+   * a call that failed before reaching it. A half-open probe is given back in this case.
+   */
+  public synchronized void onIgnored() {
+    if (state == State.HALF_OPEN && probesAcquired > 0) {
+      probesAcquired--;
+    }
+  }
+
+  /**
+   * Returns the failure rate, in percent, of the calls on the sliding window.
+   */
+  public synchronized int getFailureRate() {
+    return windowCalls == 0 ? 0 : windowFailures * 100 / windowCalls;
+  }
+
+  private void record(boolean failure) {
+    if (windowCalls == window.length) {
+      if (window[windowIndex]) {
+        windowFailures--;
+      }
+    } else {
+      windowCalls++;
+    }
+
+    window[windowIndex] = failure;
+    windowIndex = (windowIndex + 1) % window.length;
+
+    if (failure) {
+      windowFailures++;
+    }
+  }
+
+  private void transitionTo(State newState) {
+    State oldState = state;
+
+    switch (newState) {
+      case OPEN:
+        this.openedAt = System.currentTimeMillis();
+        break;
+      case HALF_OPEN:
+        this.probesAcquired = 0;
+        this.probesSucceeded = 0;
+        break;
+      case CLOSED:
+        this.windowIndex = 0;
+        this.windowCalls = 0;
+        this.windowFailures = 0;
+        break;
+    }
+
+    this.state = newState;
+
+    if (listener != null) {
+      listener.onStateChange(this, oldState, newState);
+    }
+  }
+
+}
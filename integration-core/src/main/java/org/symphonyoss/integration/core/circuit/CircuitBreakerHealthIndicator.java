@@ -0,0 +1,78 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.circuit;
+
+import static org.symphonyoss.integration.healthcheck.IntegrationBridgeHealthAggregator.CIRCUIT_BREAKERS;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.healthcheck.AsyncCompositeHealthIndicator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Health indicator that reports the state of the circuit breakers on the health endpoint.
+ *
+ * Open circuits don't change the Integration Bridge status, they are only listed as details to
+ * show which integrations are rejecting requests and why.
+ */
+@Component
+public class CircuitBreakerHealthIndicator implements HealthIndicator {
+
+  private static final String STATE = "state";
+
+  private static final String FAILURE_RATE = "failureRate";
+
+  @Autowired
+  private CircuitBreakerRegistry circuitBreakerRegistry;
+
+  @Autowired
+  private AsyncCompositeHealthIndicator compositeHealthIndicator;
+
+  @PostConstruct
+  public void init() {
+    compositeHealthIndicator.addHealthIndicator(CIRCUIT_BREAKERS, this);
+  }
+
+  @Override
+  public Health health() {
+    Health.Builder builder = Health.up();
+
+    Map<String, Map<String, Object>> details = new TreeMap<>();
+
+    for (CircuitBreaker circuitBreaker : circuitBreakerRegistry.getCircuitBreakers()) {
+      Map<String, Object> detail = new LinkedHashMap<>();
+      detail.put(STATE, circuitBreaker.getState().name());
+      detail.put(FAILURE_RATE, circuitBreaker.getFailureRate());
+
+      details.put(circuitBreaker.getName(), detail);
+    }
+
+    for (Map.Entry<String, Map<String, Object>> entry : details.entrySet()) {
+      builder.withDetail(entry.getKey(), entry.getValue());
+    }
+
+    return builder.build();
+  }
+
+}
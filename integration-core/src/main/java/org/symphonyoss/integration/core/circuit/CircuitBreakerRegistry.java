@@ -0,0 +1,162 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.circuit;
+
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Holds the circuit breakers used by the webhook resources, one per integration and downstream
+ * service. This way connectivity issues with one integration or service don't reject the requests
+ * for the others.
+ *
+ * State transitions are exposed as meters and each circuit breaker also has a gauge with its
+ * current state.
+ */
+@Component
+public class CircuitBreakerRegistry implements CircuitBreaker.StateListener {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreakerRegistry.class);
+
+  public static final String WINDOW_SIZE_KEY = "circuit.breaker.window.size";
+
+  public static final String MINIMUM_CALLS_KEY = "circuit.breaker.minimum.calls";
+
+  public static final String FAILURE_RATE_KEY = "circuit.breaker.failure.rate.threshold";
+
+  public static final String OPEN_TIMEOUT_KEY = "circuit.breaker.open.timeout.ms";
+
+  public static final String HALF_OPEN_PROBES_KEY = "circuit.breaker.half.open.probes";
+
+  public static final Integer DEFAULT_WINDOW_SIZE = 20;
+
+  public static final Integer DEFAULT_MINIMUM_CALLS = 10;
+
+  public static final Integer DEFAULT_FAILURE_RATE = 50;
+
+  public static final Long DEFAULT_OPEN_TIMEOUT = 10000L;
+
+  public static final Integer DEFAULT_HALF_OPEN_PROBES = 3;
+
+  private static final String CIRCUIT_BREAKER = "circuitBreaker";
+
+  private static final String STATE = "state";
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private MetricRegistry metricsRegistry;
+
+  private int windowSize;
+
+  private int minimumCalls;
+
+  private int failureRateThreshold;
+
+  private long openTimeout;
+
+  private int halfOpenProbes;
+
+  private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  public void init() {
+    this.windowSize = environment.getProperty(WINDOW_SIZE_KEY, Integer.class, DEFAULT_WINDOW_SIZE);
+    this.minimumCalls =
+        environment.getProperty(MINIMUM_CALLS_KEY, Integer.class, DEFAULT_MINIMUM_CALLS);
+    this.failureRateThreshold =
+        environment.getProperty(FAILURE_RATE_KEY, Integer.class, DEFAULT_FAILURE_RATE);
+    this.openTimeout = environment.getProperty(OPEN_TIMEOUT_KEY, Long.class, DEFAULT_OPEN_TIMEOUT);
+    this.halfOpenProbes =
+        environment.getProperty(HALF_OPEN_PROBES_KEY, Integer.class, DEFAULT_HALF_OPEN_PROBES);
+  }
+
+  /**
+   * Retrieves the circuit breaker for the given integration and downstream service, creating it on
+   * the first call.
+   * @param integration Integration type
+   * @param downstream Downstream service
+   * @return Circuit breaker
+   */
+  public CircuitBreaker getCircuitBreaker(String integration, Downstream downstream) {
+    String name = MetricRegistry.name(integration, downstream.getKey());
+
+    CircuitBreaker circuitBreaker = circuitBreakers.get(name);
+
+    if (circuitBreaker == null) {
+      CircuitBreaker newCircuitBreaker = new CircuitBreaker(name, windowSize, minimumCalls,
+          failureRateThreshold, openTimeout, halfOpenProbes, this);
+
+      circuitBreaker = circuitBreakers.putIfAbsent(name, newCircuitBreaker);
+
+      if (circuitBreaker == null) {
+        circuitBreaker = newCircuitBreaker;
+        registerStateGauge(circuitBreaker);
+      }
+    }
+
+    return circuitBreaker;
+  }
+
+  /**
+   * Returns all the circuit breakers created so far.
+   */
+  public Collection<CircuitBreaker> getCircuitBreakers() {
+    return Collections.unmodifiableCollection(circuitBreakers.values());
+  }
+
+  @Override
+  public void onStateChange(CircuitBreaker circuitBreaker, CircuitBreaker.State from,
+      CircuitBreaker.State to) {
+    if (CircuitBreaker.State.OPEN.equals(to)) {
+      LOGGER.warn("Circuit breaker {} moved from {} to {}", circuitBreaker.getName(), from, to);
+    } else {
+      LOGGER.info("Circuit breaker {} moved from {} to {}", circuitBreaker.getName(), from, to);
+    }
+
+    metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, CIRCUIT_BREAKER,
+        circuitBreaker.getName(), to.name().toLowerCase())).mark();
+  }
+
+  private void registerStateGauge(final CircuitBreaker circuitBreaker) {
+    String gaugeName =
+        MetricRegistry.name(BASE_METRIC_NAME, CIRCUIT_BREAKER, circuitBreaker.getName(), STATE);
+
+    metricsRegistry.register(gaugeName, new Gauge<String>() {
+      @Override
+      public String getValue() {
+        return circuitBreaker.getState().name();
+      }
+    });
+  }
+
+}
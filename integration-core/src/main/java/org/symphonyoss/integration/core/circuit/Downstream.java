@@ -0,0 +1,35 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.circuit;
+
+/**
+ * Downstream services called by the integrations, each one protected by its own circuit breaker.
+ */
+public enum Downstream {
+
+  AGENT,
+
+  POD;
+
+  /**
+   * Name used for metrics and health details.
+   */
+  public String getKey() {
+    return name().toLowerCase();
+  }
+
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.outbox;
+
+/**
+ * Defines when the outbox records are forced to the storage device.
+ */
+public enum FsyncPolicy {
+
+  /**
+   * Forces each record after it's appended. Safest and slowest option.
+   */
+  ALWAYS,
+
+  /**
+   * Forces the appended records periodically. A crash may lose the records appended since the
+   * last flush.
+   */
+  INTERVAL,
+
+  /**
+   * Leaves the flush to the operating system.
+   */
+  NEVER
+
+}
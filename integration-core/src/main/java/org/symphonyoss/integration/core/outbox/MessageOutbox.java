@@ -0,0 +1,581 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.outbox;
+
+import static org.symphonyoss.integration.logging.DistributedTracingUtils.TRACE_ID;
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.authentication.AuthenticationProxy;
+import org.symphonyoss.integration.core.runnable.IntegrationAbstractRunnable;
+import org.symphonyoss.integration.exception.RemoteApiException;
+import org.symphonyoss.integration.exception.authentication.ConnectivityException;
+import org.symphonyoss.integration.model.message.Message;
+import org.symphonyoss.integration.service.StreamService;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Durable outbox for the messages that couldn't be posted because the Agent is unreachable.
+ *
+ * The messages are appended to an {@link OutboxSegmentLog} and a background drainer replays them,
+ * in the same order they were appended, once the Agent is reachable again. While a stream has
+ * messages waiting on the outbox, new messages to that stream must also be appended to keep the
+ * order.
+ *
+ * A stream that keeps failing is put on hold with an exponential backoff, so it doesn't block the
+ * other streams. Its message is discarded after the maximum number of attempts.
+ *
+ * The records are replayed at least once, so a crash during the drain may post a message twice.
+ */
+@Component
+public class MessageOutbox {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MessageOutbox.class);
+
+  public static final String ENABLED_KEY = "bridge.outbox.enabled";
+
+  public static final String DIRECTORY_KEY = "bridge.outbox.directory";
+
+  public static final String SEGMENT_BYTES_KEY = "bridge.outbox.segment.bytes";
+
+  public static final String MAX_BYTES_KEY = "bridge.outbox.max.bytes";
+
+  public static final String FSYNC_POLICY_KEY = "bridge.outbox.fsync.policy";
+
+  public static final String FSYNC_INTERVAL_KEY = "bridge.outbox.fsync.interval.ms";
+
+  public static final String DRAIN_INTERVAL_KEY = "bridge.outbox.drain.interval.ms";
+
+  public static final String STREAM_MAX_ATTEMPTS_KEY = "bridge.outbox.stream.max.attempts";
+
+  public static final String STREAM_INITIAL_BACKOFF_KEY = "bridge.outbox.stream.initial.backoff.ms";
+
+  public static final String STREAM_MAX_BACKOFF_KEY = "bridge.outbox.stream.max.backoff.ms";
+
+  public static final String DEFAULT_DIRECTORY = "outbox";
+
+  public static final Long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+  public static final Long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+
+  public static final FsyncPolicy DEFAULT_FSYNC_POLICY = FsyncPolicy.INTERVAL;
+
+  public static final Long DEFAULT_FSYNC_INTERVAL = 1000L;
+
+  public static final Long DEFAULT_DRAIN_INTERVAL = 1000L;
+
+  public static final Integer DEFAULT_STREAM_MAX_ATTEMPTS = 10;
+
+  public static final Long DEFAULT_STREAM_INITIAL_BACKOFF = 1000L;
+
+  public static final Long DEFAULT_STREAM_MAX_BACKOFF = 60000L;
+
+  private static final String OUTBOX = "outbox";
+
+  private static final String DEPTH = "depth";
+
+  private static final String APPENDED = "appended";
+
+  private static final String DRAINED = "drained";
+
+  private static final String DROPPED = "dropped";
+
+  private static final String CORRUPTED = "corrupted";
+
+  private static final int BAD_REQUEST = 400;
+
+  private static final int FORBIDDEN = 403;
+
+  private static final int NOT_FOUND = 404;
+
+  /**
+   * Number of records drained between two checkpoints
+   */
+  private static final int CHECKPOINT_INTERVAL = 100;
+
+  /**
+   * Maximum shift applied to the initial backoff, to avoid overflows
+   */
+  private static final int MAX_BACKOFF_SHIFT = 20;
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private StreamService streamService;
+
+  @Autowired
+  private MetricRegistry metricsRegistry;
+
+  @Autowired
+  private AuthenticationProxy authenticationProxy;
+
+  private boolean enabled;
+
+  private OutboxSegmentLog log;
+
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Number of records waiting on the outbox per stream
+   */
+  private final ConcurrentMap<String, AtomicLong> pendingByStream = new ConcurrentHashMap<>();
+
+  /**
+   * Number of records waiting on the outbox
+   */
+  private final AtomicLong depth = new AtomicLong();
+
+  private Meter appendedMeter;
+
+  private Meter drainedMeter;
+
+  private Meter droppedMeter;
+
+  private Meter corruptedMeter;
+
+  /**
+   * Corrupted records already counted on the meter
+   */
+  private long corruptedRecords;
+
+  private int streamMaxAttempts;
+
+  private long streamInitialBackoff;
+
+  private long streamMaxBackoff;
+
+  /**
+   * Streams on hold due to failures. Only accessed by the drainer.
+   */
+  private final Map<String, StreamHold> holds = new HashMap<>();
+
+  /**
+   * Opens the outbox and schedules the drainer if the outbox is enabled.
+   */
+  @PostConstruct
+  public void init() {
+    this.enabled = environment.getProperty(ENABLED_KEY, Boolean.class, Boolean.FALSE);
+
+    if (!enabled) {
+      return;
+    }
+
+    String directory = environment.getProperty(DIRECTORY_KEY, DEFAULT_DIRECTORY);
+    long segmentBytes = environment.getProperty(SEGMENT_BYTES_KEY, Long.class, DEFAULT_SEGMENT_BYTES);
+    long maxBytes = environment.getProperty(MAX_BYTES_KEY, Long.class, DEFAULT_MAX_BYTES);
+    FsyncPolicy fsyncPolicy =
+        environment.getProperty(FSYNC_POLICY_KEY, FsyncPolicy.class, DEFAULT_FSYNC_POLICY);
+
+    this.streamMaxAttempts = environment.getProperty(STREAM_MAX_ATTEMPTS_KEY, Integer.class,
+        DEFAULT_STREAM_MAX_ATTEMPTS);
+    this.streamInitialBackoff = environment.getProperty(STREAM_INITIAL_BACKOFF_KEY, Long.class,
+        DEFAULT_STREAM_INITIAL_BACKOFF);
+    this.streamMaxBackoff = environment.getProperty(STREAM_MAX_BACKOFF_KEY, Long.class,
+        DEFAULT_STREAM_MAX_BACKOFF);
+
+    try {
+      this.log = new OutboxSegmentLog(Paths.get(directory), segmentBytes, maxBytes, fsyncPolicy);
+
+      for (Map.Entry<String, Long> entry : log.countPendingByStream().entrySet()) {
+        pendingByStream.put(entry.getKey(), new AtomicLong(entry.getValue()));
+        depth.addAndGet(entry.getValue());
+      }
+    } catch (IOException e) {
+      LOGGER.error("Fail to open the message outbox on " + directory + ". Outbox disabled", e);
+      this.enabled = false;
+      return;
+    }
+
+    initMetrics();
+    markCorrupted();
+    scheduleTasks(fsyncPolicy);
+
+    LOGGER.info("Message outbox enabled on {}. Pending messages: {}", directory, depth.get());
+  }
+
+  private void initMetrics() {
+    this.appendedMeter = metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, OUTBOX, APPENDED));
+    this.drainedMeter = metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, OUTBOX, DRAINED));
+    this.droppedMeter = metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, OUTBOX, DROPPED));
+    this.corruptedMeter =
+        metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, OUTBOX, CORRUPTED));
+
+    metricsRegistry.register(MetricRegistry.name(BASE_METRIC_NAME, OUTBOX, DEPTH), new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return depth.get();
+      }
+    });
+  }
+
+  private void scheduleTasks(FsyncPolicy fsyncPolicy) {
+    long drainInterval =
+        environment.getProperty(DRAIN_INTERVAL_KEY, Long.class, DEFAULT_DRAIN_INTERVAL);
+
+    this.scheduler = Executors.newSingleThreadScheduledExecutor();
+    scheduler.scheduleWithFixedDelay(new IntegrationAbstractRunnable(MDC.get(TRACE_ID)) {
+      @Override
+      protected void execute() {
+        drain();
+      }
+    }, drainInterval, drainInterval, TimeUnit.MILLISECONDS);
+
+    if (FsyncPolicy.INTERVAL.equals(fsyncPolicy)) {
+      long fsyncInterval =
+          environment.getProperty(FSYNC_INTERVAL_KEY, Long.class, DEFAULT_FSYNC_INTERVAL);
+
+      scheduler.scheduleWithFixedDelay(new IntegrationAbstractRunnable(MDC.get(TRACE_ID)) {
+        @Override
+        protected void execute() {
+          flush();
+        }
+      }, fsyncInterval, fsyncInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Stops the drainer and closes the outbox files.
+   */
+  @PreDestroy
+  public void destroy() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+    }
+
+    if (log != null) {
+      try {
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        log.close();
+      } catch (IOException e) {
+        LOGGER.error("Fail to close the message outbox", e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Returns true if the outbox is enabled or false otherwise.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Checks if there are messages waiting on the outbox for the stream.
+   * @param stream Stream identifier
+   * @return true if the stream has messages waiting on the outbox or false otherwise
+   */
+  public boolean hasPending(String stream) {
+    AtomicLong pending = pendingByStream.get(stream);
+    return pending != null && pending.get() > 0;
+  }
+
+  /**
+   * Appends a formatted message to the outbox.
+   * @param integrationUser Integration user
+   * @param stream Stream identifier
+   * @param message Formatted message
+   * @return true if the message was stored or false otherwise
+   */
+  public boolean append(String integrationUser, String stream, String message) {
+    if (!enabled) {
+      return false;
+    }
+
+    OutboxRecord record =
+        new OutboxRecord(System.currentTimeMillis(), integrationUser, stream, message);
+
+    // counts the record before appending it, so the drainer never sees the stream as empty
+    incrementPending(stream);
+
+    try {
+      log.append(record.toBytes());
+    } catch (IOException e) {
+      decrementPending(stream);
+      LOGGER.error("Fail to append the message to the outbox. Stream: " + stream, e);
+      return false;
+    }
+
+    appendedMeter.mark();
+    enforceRetention();
+
+    return true;
+  }
+
+  /**
+   * Deletes the oldest records if the outbox exceeds the maximum size.
+   */
+  private void enforceRetention() {
+    try {
+      List<OutboxRecord> dropped = log.enforceRetention();
+
+      for (OutboxRecord record : dropped) {
+        decrementPending(record.getStream());
+        droppedMeter.mark();
+      }
+
+      if (!dropped.isEmpty()) {
+        LOGGER.warn("Outbox is full. {} messages were discarded", dropped.size());
+      }
+    } catch (IOException e) {
+      LOGGER.error("Fail to apply the outbox retention", e);
+    }
+  }
+
+  /**
+   * Replays the messages waiting on the outbox. The drain stops on the first connectivity failure
+   * and it's resumed on the next execution. Only the messages rejected with a permanent error
+   * (400, 403 or 404) are discarded right away.
+   *
+   * Any other failure puts the stream on hold, skipping its messages until the backoff expires,
+   * while the messages to other streams keep draining.
+   */
+  public synchronized void drain() {
+    int drained = 0;
+    Set<String> skipped = new HashSet<>();
+
+    try {
+      OutboxEntry entry = log.readNext();
+
+      while (entry != null && skipped.size() < countPendingStreams()) {
+        String stream = entry.getRecord().getStream();
+
+        if (!skipped.contains(stream)) {
+          if (isOnHold(stream) || !replay(entry.getRecord())) {
+            skipped.add(stream);
+          } else {
+            drained++;
+
+            if (log.commit(entry, drained % CHECKPOINT_INTERVAL == 0)) {
+              decrementPending(stream);
+            }
+          }
+        }
+
+        entry = log.readFrom(entry.getNextOffset());
+      }
+    } catch (ConnectivityException | ProcessingException e) {
+      LOGGER.warn("Agent still unreachable. Pending messages on the outbox: {}", depth.get());
+    } catch (IOException e) {
+      LOGGER.error("Fail to read the message outbox", e);
+    } finally {
+      markCorrupted();
+
+      if (drained > 0) {
+        checkpoint();
+        LOGGER.info("{} messages drained from the outbox", drained);
+      }
+    }
+  }
+
+  /**
+   * Posts the outbox record.
+   * @return true if the record is done, either posted or discarded, or false if the stream was
+   * put on hold
+   */
+  private boolean replay(OutboxRecord record) {
+    String stream = record.getStream();
+
+    try {
+      postMessage(record);
+      drainedMeter.mark();
+      holds.remove(stream);
+      return true;
+    } catch (RemoteApiException e) {
+      if (isPermanent(e.getCode())) {
+        LOGGER.error(String.format("Discarding the outbox message to the stream %s due to error "
+            + "code %d", stream, e.getCode()), e);
+        droppedMeter.mark();
+        holds.remove(stream);
+        return true;
+      }
+
+      return hold(stream, "HTTP status: " + e.getCode());
+    } catch (ConnectivityException | ProcessingException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      LOGGER.error("Fail to replay the outbox message to the stream " + stream, e);
+      return hold(stream, e.getMessage());
+    }
+  }
+
+  /**
+   * Puts the stream on hold, doubling the backoff on each failure. The message is discarded once
+   * the stream reaches the maximum number of attempts.
+   * @return true if the message was discarded or false if it must be retried
+   */
+  private boolean hold(String stream, String reason) {
+    StreamHold hold = holds.get(stream);
+
+    if (hold == null) {
+      hold = new StreamHold();
+      holds.put(stream, hold);
+    }
+
+    hold.failures++;
+
+    if (hold.failures >= streamMaxAttempts) {
+      LOGGER.error("Discarding the outbox message to the stream {} after {} attempts. {}", stream,
+          hold.failures, reason);
+      droppedMeter.mark();
+      holds.remove(stream);
+      return true;
+    }
+
+    long backoff = Math.min(streamMaxBackoff,
+        streamInitialBackoff << Math.min(hold.failures - 1, MAX_BACKOFF_SHIFT));
+    hold.retryAt = System.currentTimeMillis() + backoff;
+
+    LOGGER.warn("Fail to drain the outbox to the stream {}. {}. Retrying in {} ms", stream, reason,
+        backoff);
+    return false;
+  }
+
+  private boolean isOnHold(String stream) {
+    StreamHold hold = holds.get(stream);
+    return hold != null && hold.retryAt > System.currentTimeMillis();
+  }
+
+  private int countPendingStreams() {
+    int count = 0;
+
+    for (AtomicLong pending : pendingByStream.values()) {
+      if (pending.get() > 0) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  private void markCorrupted() {
+    long total = log.getCorruptedRecords();
+
+    if (total > corruptedRecords) {
+      corruptedMeter.mark(total - corruptedRecords);
+      this.corruptedRecords = total;
+    }
+  }
+
+  private void checkpoint() {
+    try {
+      log.checkpoint();
+    } catch (IOException e) {
+      LOGGER.error("Fail to write the outbox checkpoint", e);
+    }
+  }
+
+  /**
+   * Posts the outbox record. If the session has expired, the integration user is authenticated
+   * again and the message is posted once more.
+   */
+  private void postMessage(OutboxRecord record) throws RemoteApiException {
+    String integrationUser = record.getIntegrationUser();
+
+    try {
+      streamService.postMessage(integrationUser, record.getStream(),
+          buildMessage(record.getMessage()));
+    } catch (RemoteApiException e) {
+      if (!authenticationProxy.sessionUnauthorized(e.getCode())) {
+        throw e;
+      }
+
+      authenticationProxy.reAuthOrThrow(integrationUser, e.getCode(), e);
+      streamService.postMessage(integrationUser, record.getStream(),
+          buildMessage(record.getMessage()));
+    }
+  }
+
+  private boolean isPermanent(int code) {
+    return code == BAD_REQUEST || code == FORBIDDEN || code == NOT_FOUND;
+  }
+
+  private void flush() {
+    try {
+      log.flush();
+    } catch (IOException e) {
+      LOGGER.error("Fail to flush the message outbox", e);
+    }
+  }
+
+  private void incrementPending(String stream) {
+    AtomicLong pending = pendingByStream.get(stream);
+
+    if (pending == null) {
+      pendingByStream.putIfAbsent(stream, new AtomicLong());
+      pending = pendingByStream.get(stream);
+    }
+
+    pending.incrementAndGet();
+    depth.incrementAndGet();
+  }
+
+  private void decrementPending(String stream) {
+    AtomicLong pending = pendingByStream.get(stream);
+
+    if (pending != null) {
+      pending.decrementAndGet();
+      depth.decrementAndGet();
+    }
+  }
+
+  private Message buildMessage(String message) {
+    Message messageSubmission = new Message();
+    messageSubmission.setFormat(Message.FormatEnum.MESSAGEML);
+    messageSubmission.setMessage(message);
+    return messageSubmission;
+  }
+
+  /**
+   * Failures of a stream and the time it can be retried.
+   */
+  private static class StreamHold {
+
+    private int failures;
+
+    private long retryAt;
+
+  }
+
+}
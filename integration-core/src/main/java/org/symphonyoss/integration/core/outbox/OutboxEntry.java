@@ -0,0 +1,49 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.outbox;
+
+/**
+ * Record read from the {@link OutboxSegmentLog}, its offset and the offset of the record that
+ * follows it.
+ */
+public class OutboxEntry {
+
+  private final long offset;
+
+  private final OutboxRecord record;
+
+  private final long nextOffset;
+
+  public OutboxEntry(long offset, OutboxRecord record, long nextOffset) {
+    this.offset = offset;
+    this.record = record;
+    this.nextOffset = nextOffset;
+  }
+
+  public long getOffset() {
+    return offset;
+  }
+
+  public OutboxRecord getRecord() {
+    return record;
+  }
+
+  public long getNextOffset() {
+    return nextOffset;
+  }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.outbox;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formatted message waiting on the outbox to be posted to a stream.
+ */
+public class OutboxRecord {
+
+  private final long timestamp;
+
+  private final String integrationUser;
+
+  private final String stream;
+
+  private final String message;
+
+  public OutboxRecord(long timestamp, String integrationUser, String stream, String message) {
+    this.timestamp = timestamp;
+    this.integrationUser = integrationUser;
+    this.stream = stream;
+    this.message = message;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public String getIntegrationUser() {
+    return integrationUser;
+  }
+
+  public String getStream() {
+    return stream;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Serializes the record using the binary format stored on the segment files.
+   * @return Serialized record
+   */
+  public byte[] toBytes() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try (DataOutputStream data = new DataOutputStream(out)) {
+      byte[] body = message.getBytes(StandardCharsets.UTF_8);
+
+      data.writeLong(timestamp);
+      data.writeUTF(integrationUser);
+      data.writeUTF(stream);
+      data.writeInt(body.length);
+      data.write(body);
+    }
+
+    return out.toByteArray();
+  }
+
+  /**
+   * Deserializes a record read from the segment files.
+   * @param bytes Serialized record
+   * @return Outbox record
+   */
+  public static OutboxRecord fromBytes(byte[] bytes) throws IOException {
+    try (DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      long timestamp = data.readLong();
+      String integrationUser = data.readUTF();
+      String stream = data.readUTF();
+
+      byte[] body = new byte[data.readInt()];
+      data.readFully(body);
+
+      return new OutboxRecord(timestamp, integrationUser, stream,
+          new String(body, StandardCharsets.UTF_8));
+    }
+  }
+
+}
@@ -0,0 +1,557 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.outbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log split into segment files.
+ *
+ * Each segment is named after the logical offset of its first byte. Each record is stored as
+ * [payload length][CRC32 of the payload][payload]. The read position is persisted on a checkpoint
+ * file, so the records are replayed at least once after a restart.
+ *
+ * Records may be committed out of order. The read position only moves past a record once all the
+ * records before it are committed, and the records committed beyond it are skipped by the reads.
+ *
+ * Corrupted records are copied to the quarantine directory and skipped. When the record header
+ * can't be parsed, the rest of the segment is skipped.
+ *
+ * Segments fully read are deleted. When the log exceeds the maximum size, the oldest segments are
+ * deleted even if they still hold unread records.
+ */
+public class OutboxSegmentLog implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OutboxSegmentLog.class);
+
+  public static final String SEGMENT_SUFFIX = ".log";
+
+  public static final String CHECKPOINT_FILE = "outbox.checkpoint";
+
+  private static final String CHECKPOINT_TMP_FILE = "outbox.checkpoint.tmp";
+
+  private static final String QUARANTINE_DIRECTORY = "quarantine";
+
+  private static final String QUARANTINE_NAME_FORMAT = "%020d.corrupt";
+
+  private static final String SEGMENT_NAME_FORMAT = "%020d" + SEGMENT_SUFFIX;
+
+  private static final int HEADER_SIZE = 8;
+
+  private final Path directory;
+
+  private final long segmentBytes;
+
+  private final long maxBytes;
+
+  private final FsyncPolicy fsyncPolicy;
+
+  /**
+   * Segments indexed by base offset
+   */
+  private final NavigableMap<Long, Segment> segments = new TreeMap<>();
+
+  /**
+   * Offset of the next record to be read
+   */
+  private long readOffset;
+
+  /**
+   * Ranges beyond the read position already committed or skipped, indexed by their first offset
+   * and pointing to the offset that follows them
+   */
+  private final NavigableMap<Long, Long> completed = new TreeMap<>();
+
+  /**
+   * Number of corrupted records skipped
+   */
+  private long corruptedRecords;
+
+  private long totalBytes;
+
+  /**
+   * Opens the log stored in the directory, truncating the last segment if its tail holds a
+   * partially written record.
+   * @param directory Outbox directory
+   * @param segmentBytes Maximum size of each segment file
+   * @param maxBytes Maximum size of the log
+   * @param fsyncPolicy Policy to force the appended records to the storage device
+   * @throws IOException Failure to read the outbox directory
+   */
+  public OutboxSegmentLog(Path directory, long segmentBytes, long maxBytes,
+      FsyncPolicy fsyncPolicy) throws IOException {
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.maxBytes = maxBytes;
+    this.fsyncPolicy = fsyncPolicy;
+
+    Files.createDirectories(directory);
+    openSegments();
+
+    this.readOffset = Math.min(Math.max(readCheckpoint(), segments.firstKey()), endOffset());
+  }
+
+  private void openSegments() throws IOException {
+    try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+      for (Path path : paths) {
+        String name = path.getFileName().toString();
+
+        try {
+          long baseOffset = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+          segments.put(baseOffset, new Segment(baseOffset, path));
+        } catch (NumberFormatException e) {
+          LOGGER.warn("Ignoring unexpected file on the outbox directory: {}", path);
+        }
+      }
+    }
+
+    if (segments.isEmpty()) {
+      roll(0L);
+    } else {
+      recover(segments.lastEntry().getValue());
+    }
+
+    for (Segment segment : segments.values()) {
+      totalBytes += segment.size;
+    }
+  }
+
+  /**
+   * Truncates the partially written record at the end of the segment, if any.
+   */
+  private void recover(Segment segment) throws IOException {
+    long position = 0;
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+    while (position + HEADER_SIZE <= segment.size) {
+      header.clear();
+      readFully(segment.channel, header, position);
+
+      int length = header.getInt(0);
+      long end = position + HEADER_SIZE + length;
+
+      if (length < 0 || end > segment.size) {
+        break;
+      }
+
+      ByteBuffer payload = ByteBuffer.allocate(length);
+      readFully(segment.channel, payload, position + HEADER_SIZE);
+
+      if (checksum(payload.array()) != header.getInt(4) && end == segment.size) {
+        // a torn write of the last record, the corrupted records before it are skipped on read
+        break;
+      }
+
+      position = end;
+    }
+
+    if (position < segment.size) {
+      LOGGER.warn("Truncating {} bytes of a partially written record on the outbox segment {}",
+          segment.size - position, segment.path);
+      segment.channel.truncate(position);
+      segment.size = position;
+    }
+  }
+
+  /**
+   * Appends a record to the active segment, rolling a new segment if it's full.
+   * @param payload Serialized record
+   * @return Offset of the record
+   */
+  public synchronized long append(byte[] payload) throws IOException {
+    Segment active = segments.lastEntry().getValue();
+
+    if (active.size > 0 && active.size + HEADER_SIZE + payload.length > segmentBytes) {
+      active = roll(active.endOffset());
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+    buffer.putInt(payload.length);
+    buffer.putInt(checksum(payload));
+    buffer.put(payload);
+    buffer.flip();
+
+    long offset = active.endOffset();
+    int length = buffer.remaining();
+
+    while (buffer.hasRemaining()) {
+      active.channel.write(buffer, active.size + length - buffer.remaining());
+    }
+
+    active.size += length;
+    totalBytes += length;
+
+    if (FsyncPolicy.ALWAYS.equals(fsyncPolicy)) {
+      active.channel.force(false);
+    }
+
+    return offset;
+  }
+
+  /**
+   * Reads the first record not committed yet, without moving the read position.
+   * @return Next record or null if there are no records to be read
+   */
+  public synchronized OutboxEntry readNext() throws IOException {
+    return readFrom(readOffset);
+  }
+
+  /**
+   * Reads the first record not committed yet at or after the offset, without moving the read
+   * position.
+   * @param offset Offset to start reading from, usually the next offset of the previous entry
+   * @return Next record or null if there are no records to be read
+   */
+  public synchronized OutboxEntry readFrom(long offset) throws IOException {
+    long position = Math.max(offset, readOffset);
+
+    while (true) {
+      Long next = completed.get(position);
+
+      if (next != null) {
+        position = next;
+        continue;
+      }
+
+      OutboxEntry entry = readAt(position);
+
+      if (entry == null || entry.getRecord() != null) {
+        return entry;
+      }
+
+      // corrupted range, already quarantined
+      complete(position, entry.getNextOffset());
+      position = entry.getNextOffset();
+    }
+  }
+
+  /**
+   * Commits the record and deletes the segments fully read. The read position moves forward if
+   * all the records before this one are committed.
+   * @param entry Entry returned by the log
+   * @param checkpoint true if the read position must be persisted
+   * @return false if the record was already committed or deleted by the retention
+   */
+  public synchronized boolean commit(OutboxEntry entry, boolean checkpoint) throws IOException {
+    if (entry.getOffset() < readOffset || completed.containsKey(entry.getOffset())) {
+      return false;
+    }
+
+    complete(entry.getOffset(), entry.getNextOffset());
+
+    while (segments.size() > 1 && segments.higherKey(segments.firstKey()) <= readOffset) {
+      deleteSegment(segments.firstEntry().getValue());
+    }
+
+    if (checkpoint) {
+      writeCheckpoint();
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns the number of corrupted records skipped since the log was opened.
+   */
+  public synchronized long getCorruptedRecords() {
+    return corruptedRecords;
+  }
+
+  /**
+   * Deletes the oldest segments while the log exceeds the maximum size. The active segment is
+   * never deleted.
+   * @return Unread records deleted
+   */
+  public synchronized List<OutboxRecord> enforceRetention() throws IOException {
+    List<OutboxRecord> dropped = new ArrayList<>();
+
+    while (totalBytes > maxBytes && segments.size() > 1) {
+      Segment oldest = segments.firstEntry().getValue();
+      long next = segments.higherKey(oldest.baseOffset);
+
+      OutboxEntry entry = readFrom(readOffset);
+
+      while (entry != null && entry.getOffset() < next) {
+        dropped.add(entry.getRecord());
+        entry = readFrom(entry.getNextOffset());
+      }
+
+      advanceTo(next);
+      deleteSegment(oldest);
+    }
+
+    if (!dropped.isEmpty()) {
+      writeCheckpoint();
+    }
+
+    return dropped;
+  }
+
+  /**
+   * Counts the unread records per stream.
+   * @return Number of unread records per stream
+   */
+  public synchronized Map<String, Long> countPendingByStream() throws IOException {
+    Map<String, Long> result = new HashMap<>();
+
+    OutboxEntry entry = readFrom(readOffset);
+
+    while (entry != null) {
+      String stream = entry.getRecord().getStream();
+      Long count = result.get(stream);
+
+      result.put(stream, count == null ? 1L : count + 1);
+      entry = readFrom(entry.getNextOffset());
+    }
+
+    return result;
+  }
+
+  /**
+   * Persists the current read position.
+   */
+  public synchronized void checkpoint() throws IOException {
+    writeCheckpoint();
+  }
+
+  /**
+   * Forces the active segment to the storage device.
+   */
+  public synchronized void flush() throws IOException {
+    segments.lastEntry().getValue().channel.force(false);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    writeCheckpoint();
+
+    for (Segment segment : segments.values()) {
+      if (!FsyncPolicy.NEVER.equals(fsyncPolicy)) {
+        segment.channel.force(false);
+      }
+
+      segment.channel.close();
+    }
+  }
+
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * Marks the range as committed, moving the read position forward when the range starts on it.
+   */
+  private void complete(long offset, long nextOffset) {
+    if (offset == readOffset) {
+      advanceTo(nextOffset);
+    } else {
+      completed.put(offset, nextOffset);
+    }
+  }
+
+  /**
+   * Moves the read position forward, over the ranges already committed after it.
+   */
+  private void advanceTo(long offset) {
+    this.readOffset = Math.max(readOffset, offset);
+    completed.headMap(readOffset).clear();
+
+    Long next;
+    while ((next = completed.remove(readOffset)) != null) {
+      this.readOffset = next;
+    }
+  }
+
+  /**
+   * Reads the record at the offset.
+   * @return Record, an entry without record if the range is corrupted, or null if there are no
+   * more records
+   */
+  private OutboxEntry readAt(long offset) throws IOException {
+    Map.Entry<Long, Segment> floor = segments.floorEntry(offset);
+
+    if (floor == null) {
+      return null;
+    }
+
+    Segment segment = floor.getValue();
+    long position = offset - segment.baseOffset;
+
+    if (position >= segment.size) {
+      return null;
+    }
+
+    if (position + HEADER_SIZE > segment.size) {
+      return quarantine(segment, position, segment.size);
+    }
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    readFully(segment.channel, header, position);
+
+    int length = header.getInt(0);
+    long end = position + HEADER_SIZE + length;
+
+    if (length < 0 || end > segment.size) {
+      // the record boundaries are lost, so the rest of the segment can't be read
+      return quarantine(segment, position, segment.size);
+    }
+
+    ByteBuffer payload = ByteBuffer.allocate(length);
+    readFully(segment.channel, payload, position + HEADER_SIZE);
+
+    if (checksum(payload.array()) != header.getInt(4)) {
+      return quarantine(segment, position, end);
+    }
+
+    OutboxRecord record = OutboxRecord.fromBytes(payload.array());
+    return new OutboxEntry(offset, record, segment.baseOffset + end);
+  }
+
+  /**
+   * Copies the corrupted range to the quarantine directory.
+   * @return Entry without record pointing to the offset that follows the range
+   */
+  private OutboxEntry quarantine(Segment segment, long position, long end) throws IOException {
+    long offset = segment.baseOffset + position;
+
+    ByteBuffer content = ByteBuffer.allocate((int) (end - position));
+    readFully(segment.channel, content, position);
+
+    Path quarantine = directory.resolve(QUARANTINE_DIRECTORY);
+    Files.createDirectories(quarantine);
+    Files.write(quarantine.resolve(String.format(QUARANTINE_NAME_FORMAT, offset)), content.array());
+
+    corruptedRecords++;
+    LOGGER.error("Corrupted outbox record at offset {}. {} bytes moved to the quarantine", offset,
+        end - position);
+
+    return new OutboxEntry(offset, null, segment.baseOffset + end);
+  }
+
+  private Segment roll(long baseOffset) throws IOException {
+    if (!segments.isEmpty() && !FsyncPolicy.NEVER.equals(fsyncPolicy)) {
+      segments.lastEntry().getValue().channel.force(false);
+    }
+
+    Path path = directory.resolve(String.format(SEGMENT_NAME_FORMAT, baseOffset));
+    Segment segment = new Segment(baseOffset, path);
+    segments.put(baseOffset, segment);
+
+    return segment;
+  }
+
+  private void deleteSegment(Segment segment) throws IOException {
+    segments.remove(segment.baseOffset);
+    totalBytes -= segment.size;
+
+    segment.channel.close();
+    Files.deleteIfExists(segment.path);
+  }
+
+  private long endOffset() {
+    return segments.lastEntry().getValue().endOffset();
+  }
+
+  private long readCheckpoint() throws IOException {
+    Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+
+    if (!Files.exists(checkpoint)) {
+      return 0L;
+    }
+
+    String content = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim();
+
+    try {
+      return Long.parseLong(content);
+    } catch (NumberFormatException e) {
+      LOGGER.warn("Invalid outbox checkpoint: {}. Replaying the outbox from the beginning", content);
+      return 0L;
+    }
+  }
+
+  private void writeCheckpoint() throws IOException {
+    Path tmp = directory.resolve(CHECKPOINT_TMP_FILE);
+    Files.write(tmp, String.valueOf(readOffset).getBytes(StandardCharsets.UTF_8));
+    Files.move(tmp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+
+      if (read < 0) {
+        throw new EOFException("Unexpected end of the outbox segment");
+      }
+    }
+  }
+
+  private static int checksum(byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(payload, 0, payload.length);
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Segment file opened for reading and appending.
+   */
+  private static final class Segment {
+
+    private final long baseOffset;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private long size;
+
+    private Segment(long baseOffset, Path path) throws IOException {
+      this.baseOffset = baseOffset;
+      this.path = path;
+      this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      this.size = channel.size();
+    }
+
+    private long endOffset() {
+      return baseOffset + size;
+    }
+
+  }
+
+}
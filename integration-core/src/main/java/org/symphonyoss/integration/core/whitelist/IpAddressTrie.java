@@ -0,0 +1,146 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.whitelist;
+
+/**
+ * Binary radix trie holding IPv4 and IPv6 address blocks.
+ *
+ * Each block is stored as the path of its prefix bits, so looking up an address walks at most
+ * one node per bit and stops at the first block that contains it. Exact addresses are blocks with
+ * the full prefix length.
+ *
+ * The trie is filled once by {@link OriginWhiteList} and only read afterwards, so the lookups
+ * don't need any synchronization.
+ */
+public class IpAddressTrie {
+
+  public static final int IPV4_BITS = 32;
+
+  public static final int IPV6_BITS = 128;
+
+  private static final class Node {
+
+    private Node zero;
+
+    private Node one;
+
+    /**
+     * Marks the end of a block
+     */
+    private boolean terminal;
+
+  }
+
+  private final Node ipv4Root = new Node();
+
+  private final Node ipv6Root = new Node();
+
+  private boolean empty = true;
+
+  /**
+   * Adds an address block.
+   * @param address Address bytes, 4 bytes for IPv4 or 16 bytes for IPv6
+   * @param prefixLength Number of leading bits that identify the block
+   */
+  void add(byte[] address, int prefixLength) {
+    Node node = address.length == 4 ? ipv4Root : ipv6Root;
+
+    for (int i = 0; i < prefixLength && !node.terminal; i++) {
+      if (bit(address, i) == 0) {
+        if (node.zero == null) {
+          node.zero = new Node();
+        }
+
+        node = node.zero;
+      } else {
+        if (node.one == null) {
+          node.one = new Node();
+        }
+
+        node = node.one;
+      }
+    }
+
+    // a shorter block already contains the new one
+    if (!node.terminal) {
+      node.terminal = true;
+      node.zero = null;
+      node.one = null;
+    }
+
+    this.empty = false;
+  }
+
+  /**
+   * Returns true if the trie has no blocks.
+   */
+  public boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * Checks if an IPv4 address belongs to any block.
+   * @param address IPv4 address as an integer
+   * @return true if the address belongs to a block or false otherwise
+   */
+  public boolean containsIpv4(int address) {
+    Node node = ipv4Root;
+
+    for (int i = 0; i < IPV4_BITS; i++) {
+      if (node.terminal) {
+        return true;
+      }
+
+      node = ((address >>> (IPV4_BITS - 1 - i)) & 1) == 0 ? node.zero : node.one;
+
+      if (node == null) {
+        return false;
+      }
+    }
+
+    return node.terminal;
+  }
+
+  /**
+   * Checks if an address belongs to any block.
+   * @param address Address bytes, 4 bytes for IPv4 or 16 bytes for IPv6
+   * @return true if the address belongs to a block or false otherwise
+   */
+  public boolean contains(byte[] address) {
+    Node node = address.length == 4 ? ipv4Root : ipv6Root;
+    int bits = address.length * 8;
+
+    for (int i = 0; i < bits; i++) {
+      if (node.terminal) {
+        return true;
+      }
+
+      node = bit(address, i) == 0 ? node.zero : node.one;
+
+      if (node == null) {
+        return false;
+      }
+    }
+
+    return node.terminal;
+  }
+
+  private static int bit(byte[] address, int index) {
+    return (address[index >> 3] >> (7 - (index & 7))) & 1;
+  }
+
+}
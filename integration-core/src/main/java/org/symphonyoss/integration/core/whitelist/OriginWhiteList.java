@@ -0,0 +1,221 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.whitelist;
+
+import com.google.common.net.InetAddresses;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Compiled origin whitelist used to validate the webhook senders.
+ *
+ * The entries are parsed once: IP addresses and CIDR blocks (IPv4 and IPv6) are stored on an
+ * {@link IpAddressTrie}, while the other entries are treated as host names. Checking an IPv4
+ * address doesn't allocate any object.
+ *
+ * Instances are immutable, so they can be shared between the request threads.
+ */
+public final class OriginWhiteList {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(OriginWhiteList.class);
+
+  private static final char CIDR_SEPARATOR = '/';
+
+  private static final char IPV6_SEPARATOR = ':';
+
+  public static final OriginWhiteList EMPTY = compile(Collections.<String>emptySet());
+
+  private final Set<String> entries;
+
+  private final IpAddressTrie addresses;
+
+  private final Set<String> hostNames;
+
+  private OriginWhiteList(Set<String> entries, IpAddressTrie addresses, Set<String> hostNames) {
+    this.entries = entries;
+    this.addresses = addresses;
+    this.hostNames = hostNames;
+  }
+
+  /**
+   * Parses the whitelist entries. Invalid CIDR blocks are logged and skipped.
+   * @param entries IP addresses, CIDR blocks or host names
+   * @return Compiled whitelist
+   */
+  public static OriginWhiteList compile(Collection<String> entries) {
+    IpAddressTrie addresses = new IpAddressTrie();
+    Set<String> hostNames = new HashSet<>();
+
+    for (String value : entries) {
+      String entry = value == null ? null : value.trim();
+
+      if (entry == null || entry.isEmpty()) {
+        continue;
+      }
+
+      int separator = entry.indexOf(CIDR_SEPARATOR);
+      String address = separator < 0 ? entry : entry.substring(0, separator);
+      byte[] bytes = parseAddress(address);
+
+      if (bytes == null) {
+        if (separator < 0) {
+          hostNames.add(entry.toLowerCase(Locale.ROOT));
+        } else {
+          LOGGER.warn("Invalid whitelist entry {}", entry);
+        }
+
+        continue;
+      }
+
+      int prefixLength = bytes.length * 8;
+
+      if (separator >= 0) {
+        prefixLength = parsePrefixLength(entry.substring(separator + 1), bytes.length * 8);
+
+        if (prefixLength < 0) {
+          LOGGER.warn("Invalid whitelist entry {}", entry);
+          continue;
+        }
+      }
+
+      addresses.add(bytes, prefixLength);
+    }
+
+    return new OriginWhiteList(Collections.unmodifiableSet(new HashSet<>(entries)), addresses,
+        Collections.unmodifiableSet(hostNames));
+  }
+
+  /**
+   * Returns the entries used to compile this whitelist.
+   */
+  public Set<String> getEntries() {
+    return entries;
+  }
+
+  /**
+   * Returns true if the whitelist has no valid entries.
+   */
+  public boolean isEmpty() {
+    return addresses.isEmpty() && hostNames.isEmpty();
+  }
+
+  /**
+   * Returns true if the whitelist has host names, so it's worth resolving the sender host name.
+   */
+  public boolean hasHostNames() {
+    return !hostNames.isEmpty();
+  }
+
+  /**
+   * Checks if an IP address belongs to the whitelist, either as an exact address or as part of a
+   * CIDR block.
+   * @param ipAddress IP address literal
+   * @return true if the address is allowed or false otherwise
+   */
+  public boolean containsAddress(String ipAddress) {
+    if (addresses.isEmpty() || ipAddress == null) {
+      return false;
+    }
+
+    long ipv4 = parseIpv4(ipAddress);
+
+    if (ipv4 >= 0) {
+      return addresses.containsIpv4((int) ipv4);
+    }
+
+    if (ipAddress.indexOf(IPV6_SEPARATOR) < 0) {
+      return false;
+    }
+
+    byte[] bytes = parseAddress(ipAddress);
+    return bytes != null && addresses.contains(bytes);
+  }
+
+  /**
+   * Checks if a host name belongs to the whitelist. Host names are case-insensitive.
+   * @param hostName Host name
+   * @return true if the host is allowed or false otherwise
+   */
+  public boolean containsHost(String hostName) {
+    return hostName != null && hostNames.contains(hostName.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Parses an IP address literal without any DNS lookup.
+   * @return Address bytes or null if the value is not an IP address
+   */
+  private static byte[] parseAddress(String value) {
+    try {
+      return InetAddresses.forString(value).getAddress();
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static int parsePrefixLength(String value, int maxLength) {
+    try {
+      int prefixLength = Integer.parseInt(value);
+      return prefixLength >= 0 && prefixLength <= maxLength ? prefixLength : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Parses a dotted IPv4 address without allocating any object.
+   * @return Address as an unsigned integer or -1 if the value is not an IPv4 address
+   */
+  static long parseIpv4(String value) {
+    long address = 0;
+    int octet = 0;
+    int digits = 0;
+    int octets = 0;
+
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+
+      if (c >= '0' && c <= '9') {
+        octet = octet * 10 + (c - '0');
+        digits++;
+
+        if (digits > 3 || octet > 255) {
+          return -1;
+        }
+      } else if (c == '.' && digits > 0 && octets < 3) {
+        address = (address << 8) | octet;
+        octets++;
+        octet = 0;
+        digits = 0;
+      } else {
+        return -1;
+      }
+    }
+
+    if (digits == 0 || octets != 3) {
+      return -1;
+    }
+
+    return (address << 8) | octet;
+  }
+
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.integration.core.whitelist;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.Integration;
+import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the compiled origin whitelist of each integration, already merged with the global
+ * whitelist.
+ *
+ * The snapshots are built when the integration is bootstrapped. Each lookup checks the snapshot
+ * against the current integration and global whitelists, and compiles it again only when they
+ * changed, so the whitelist applied by the integration on a configuration change is picked up by
+ * the next webhook request.
+ */
+@Component
+public class WhiteListRegistry {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WhiteListRegistry.class);
+
+  @Autowired
+  private ApplicationContext context;
+
+  @Autowired
+  private IntegrationProperties properties;
+
+  private final ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+  /**
+   * Builds the whitelist snapshot of the integration, replacing the previous one if any.
+   * @param integrationType Integration type
+   * @param integration Integration component
+   * @return Compiled whitelist
+   */
+  public OriginWhiteList register(String integrationType, Integration integration) {
+    Snapshot snapshot = compile(integration);
+    snapshots.put(integrationType, snapshot);
+
+    return snapshot.whiteList;
+  }
+
+  /**
+   * Removes the whitelist snapshot of an integration.
+   * @param integrationType Integration type
+   */
+  public void remove(String integrationType) {
+    snapshots.remove(integrationType);
+  }
+
+  /**
+   * Returns the whitelist of an integration. Integrations that weren't bootstrapped yet don't
+   * have a snapshot, so their whitelist is compiled on demand and not kept.
+   * @param integrationType Integration type
+   * @return Compiled whitelist
+   */
+  public OriginWhiteList getWhiteList(String integrationType) {
+    Snapshot snapshot = snapshots.get(integrationType);
+
+    if (snapshot != null) {
+      if (snapshot.isCurrent()) {
+        return snapshot.whiteList;
+      }
+
+      Snapshot updated = compile(snapshot.integration);
+      snapshots.replace(integrationType, snapshot, updated);
+
+      LOGGER.info("Whitelist of the integration {} changed. Entries: {}", integrationType,
+          updated.whiteList.getEntries());
+
+      return updated.whiteList;
+    }
+
+    Integration integration = null;
+
+    try {
+      integration = context.getBean(integrationType, Integration.class);
+    } catch (BeansException e) {
+      LOGGER.error("Cannot retrieve embedded " + integrationType + " whitelist");
+    }
+
+    return compile(integration).whiteList;
+  }
+
+  /**
+   * Merges the integration whitelist with the global whitelist.
+   */
+  private Snapshot compile(Integration integration) {
+    Set<String> integrationEntries = copyOf(
+        integration != null ? integration.getIntegrationWhiteList() : null);
+    Set<String> globalEntries = copyOf(properties.getGlobalWhiteList());
+
+    Set<String> entries = new HashSet<>(integrationEntries);
+    entries.addAll(globalEntries);
+
+    return new Snapshot(integration, integrationEntries, globalEntries,
+        OriginWhiteList.compile(entries));
+  }
+
+  private static Set<String> copyOf(Collection<String> entries) {
+    if (entries == null) {
+      return Collections.emptySet();
+    }
+
+    return new HashSet<>(entries);
+  }
+
+  /**
+   * Checks if the entries used to compile a snapshot are the same as the current ones.
+   */
+  private static boolean sameEntries(Set<String> compiled, Collection<String> current) {
+    if (current == null) {
+      return compiled.isEmpty();
+    }
+
+    if (current instanceof Set) {
+      return compiled.equals(current);
+    }
+
+    return compiled.equals(new HashSet<>(current));
+  }
+
+  /**
+   * Compiled whitelist and the entries used to compile it.
+   */
+  private final class Snapshot {
+
+    private final Integration integration;
+
+    private final Set<String> integrationEntries;
+
+    private final Set<String> globalEntries;
+
+    private final OriginWhiteList whiteList;
+
+    private Snapshot(Integration integration, Set<String> integrationEntries,
+        Set<String> globalEntries, OriginWhiteList whiteList) {
+      this.integration = integration;
+      this.integrationEntries = integrationEntries;
+      this.globalEntries = globalEntries;
+      this.whiteList = whiteList;
+    }
+
+    /**
+     * Returns true if neither the integration nor the global whitelist changed since the snapshot
+     * was compiled.
+     */
+    private boolean isCurrent() {
+      Collection<String> current =
+          integration != null ? integration.getIntegrationWhiteList() : null;
+
+      return sameEntries(integrationEntries, current)
+          && sameEntries(globalEntries, properties.getGlobalWhiteList());
+    }
+
+  }
+
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.bootstrap;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+import org.symphonyoss.integration.agent.api.client.AgentEndpoint;
+import org.symphonyoss.integration.agent.api.client.AgentEndpointBalancer;
+import org.symphonyoss.integration.authentication.AuthenticationProxy;
+import org.symphonyoss.integration.authentication.exception.UnregisteredUserAuthException;
+import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+/**
+ * Unit tests for {@link ConnectionWarmUp}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ConnectionWarmUpTest {
+
+  private static final String TEST_USER = "jiraWebHookIntegration";
+
+  private static final String AGENT_URL = "https://test.symphony.com:8444/agent";
+
+  private static final String POD_URL = "https://test.symphony.com:443/pod";
+
+  private static final String SECOND_AGENT_URL = "https://test2.symphony.com:8444/agent";
+
+  @Mock
+  private Environment environment;
+
+  @Mock
+  private IntegrationProperties properties;
+
+  @Mock
+  private AuthenticationProxy authenticationProxy;
+
+  @Mock
+  private AgentEndpointBalancer agentBalancer;
+
+  @Mock
+  private Client client;
+
+  @Mock
+  private WebTarget agentTarget;
+
+  @Mock
+  private WebTarget podTarget;
+
+  @Mock
+  private Invocation.Builder agentRequest;
+
+  @Mock
+  private Invocation.Builder podRequest;
+
+  @Mock
+  private Response response;
+
+  @InjectMocks
+  private ConnectionWarmUp warmUp = new ConnectionWarmUp();
+
+  @Before
+  public void init() {
+    doReturn(AGENT_URL).when(properties).getAgentUrl();
+    doReturn(POD_URL).when(properties).getPodUrl();
+    doReturn(Collections.emptyList()).when(agentBalancer).getEndpoints();
+
+    doReturn(client).when(authenticationProxy).httpClientForUser(TEST_USER);
+    doReturn(agentTarget).when(client).target(AGENT_URL);
+    doReturn(podTarget).when(client).target(POD_URL);
+    doReturn(agentRequest).when(agentTarget).request();
+    doReturn(podRequest).when(podTarget).request();
+    doReturn(response).when(agentRequest).head();
+  }
+
+  @After
+  public void cleanup() {
+    warmUp.destroy();
+  }
+
+  @Test
+  public void testDisabled() {
+    doReturn(Boolean.FALSE).when(environment)
+        .getProperty(ConnectionWarmUp.ENABLED_KEY, Boolean.class, Boolean.FALSE);
+
+    warmUp.init();
+    warmUp.warmUp(TEST_USER);
+
+    assertFalse(warmUp.isEnabled());
+    verify(authenticationProxy, never()).httpClientForUser(anyString());
+  }
+
+  @Test
+  public void testWarmUp() {
+    mockEnabled();
+    doThrow(ProcessingException.class).when(podRequest).head();
+
+    warmUp.warmUp(TEST_USER);
+
+    // failures on one of the services don't stop the warm-up
+    assertTrue(warmUp.isEnabled());
+    verify(agentRequest, times(3)).head();
+    verify(podRequest, times(3)).head();
+    verify(response, times(3)).close();
+  }
+
+  @Test
+  public void testWarmUpBalancedEndpoints() {
+    WebTarget secondAgentTarget = mock(WebTarget.class);
+    Invocation.Builder secondAgentRequest = mock(Invocation.Builder.class);
+
+    doReturn(Arrays.asList(new AgentEndpoint(AGENT_URL), new AgentEndpoint(SECOND_AGENT_URL)))
+        .when(agentBalancer).getEndpoints();
+    doReturn(secondAgentTarget).when(client).target(SECOND_AGENT_URL);
+    doReturn(secondAgentRequest).when(secondAgentTarget).request();
+    doReturn(response).when(secondAgentRequest).head();
+    doReturn(response).when(podRequest).head();
+
+    mockEnabled();
+    warmUp.warmUp(TEST_USER);
+
+    // the Agent URL from the YAML file is also a balanced endpoint, so it's warmed up only once
+    verify(agentRequest, times(3)).head();
+    verify(secondAgentRequest, times(3)).head();
+    verify(podRequest, times(3)).head();
+    verify(response, times(9)).close();
+  }
+
+  @Test
+  public void testUnregisteredUser() {
+    mockEnabled();
+    doThrow(UnregisteredUserAuthException.class).when(authenticationProxy)
+        .httpClientForUser(TEST_USER);
+
+    warmUp.warmUp(TEST_USER);
+
+    verify(client, never()).target(anyString());
+  }
+
+  private void mockEnabled() {
+    doReturn(Boolean.TRUE).when(environment)
+        .getProperty(ConnectionWarmUp.ENABLED_KEY, Boolean.class, Boolean.FALSE);
+    doReturn(3).when(environment).getProperty(ConnectionWarmUp.CONNECTIONS_KEY, Integer.class,
+        ConnectionWarmUp.DEFAULT_CONNECTIONS);
+    doReturn(5000L).when(environment).getProperty(ConnectionWarmUp.TIMEOUT_KEY, Long.class,
+        ConnectionWarmUp.DEFAULT_TIMEOUT);
+
+    warmUp.init();
+  }
+
+}
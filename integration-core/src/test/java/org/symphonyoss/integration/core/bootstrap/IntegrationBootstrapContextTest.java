@@ -40,6 +40,7 @@ import org.mockito.stubbing.Answer;
 import org.springframework.context.ApplicationContext;
 import org.symphonyoss.integration.Integration;
 import org.symphonyoss.integration.IntegrationStatus;
+import org.symphonyoss.integration.core.whitelist.WhiteListRegistry;
 import org.symphonyoss.integration.exception.IntegrationRuntimeException;
 import org.symphonyoss.integration.exception.authentication.ConnectivityException;
 import org.symphonyoss.integration.exception.bootstrap.RetryLifecycleException;
@@ -90,6 +91,12 @@ public class IntegrationBootstrapContextTest {
   @Mock
   private IntegrationMetricsController metricsController;
 
+  @Mock
+  private ConnectionWarmUp connectionWarmUp;
+
+  @Mock
+  private WhiteListRegistry whiteListRegistry;
+
   @InjectMocks
   private IntegrationBootstrapContext integrationBootstrapContext =
       new IntegrationBootstrapContext();
@@ -153,6 +160,9 @@ public class IntegrationBootstrapContextTest {
     Integration integration = this.integrationBootstrapContext.getIntegrationById(CONFIGURATION_ID);
     assertNotNull(integration);
     assertEquals(this.integration, integration);
+
+    verify(connectionWarmUp).warmUp(WEBHOOKINTEGRATION_TYPE_JIRA);
+    verify(whiteListRegistry).register(WEBHOOKINTEGRATION_TYPE_JIRA, integration);
   }
 
   /**
@@ -167,6 +177,7 @@ public class IntegrationBootstrapContextTest {
 
     this.integrationBootstrapContext.initIntegrations();
     assertNull(this.integrationBootstrapContext.getIntegrationById(CONFIGURATION_ID));
+    verify(whiteListRegistry).remove(WEBHOOKINTEGRATION_TYPE_JIRA);
   }
 
   /**
@@ -233,6 +244,7 @@ public class IntegrationBootstrapContextTest {
 
     this.integrationBootstrapContext.initIntegrations();
     assertNull(this.integrationBootstrapContext.getIntegrationById(CONFIGURATION_ID));
+    verify(whiteListRegistry).remove(WEBHOOKINTEGRATION_TYPE_JIRA);
   }
 
   /**
@@ -282,6 +294,7 @@ public class IntegrationBootstrapContextTest {
     this.integrationBootstrapContext.shutdown();
 
     assertNull(this.integrationBootstrapContext.getIntegrationById(CONFIGURATION_ID));
+    verify(whiteListRegistry).remove(WEBHOOKINTEGRATION_TYPE_JIRA);
   }
 
   /**
@@ -293,6 +306,7 @@ public class IntegrationBootstrapContextTest {
     this.integrationBootstrapContext.removeIntegration(CONFIGURATION_ID);
 
     assertNull(this.integrationBootstrapContext.getIntegrationById(CONFIGURATION_ID));
+    verify(whiteListRegistry).remove(WEBHOOKINTEGRATION_TYPE_JIRA);
   }
 
 }
\ No newline at end of file
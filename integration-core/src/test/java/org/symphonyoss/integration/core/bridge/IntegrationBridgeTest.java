@@ -24,20 +24,30 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 import org.symphonyoss.integration.authentication.AuthenticationProxy;
+import org.symphonyoss.integration.core.exception.MessagePostInterruptedException;
+import org.symphonyoss.integration.core.outbox.MessageOutbox;
 import org.symphonyoss.integration.exception.RemoteApiException;
+import org.symphonyoss.integration.exception.authentication.ConnectivityException;
 import org.symphonyoss.integration.model.config.IntegrationInstance;
 import org.symphonyoss.integration.model.message.Message;
 import org.symphonyoss.integration.service.IntegrationBridge;
@@ -46,6 +56,11 @@ import org.symphonyoss.integration.service.StreamService;
 import java.net.ConnectException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.ws.rs.ProcessingException;
 
@@ -71,6 +86,12 @@ public class IntegrationBridgeTest {
   @Mock
   private IntegrationBridgeExceptionHandler exceptionHandler;
 
+  @Mock
+  private OutboundMessageExecutor outboundExecutor;
+
+  @Mock
+  private MessageOutbox outbox;
+
   @InjectMocks
   private IntegrationBridge bridge = new IntegrationBridgeImpl();
 
@@ -179,4 +200,279 @@ public class IntegrationBridgeTest {
     assertTrue(result.isEmpty());
   }
 
+  @Test
+  public void testSendMessageInParallel() throws RemoteApiException {
+    mockParallelExecution();
+
+    Message message1 = mock(Message.class);
+    Message message2 = mock(Message.class);
+
+    doReturn(message1).when(streamService).postMessage(anyString(), eq("stream1"), any(Message.class));
+    doReturn(message2).when(streamService).postMessage(anyString(), eq("stream2"), any(Message.class));
+
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId("57756bca4b54433738037005");
+    instance.setInstanceId("1234");
+    instance.setOptionalProperties(OPTIONAL_PROPERTIES);
+
+    List<Message> result = bridge.sendMessage(instance, INTEGRATION_USER, "message");
+
+    assertEquals(2, result.size());
+    assertEquals(message1, result.get(0));
+    assertEquals(message2, result.get(1));
+  }
+
+  @Test
+  public void testSendMessageInParallelWithPostErrors() throws RemoteApiException {
+    mockParallelExecution();
+
+    doThrow(RemoteApiException.class).when(streamService).postMessage(anyString(), eq("stream1"),
+        any(Message.class));
+    doReturn(mock(Message.class)).when(streamService).postMessage(anyString(), eq("stream2"),
+        any(Message.class));
+
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId("57756bca4b54433738037005");
+    instance.setInstanceId("1234");
+    instance.setOptionalProperties(OPTIONAL_PROPERTIES);
+
+    List<Message> result = bridge.sendMessage(instance, INTEGRATION_USER, "message");
+
+    assertEquals(1, result.size());
+  }
+
+  @Test(expected = ConnectivityException.class)
+  public void testSendMessageInParallelConnectivityException() throws RemoteApiException {
+    mockParallelExecution();
+
+    doThrow(ConnectivityException.class).when(streamService).postMessage(anyString(), anyString(),
+        any(Message.class));
+
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId("57756bca4b54433738037005");
+    instance.setInstanceId("1234");
+    instance.setOptionalProperties(OPTIONAL_PROPERTIES);
+
+    bridge.sendMessage(instance, INTEGRATION_USER, "message");
+  }
+
+  @Test
+  public void testSendMessageInParallelAfterShutdown() throws RemoteApiException {
+    doReturn(4).when(outboundExecutor).getParallelism();
+    doThrow(new RejectedExecutionException("Outbound pool is shut down")).when(outboundExecutor)
+        .submit(any(Callable.class));
+
+    Message message1 = mock(Message.class);
+    Message message2 = mock(Message.class);
+
+    doReturn(message1).when(streamService).postMessage(anyString(), eq("stream1"), any(Message.class));
+    doReturn(message2).when(streamService).postMessage(anyString(), eq("stream2"), any(Message.class));
+
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId("57756bca4b54433738037005");
+    instance.setInstanceId("1234");
+    instance.setOptionalProperties(OPTIONAL_PROPERTIES);
+
+    List<Message> result = bridge.sendMessage(instance, INTEGRATION_USER, "message");
+
+    assertEquals(2, result.size());
+    assertEquals(message1, result.get(0));
+    assertEquals(message2, result.get(1));
+  }
+
+  @Test
+  public void testSendMessageInParallelInterrupted() throws RemoteApiException {
+    mockParallelExecution();
+
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId("57756bca4b54433738037005");
+    instance.setInstanceId("1234");
+    instance.setOptionalProperties(OPTIONAL_PROPERTIES);
+
+    Thread.currentThread().interrupt();
+
+    try {
+      bridge.sendMessage(instance, INTEGRATION_USER, "message");
+      Assert.fail();
+    } catch (MessagePostInterruptedException e) {
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+
+    verify(streamService, never()).postMessage(anyString(), anyString(), any(Message.class));
+  }
+
+  @Test
+  public void testSendMessageAsyncWithoutStreamsConfigured()
+      throws ExecutionException, InterruptedException {
+    doReturn(Collections.EMPTY_LIST).when(streamService).getStreams(any(IntegrationInstance.class));
+
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId("57756bca4b54433738037005");
+    instance.setInstanceId("1234");
+
+    ListenableFuture<List<Message>> result =
+        ((IntegrationBridgeImpl) bridge).sendMessageAsync(instance, INTEGRATION_USER, "message");
+
+    assertTrue(result.get().isEmpty());
+  }
+
+  @Test
+  public void testSendMessageAsyncWithPostErrors()
+      throws RemoteApiException, ExecutionException, InterruptedException {
+    mockAsyncExecution();
+
+    RemoteApiException exception = new RemoteApiException(403, "Forbidden");
+    Message message2 = mock(Message.class);
+
+    doThrow(exception).when(streamService).postMessage(anyString(), eq("stream1"),
+        any(Message.class));
+    doReturn(message2).when(streamService).postMessage(anyString(), eq("stream2"),
+        any(Message.class));
+
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId("57756bca4b54433738037005");
+    instance.setInstanceId("1234");
+    instance.setOptionalProperties(OPTIONAL_PROPERTIES);
+
+    List<Message> result =
+        ((IntegrationBridgeImpl) bridge).sendMessageAsync(instance, INTEGRATION_USER, "message")
+            .get();
+
+    assertEquals(1, result.size());
+    assertEquals(message2, result.get(0));
+    verify(exceptionHandler).handleRemoteApiException(any(RemoteApiException.class),
+        eq(instance), eq(INTEGRATION_USER), eq("message"), eq("stream1"));
+  }
+
+  @Test
+  public void testSendMessageAsyncConnectivityException()
+      throws RemoteApiException, InterruptedException {
+    mockAsyncExecution();
+
+    doThrow(ConnectivityException.class).when(streamService).postMessage(anyString(), anyString(),
+        any(Message.class));
+
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId("57756bca4b54433738037005");
+    instance.setInstanceId("1234");
+    instance.setOptionalProperties(OPTIONAL_PROPERTIES);
+
+    try {
+      ((IntegrationBridgeImpl) bridge).sendMessageAsync(instance, INTEGRATION_USER, "message")
+          .get();
+      Assert.fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof ConnectivityException);
+    }
+  }
+
+  @Test
+  public void testSendMessageStoredOnOutbox() throws RemoteApiException {
+    doReturn(true).when(outbox).isEnabled();
+    doReturn(true).when(outbox).append(anyString(), anyString(), anyString());
+    doThrow(ConnectivityException.class).when(streamService).postMessage(anyString(), eq("stream1"),
+        any(Message.class));
+    doReturn(mock(Message.class)).when(streamService).postMessage(anyString(), eq("stream2"),
+        any(Message.class));
+
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId("57756bca4b54433738037005");
+    instance.setInstanceId("1234");
+    instance.setOptionalProperties(OPTIONAL_PROPERTIES);
+
+    List<Message> result = bridge.sendMessage(instance, INTEGRATION_USER, "message");
+
+    assertEquals(1, result.size());
+    verify(outbox).append(INTEGRATION_USER, "stream1", "message");
+  }
+
+  @Test
+  public void testSendMessageWithPendingOutbox() throws RemoteApiException {
+    doReturn(true).when(outbox).isEnabled();
+    doReturn(true).when(outbox).hasPending("stream1");
+    doReturn(true).when(outbox).append(anyString(), anyString(), anyString());
+    doReturn(mock(Message.class)).when(streamService).postMessage(anyString(), anyString(),
+        any(Message.class));
+
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId("57756bca4b54433738037005");
+    instance.setInstanceId("1234");
+    instance.setOptionalProperties(OPTIONAL_PROPERTIES);
+
+    List<Message> result = bridge.sendMessage(instance, INTEGRATION_USER, "message");
+
+    assertEquals(1, result.size());
+    verify(outbox).append(INTEGRATION_USER, "stream1", "message");
+    verify(streamService, never()).postMessage(anyString(), eq("stream1"), any(Message.class));
+  }
+
+  private void mockAsyncExecution() {
+    doReturn(4).when(outboundExecutor).getParallelism();
+    doAnswer(new Answer<Boolean>() {
+      @Override
+      public Boolean answer(InvocationOnMock invocation) throws Throwable {
+        ((Runnable) invocation.getArguments()[0]).run();
+        return true;
+      }
+    }).when(outboundExecutor).tryExecute(any(Runnable.class));
+  }
+
+  @Test
+  public void testSendMessageAsyncParallelism() throws RemoteApiException, ExecutionException,
+      InterruptedException {
+    mockAsyncExecution();
+    doReturn(1).when(outboundExecutor).getParallelism();
+    doReturn(mock(Message.class)).when(streamService)
+        .postMessage(anyString(), anyString(), any(Message.class));
+
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId("57756bca4b54433738037005");
+    instance.setInstanceId("1234");
+    instance.setOptionalProperties(OPTIONAL_PROPERTIES);
+
+    List<Message> result =
+        ((IntegrationBridgeImpl) bridge).sendMessageAsync(instance, INTEGRATION_USER, "message")
+            .get();
+
+    // a single worker posts both streams
+    assertEquals(2, result.size());
+    verify(outboundExecutor, times(1)).tryExecute(any(Runnable.class));
+  }
+
+  @Test
+  public void testSendMessageAsyncRejected() throws RemoteApiException, InterruptedException {
+    doReturn(4).when(outboundExecutor).getParallelism();
+    doReturn(false).when(outboundExecutor).tryExecute(any(Runnable.class));
+
+    IntegrationInstance instance = new IntegrationInstance();
+    instance.setConfigurationId("57756bca4b54433738037005");
+    instance.setInstanceId("1234");
+    instance.setOptionalProperties(OPTIONAL_PROPERTIES);
+
+    try {
+      ((IntegrationBridgeImpl) bridge).sendMessageAsync(instance, INTEGRATION_USER, "message")
+          .get();
+      Assert.fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+    // the posts never run on the caller thread
+    verify(streamService, never()).postMessage(anyString(), anyString(), any(Message.class));
+  }
+
+  private void mockParallelExecution() {
+    doReturn(4).when(outboundExecutor).getParallelism();
+    doAnswer(new Answer<Future<?>>() {
+      @Override
+      public Future<?> answer(InvocationOnMock invocation) throws Throwable {
+        FutureTask<?> task = new FutureTask<>((Callable<?>) invocation.getArguments()[0]);
+        task.run();
+        return task;
+      }
+    }).when(outboundExecutor).submit(any(Callable.class));
+  }
+
 }
@@ -0,0 +1,160 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+import org.symphonyoss.integration.exception.RemoteApiException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Unit tests for {@link MessageRetryEngine}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MessageRetryEngineTest {
+
+  private static final String INTEGRATION_USER = "jiraWebHookIntegration";
+
+  private static final String RESULT = "result";
+
+  @Mock
+  private Environment environment;
+
+  @Spy
+  private MetricRegistry metricsRegistry = new MetricRegistry();
+
+  @InjectMocks
+  private MessageRetryEngine retryEngine = new MessageRetryEngine();
+
+  @Before
+  public void init() {
+    doReturn(3).when(environment).getProperty(MessageRetryEngine.MAX_ATTEMPTS_KEY, Integer.class,
+        MessageRetryEngine.DEFAULT_MAX_ATTEMPTS);
+    doReturn(0L).when(environment).getProperty(MessageRetryEngine.INITIAL_BACKOFF_KEY, Long.class,
+        MessageRetryEngine.DEFAULT_INITIAL_BACKOFF);
+    doReturn(0L).when(environment).getProperty(MessageRetryEngine.MAX_BACKOFF_KEY, Long.class,
+        MessageRetryEngine.DEFAULT_MAX_BACKOFF);
+    doReturn(0.1).when(environment).getProperty(MessageRetryEngine.BUDGET_RATIO_KEY, Double.class,
+        MessageRetryEngine.DEFAULT_BUDGET_RATIO);
+    doReturn(2.0).when(environment).getProperty(MessageRetryEngine.BUDGET_MAX_TOKENS_KEY,
+        Double.class, MessageRetryEngine.DEFAULT_BUDGET_MAX_TOKENS);
+
+    retryEngine.init();
+  }
+
+  @Test
+  public void testRetryUntilSuccess() throws RemoteApiException {
+    FailingCall call = new FailingCall(new RemoteApiException(503, "Service Unavailable"), 1);
+
+    assertEquals(RESULT, retryEngine.execute(INTEGRATION_USER, call));
+    assertEquals(2, call.attempts.get());
+    assertEquals(1, metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, INTEGRATION_USER,
+        "messageRetry", "retries")).getCount());
+  }
+
+  @Test
+  public void testNonRetryableStatus() {
+    FailingCall call = new FailingCall(new RemoteApiException(400, "Bad Request"), 1);
+
+    try {
+      retryEngine.execute(INTEGRATION_USER, call);
+      fail();
+    } catch (RemoteApiException e) {
+      assertEquals(400, e.getCode());
+      assertEquals(1, call.attempts.get());
+    }
+  }
+
+  @Test
+  public void testMaxAttempts() throws RemoteApiException {
+    FailingCall call =
+        new FailingCall(new ProcessingException("Connection refused"), Integer.MAX_VALUE);
+
+    try {
+      retryEngine.execute(INTEGRATION_USER, call);
+      fail();
+    } catch (ProcessingException e) {
+      assertEquals(3, call.attempts.get());
+    }
+  }
+
+  @Test
+  public void testBudgetExhausted() {
+    FailingCall call = new FailingCall(new RemoteApiException(502, "Bad Gateway"), Integer.MAX_VALUE);
+
+    // the budget allows two retries, the first call consumes both of them
+    for (int i = 0; i < 2; i++) {
+      try {
+        retryEngine.execute(INTEGRATION_USER, call);
+        fail();
+      } catch (RemoteApiException e) {
+        assertEquals(502, e.getCode());
+      }
+    }
+
+    assertEquals(4, call.attempts.get());
+    assertEquals(1, metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, INTEGRATION_USER,
+        "messageRetry", "budgetExhausted")).getCount());
+  }
+
+  /**
+   * Call that fails a given number of times before returning the result.
+   */
+  private static final class FailingCall implements MessageRetryEngine.RetryableCall<String> {
+
+    private final Exception failure;
+
+    private final int failures;
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private FailingCall(Exception failure, int failures) {
+      this.failure = failure;
+      this.failures = failures;
+    }
+
+    @Override
+    public String call() throws RemoteApiException {
+      if (attempts.incrementAndGet() > failures) {
+        return RESULT;
+      }
+
+      if (failure instanceof RemoteApiException) {
+        throw (RemoteApiException) failure;
+      }
+
+      throw (RuntimeException) failure;
+    }
+
+  }
+
+}
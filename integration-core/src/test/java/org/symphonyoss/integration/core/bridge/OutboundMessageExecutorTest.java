@@ -0,0 +1,163 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.bridge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Unit tests for {@link OutboundMessageExecutor}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class OutboundMessageExecutorTest {
+
+  @Mock
+  private Environment environment;
+
+  @InjectMocks
+  private OutboundMessageExecutor executor = new OutboundMessageExecutor();
+
+  @Before
+  public void init() {
+    doReturn(2).when(environment).getProperty(OutboundMessageExecutor.POOL_SIZE_KEY,
+        Integer.class, OutboundMessageExecutor.DEFAULT_POOL_SIZE);
+    doReturn(10).when(environment).getProperty(OutboundMessageExecutor.QUEUE_CAPACITY_KEY,
+        Integer.class, OutboundMessageExecutor.DEFAULT_QUEUE_CAPACITY);
+    doReturn(8).when(environment).getProperty(OutboundMessageExecutor.PARALLELISM_KEY,
+        Integer.class, OutboundMessageExecutor.DEFAULT_PARALLELISM);
+
+    executor.init();
+  }
+
+  @After
+  public void cleanup() {
+    executor.destroy();
+  }
+
+  @Test
+  public void testParallelism() {
+    assertEquals(8, executor.getParallelism());
+  }
+
+  @Test
+  public void testSubmit() throws ExecutionException, InterruptedException {
+    Future<String> future = executor.submit(new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        return "result";
+      }
+    });
+
+    assertEquals("result", future.get());
+  }
+
+  @Test(expected = ExecutionException.class)
+  public void testSubmitFailure() throws ExecutionException, InterruptedException {
+    Future<String> future = executor.submit(new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        throw new IllegalStateException();
+      }
+    });
+
+    future.get();
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void testSubmitAfterDestroy() {
+    executor.destroy();
+
+    executor.submit(new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        return "result";
+      }
+    });
+  }
+
+  @Test
+  public void testSubmitAsync() throws ExecutionException, InterruptedException {
+    Future<String> future = executor.submitAsync(new Callable<String>() {
+      @Override
+      public String call() throws Exception {
+        return "result";
+      }
+    });
+
+    assertEquals("result", future.get());
+  }
+
+  @Test
+  public void testSubmitAsyncSaturated() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+
+    Runnable blocked = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+
+    try {
+      // two workers and ten queue slots
+      for (int i = 0; i < 12; i++) {
+        assertTrue(executor.tryExecute(blocked));
+      }
+
+      assertFalse(executor.tryExecute(blocked));
+
+      Future<String> future = executor.submitAsync(new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          return "result";
+        }
+      });
+
+      try {
+        future.get();
+        fail();
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+      }
+    } finally {
+      release.countDown();
+    }
+  }
+
+}
@@ -19,19 +19,28 @@ package org.symphonyoss.integration.core.bridge;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 
+import org.junit.Before;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.symphonyoss.integration.agent.api.client.AgentApiClient;
 import org.symphonyoss.integration.agent.api.client.MessageApiClient;
 import org.symphonyoss.integration.authentication.AuthenticationProxy;
 import org.symphonyoss.integration.authentication.AuthenticationToken;
+import org.symphonyoss.integration.config.event.IntegrationInstanceUpdatedEvent;
 import org.symphonyoss.integration.exception.RemoteApiException;
 import org.symphonyoss.integration.model.config.IntegrationInstance;
 import org.symphonyoss.integration.model.message.Message;
@@ -40,6 +49,8 @@ import org.symphonyoss.integration.model.stream.StreamType;
 import org.symphonyoss.integration.pod.api.client.StreamApiClient;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Test class responsible to test the flows in the Stream Service.
@@ -58,15 +69,41 @@ public class StreamServiceTest {
   @Mock
   private AuthenticationProxy authenticationProxy;
 
+  @Mock
+  private AgentApiClient agentApiClient;
+
   @Mock
   private MessageApiClient messagesApi;
 
   @Mock
   private StreamApiClient streamsApi;
 
+  @Mock
+  private OutboundMessageExecutor outboundExecutor;
+
+  @Mock
+  private MessageRetryEngine retryEngine;
+
   @InjectMocks
   private StreamServiceImpl streamService = new StreamServiceImpl();
 
+  @Before
+  public void init() throws RemoteApiException {
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        return ((MessageRetryEngine.RetryableCall<?>) invocation.getArguments()[1]).call();
+      }
+    }).when(retryEngine).execute(anyString(), any(MessageRetryEngine.RetryableCall.class));
+
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        return ((AgentApiClient.AgentRequest<?>) invocation.getArguments()[0]).execute();
+      }
+    }).when(agentApiClient).invoke(any(AgentApiClient.AgentRequest.class));
+  }
+
   @Test
   public void testGetStreamsEmpty() {
     IntegrationInstance instance = mockInstance();
@@ -100,6 +137,39 @@ public class StreamServiceTest {
     assertEquals("stream2", streams.get(1));
   }
 
+  @Test
+  public void testGetCachedStreams() {
+    IntegrationInstance instance = mockInstance();
+    instance.setOptionalProperties("{ \"streams\": [ \"stream1\", \"stream2\"] }");
+
+    List<String> streams = streamService.getStreams(instance);
+    streams.remove("stream1");
+
+    // the cached list must not be changed by the caller
+    streams = streamService.getStreams(instance);
+    assertEquals(2, streams.size());
+
+    instance.setOptionalProperties("{ \"streams\": [ \"stream3\"] }");
+    streams = streamService.getStreams(instance);
+    assertEquals(1, streams.size());
+    assertEquals("stream3", streams.get(0));
+  }
+
+  @Test
+  public void testInvalidateStreamSettings() {
+    IntegrationInstance instance = mockInstance();
+    instance.setOptionalProperties(
+        "{ \"streams\": [ \"stream1\"], \"streamType\": \"CHATROOM\" }");
+
+    assertEquals(StreamType.CHATROOM, streamService.getStreamType(instance));
+
+    streamService.onApplicationEvent(
+        new IntegrationInstanceUpdatedEvent(this, instance.getInstanceId()));
+
+    assertEquals(StreamType.CHATROOM, streamService.getStreamType(instance));
+    assertEquals(1, streamService.getStreams(instance).size());
+  }
+
   @Test
   public void testGetInvalidStreamType() {
     IntegrationInstance instance = mockInstance();
@@ -158,6 +228,51 @@ public class StreamServiceTest {
     assertEquals(message, result);
   }
 
+  @Test
+  public void testPostMessageAsync()
+      throws RemoteApiException, ExecutionException, InterruptedException {
+    mockAsyncExecution();
+
+    Message message = new Message();
+    when(authenticationProxy.getToken(INTEGRATION_USER)).thenReturn(
+        AuthenticationToken.VOID_AUTH_TOKEN);
+    when(messagesApi.postMessage(anyString(), anyString(), anyString(),
+        any(Message.class))).thenReturn(message);
+
+    ListenableFuture<Message> result =
+        streamService.postMessageAsync(INTEGRATION_USER, STREAM, new Message());
+    assertEquals(message, result.get());
+  }
+
+  @Test
+  public void testPostMessageAsyncApiException() throws RemoteApiException, InterruptedException {
+    mockAsyncExecution();
+
+    when(authenticationProxy.getToken(INTEGRATION_USER)).thenReturn(
+        AuthenticationToken.VOID_AUTH_TOKEN);
+    doThrow(RemoteApiException.class).when(messagesApi)
+        .postMessage(anyString(), anyString(), anyString(), any(Message.class));
+
+    try {
+      streamService.postMessageAsync(INTEGRATION_USER, STREAM, new Message()).get();
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RemoteApiException);
+    }
+  }
+
+  private void mockAsyncExecution() {
+    doAnswer(new Answer<ListenableFuture<?>>() {
+      @Override
+      public ListenableFuture<?> answer(InvocationOnMock invocation) throws Throwable {
+        ListenableFutureTask<?> task =
+            ListenableFutureTask.create((Callable<?>) invocation.getArguments()[0]);
+        task.run();
+        return task;
+      }
+    }).when(outboundExecutor).submitAsync(any(Callable.class));
+  }
+
   @Test(expected = RemoteApiException.class)
   public void testCreateIMApiException() throws RemoteApiException {
     when(authenticationProxy.isAuthenticated(INTEGRATION_USER)).thenReturn(true);
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doReturn;
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+
+/**
+ * Unit tests for {@link CircuitBreakerRegistry}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CircuitBreakerRegistryTest {
+
+  private static final String INTEGRATION = "jiraWebHookIntegration";
+
+  @Mock
+  private Environment environment;
+
+  @Spy
+  private MetricRegistry metricsRegistry = new MetricRegistry();
+
+  @InjectMocks
+  private CircuitBreakerRegistry registry = new CircuitBreakerRegistry();
+
+  @Before
+  public void init() {
+    doReturn(2).when(environment).getProperty(CircuitBreakerRegistry.WINDOW_SIZE_KEY,
+        Integer.class, CircuitBreakerRegistry.DEFAULT_WINDOW_SIZE);
+    doReturn(2).when(environment).getProperty(CircuitBreakerRegistry.MINIMUM_CALLS_KEY,
+        Integer.class, CircuitBreakerRegistry.DEFAULT_MINIMUM_CALLS);
+    doReturn(50).when(environment).getProperty(CircuitBreakerRegistry.FAILURE_RATE_KEY,
+        Integer.class, CircuitBreakerRegistry.DEFAULT_FAILURE_RATE);
+    doReturn(60000L).when(environment).getProperty(CircuitBreakerRegistry.OPEN_TIMEOUT_KEY,
+        Long.class, CircuitBreakerRegistry.DEFAULT_OPEN_TIMEOUT);
+    doReturn(1).when(environment).getProperty(CircuitBreakerRegistry.HALF_OPEN_PROBES_KEY,
+        Integer.class, CircuitBreakerRegistry.DEFAULT_HALF_OPEN_PROBES);
+
+    registry.init();
+  }
+
+  @Test
+  public void testCircuitBreakerPerDownstream() {
+    CircuitBreaker agent = registry.getCircuitBreaker(INTEGRATION, Downstream.AGENT);
+    CircuitBreaker pod = registry.getCircuitBreaker(INTEGRATION, Downstream.POD);
+
+    assertSame(agent, registry.getCircuitBreaker(INTEGRATION, Downstream.AGENT));
+    assertNotSame(agent, pod);
+    assertEquals(2, registry.getCircuitBreakers().size());
+
+    agent.onFailure();
+    agent.onFailure();
+
+    assertEquals(CircuitBreaker.State.OPEN, agent.getState());
+    assertEquals(CircuitBreaker.State.CLOSED, pod.getState());
+  }
+
+  @Test
+  public void testMetrics() {
+    CircuitBreaker agent = registry.getCircuitBreaker(INTEGRATION, Downstream.AGENT);
+    agent.onFailure();
+    agent.onFailure();
+
+    String prefix = MetricRegistry.name(BASE_METRIC_NAME, "circuitBreaker", INTEGRATION, "agent");
+
+    Gauge state = metricsRegistry.getGauges().get(MetricRegistry.name(prefix, "state"));
+    assertEquals("OPEN", state.getValue());
+    assertEquals(1, metricsRegistry.meter(MetricRegistry.name(prefix, "open")).getCount());
+  }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.circuit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ * Unit tests for {@link CircuitBreaker}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CircuitBreakerTest {
+
+  private static final String NAME = "jiraWebHookIntegration.agent";
+
+  @Mock
+  private CircuitBreaker.StateListener listener;
+
+  @Test
+  public void testMinimumCalls() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(NAME, 10, 4, 50, 60000L, 1, listener);
+
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    assertTrue(circuitBreaker.tryAcquire());
+
+    circuitBreaker.onFailure();
+
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.tryAcquire());
+    verify(listener).onStateChange(circuitBreaker, CircuitBreaker.State.CLOSED,
+        CircuitBreaker.State.OPEN);
+  }
+
+  @Test
+  public void testFailureRateBelowThreshold() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(NAME, 4, 4, 50, 60000L, 1, listener);
+
+    circuitBreaker.onSuccess();
+    circuitBreaker.onSuccess();
+    circuitBreaker.onSuccess();
+    circuitBreaker.onFailure();
+
+    assertEquals(25, circuitBreaker.getFailureRate());
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  public void testSlidingWindow() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(NAME, 4, 4, 75, 60000L, 1, listener);
+
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+    circuitBreaker.onSuccess();
+    circuitBreaker.onSuccess();
+    assertEquals(50, circuitBreaker.getFailureRate());
+
+    // the oldest failures leave the window
+    circuitBreaker.onSuccess();
+    circuitBreaker.onSuccess();
+    assertEquals(0, circuitBreaker.getFailureRate());
+
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+  }
+
+  @Test
+  public void testHalfOpenProbes() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(NAME, 2, 2, 50, 0L, 2, listener);
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+
+    assertTrue(circuitBreaker.tryAcquire());
+    assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    assertTrue(circuitBreaker.tryAcquire());
+    assertFalse(circuitBreaker.tryAcquire());
+
+    circuitBreaker.onSuccess();
+    assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+    circuitBreaker.onSuccess();
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    assertEquals(0, circuitBreaker.getFailureRate());
+    verify(listener).onStateChange(circuitBreaker, CircuitBreaker.State.HALF_OPEN,
+        CircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  public void testHalfOpenFailure() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(NAME, 2, 2, 50, 0L, 2, listener);
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+
+    assertTrue(circuitBreaker.tryAcquire());
+    circuitBreaker.onFailure();
+
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    verify(listener).onStateChange(circuitBreaker, CircuitBreaker.State.HALF_OPEN,
+        CircuitBreaker.State.OPEN);
+  }
+
+  @Test
+  public void testHalfOpenIgnored() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(NAME, 2, 2, 50, 0L, 1, listener);
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+
+    assertTrue(circuitBreaker.tryAcquire());
+    assertFalse(circuitBreaker.tryAcquire());
+
+    // the probe is given back
+    circuitBreaker.onIgnored();
+    assertTrue(circuitBreaker.tryAcquire());
+  }
+
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.outbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+import org.symphonyoss.integration.authentication.AuthenticationProxy;
+import org.symphonyoss.integration.exception.RemoteApiException;
+import org.symphonyoss.integration.model.message.Message;
+import org.symphonyoss.integration.service.StreamService;
+
+import java.io.IOException;
+
+/**
+ * Unit tests for {@link MessageOutbox}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MessageOutboxTest {
+
+  private static final String INTEGRATION_USER = "jiraWebHookIntegration";
+
+  private static final String STREAM = "stream1";
+
+  private static final String OTHER_STREAM = "stream2";
+
+  private static final int MAX_ATTEMPTS = 3;
+
+  private static final long BACKOFF = 1L;
+
+  private static final String MESSAGE = "<messageML>message</messageML>";
+
+  private static final int UNAUTHORIZED = 401;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Mock
+  private Environment environment;
+
+  @Mock
+  private StreamService streamService;
+
+  @Mock
+  private AuthenticationProxy authenticationProxy;
+
+  @Spy
+  private MetricRegistry metricsRegistry = new MetricRegistry();
+
+  @InjectMocks
+  private MessageOutbox outbox = new MessageOutbox();
+
+  @Before
+  public void init() throws IOException {
+    String directory = folder.newFolder("outbox").getAbsolutePath();
+
+    doReturn(Boolean.TRUE).when(environment).getProperty(MessageOutbox.ENABLED_KEY, Boolean.class,
+        Boolean.FALSE);
+    doReturn(directory).when(environment).getProperty(MessageOutbox.DIRECTORY_KEY,
+        MessageOutbox.DEFAULT_DIRECTORY);
+    doReturn(MessageOutbox.DEFAULT_SEGMENT_BYTES).when(environment).getProperty(
+        MessageOutbox.SEGMENT_BYTES_KEY, Long.class, MessageOutbox.DEFAULT_SEGMENT_BYTES);
+    doReturn(MessageOutbox.DEFAULT_MAX_BYTES).when(environment).getProperty(
+        MessageOutbox.MAX_BYTES_KEY, Long.class, MessageOutbox.DEFAULT_MAX_BYTES);
+    doReturn(FsyncPolicy.NEVER).when(environment).getProperty(MessageOutbox.FSYNC_POLICY_KEY,
+        FsyncPolicy.class, MessageOutbox.DEFAULT_FSYNC_POLICY);
+    // keeps the scheduled drainer away from the test
+    doReturn(Long.MAX_VALUE / 2).when(environment).getProperty(MessageOutbox.DRAIN_INTERVAL_KEY,
+        Long.class, MessageOutbox.DEFAULT_DRAIN_INTERVAL);
+
+    doReturn(MAX_ATTEMPTS).when(environment).getProperty(MessageOutbox.STREAM_MAX_ATTEMPTS_KEY,
+        Integer.class, MessageOutbox.DEFAULT_STREAM_MAX_ATTEMPTS);
+    doReturn(BACKOFF).when(environment).getProperty(MessageOutbox.STREAM_INITIAL_BACKOFF_KEY,
+        Long.class, MessageOutbox.DEFAULT_STREAM_INITIAL_BACKOFF);
+    doReturn(BACKOFF).when(environment).getProperty(MessageOutbox.STREAM_MAX_BACKOFF_KEY,
+        Long.class, MessageOutbox.DEFAULT_STREAM_MAX_BACKOFF);
+
+    doReturn(true).when(authenticationProxy).sessionUnauthorized(UNAUTHORIZED);
+
+    outbox.init();
+  }
+
+  @After
+  public void destroy() {
+    outbox.destroy();
+  }
+
+  @Test
+  public void testDrain() throws RemoteApiException {
+    assertTrue(outbox.append(INTEGRATION_USER, STREAM, MESSAGE));
+    assertTrue(outbox.hasPending(STREAM));
+
+    outbox.drain();
+
+    verify(streamService, times(1)).postMessage(eq(INTEGRATION_USER), eq(STREAM),
+        any(Message.class));
+    assertFalse(outbox.hasPending(STREAM));
+    assertEquals(1, getMeterCount("drained"));
+  }
+
+  @Test
+  public void testDrainReAuthenticatesOnUnauthorized() throws RemoteApiException {
+    RemoteApiException unauthorized = new RemoteApiException(UNAUTHORIZED, "Unauthorized");
+    doThrow(unauthorized).doReturn(new Message()).when(streamService)
+        .postMessage(eq(INTEGRATION_USER), eq(STREAM), any(Message.class));
+
+    outbox.append(INTEGRATION_USER, STREAM, MESSAGE);
+    outbox.drain();
+
+    verify(authenticationProxy, times(1)).reAuthOrThrow(INTEGRATION_USER, UNAUTHORIZED,
+        unauthorized);
+    verify(streamService, times(2)).postMessage(eq(INTEGRATION_USER), eq(STREAM),
+        any(Message.class));
+    assertFalse(outbox.hasPending(STREAM));
+    assertEquals(1, getMeterCount("drained"));
+    assertEquals(0, getMeterCount("dropped"));
+  }
+
+  @Test
+  public void testDrainKeepsMessageWhileUnauthorized() throws RemoteApiException {
+    doThrow(new RemoteApiException(UNAUTHORIZED, "Unauthorized")).when(streamService)
+        .postMessage(eq(INTEGRATION_USER), eq(STREAM), any(Message.class));
+
+    outbox.append(INTEGRATION_USER, STREAM, MESSAGE);
+    outbox.append(INTEGRATION_USER, STREAM, MESSAGE);
+    outbox.drain();
+
+    // the stream is put on hold on the first message and both of them are kept
+    verify(streamService, times(2)).postMessage(eq(INTEGRATION_USER), eq(STREAM),
+        any(Message.class));
+    assertTrue(outbox.hasPending(STREAM));
+    assertEquals(0, getMeterCount("dropped"));
+  }
+
+  @Test
+  public void testDrainKeepsMessageOnServerError() throws RemoteApiException {
+    doThrow(new RemoteApiException(503, "Service Unavailable")).when(streamService)
+        .postMessage(eq(INTEGRATION_USER), eq(STREAM), any(Message.class));
+
+    outbox.append(INTEGRATION_USER, STREAM, MESSAGE);
+    outbox.drain();
+
+    verify(authenticationProxy, never()).reAuthOrThrow(eq(INTEGRATION_USER), anyInt(),
+        any(Exception.class));
+    assertTrue(outbox.hasPending(STREAM));
+    assertEquals(0, getMeterCount("dropped"));
+  }
+
+  @Test
+  public void testDrainDiscardsPermanentError() throws RemoteApiException {
+    doThrow(new RemoteApiException(404, "Not Found")).when(streamService)
+        .postMessage(eq(INTEGRATION_USER), eq(STREAM), any(Message.class));
+
+    outbox.append(INTEGRATION_USER, STREAM, MESSAGE);
+    outbox.drain();
+
+    assertFalse(outbox.hasPending(STREAM));
+    assertEquals(1, getMeterCount("dropped"));
+  }
+
+  @Test
+  public void testDrainHoldsOnlyTheFailingStream() throws Exception {
+    doThrow(new RemoteApiException(503, "Service Unavailable")).when(streamService)
+        .postMessage(eq(INTEGRATION_USER), eq(STREAM), any(Message.class));
+
+    outbox.append(INTEGRATION_USER, STREAM, MESSAGE);
+    outbox.append(INTEGRATION_USER, OTHER_STREAM, MESSAGE);
+    outbox.append(INTEGRATION_USER, STREAM, MESSAGE);
+    outbox.append(INTEGRATION_USER, OTHER_STREAM, MESSAGE);
+
+    outbox.drain();
+
+    verify(streamService, times(1)).postMessage(eq(INTEGRATION_USER), eq(STREAM),
+        any(Message.class));
+    verify(streamService, times(2)).postMessage(eq(INTEGRATION_USER), eq(OTHER_STREAM),
+        any(Message.class));
+    assertTrue(outbox.hasPending(STREAM));
+    assertFalse(outbox.hasPending(OTHER_STREAM));
+
+    Thread.sleep(BACKOFF * 10);
+
+    outbox.append(INTEGRATION_USER, OTHER_STREAM, MESSAGE);
+    outbox.drain();
+
+    verify(streamService, times(2)).postMessage(eq(INTEGRATION_USER), eq(STREAM),
+        any(Message.class));
+    verify(streamService, times(3)).postMessage(eq(INTEGRATION_USER), eq(OTHER_STREAM),
+        any(Message.class));
+    assertTrue(outbox.hasPending(STREAM));
+    assertFalse(outbox.hasPending(OTHER_STREAM));
+    assertEquals(3, getMeterCount("drained"));
+  }
+
+  @Test
+  public void testDrainDiscardsAfterMaxAttempts() throws Exception {
+    doThrow(new RemoteApiException(503, "Service Unavailable")).when(streamService)
+        .postMessage(eq(INTEGRATION_USER), eq(STREAM), any(Message.class));
+
+    outbox.append(INTEGRATION_USER, STREAM, MESSAGE);
+    outbox.append(INTEGRATION_USER, STREAM, MESSAGE);
+
+    for (int i = 0; i < MAX_ATTEMPTS; i++) {
+      outbox.drain();
+      Thread.sleep(BACKOFF * 10);
+    }
+
+    // the next message is tried right away and gets a new set of attempts
+    verify(streamService, times(MAX_ATTEMPTS + 1)).postMessage(eq(INTEGRATION_USER), eq(STREAM),
+        any(Message.class));
+    assertEquals(1, getMeterCount("dropped"));
+    assertTrue(outbox.hasPending(STREAM));
+  }
+
+  private long getMeterCount(String name) {
+    return metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, "outbox", name)).getCount();
+  }
+
+}
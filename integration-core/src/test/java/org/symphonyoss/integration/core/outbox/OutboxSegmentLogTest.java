@@ -0,0 +1,241 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.outbox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link OutboxSegmentLog}
+ */
+public class OutboxSegmentLogTest {
+
+  private static final String INTEGRATION_USER = "jiraWebHookIntegration";
+
+  private static final long SEGMENT_BYTES = 256;
+
+  private static final long MAX_BYTES = 1024 * 1024;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path directory;
+
+  @Before
+  public void init() throws IOException {
+    this.directory = folder.newFolder("outbox").toPath();
+  }
+
+  @Test
+  public void testAppendAndRead() throws IOException {
+    try (OutboxSegmentLog log = openLog(MAX_BYTES)) {
+      log.append(record("stream1", "message1").toBytes());
+      log.append(record("stream2", "message2").toBytes());
+
+      OutboxEntry entry = log.readNext();
+      assertEquals("stream1", entry.getRecord().getStream());
+      assertEquals("message1", entry.getRecord().getMessage());
+      assertEquals(INTEGRATION_USER, entry.getRecord().getIntegrationUser());
+
+      assertTrue(log.commit(entry, false));
+
+      entry = log.readNext();
+      assertEquals("message2", entry.getRecord().getMessage());
+
+      log.commit(entry, false);
+      assertNull(log.readNext());
+    }
+  }
+
+  @Test
+  public void testResumeFromCheckpoint() throws IOException {
+    try (OutboxSegmentLog log = openLog(MAX_BYTES)) {
+      for (int i = 0; i < 10; i++) {
+        log.append(record("stream1", "message" + i).toBytes());
+      }
+
+      OutboxEntry entry = log.readNext();
+      log.commit(entry, true);
+    }
+
+    try (OutboxSegmentLog log = openLog(MAX_BYTES)) {
+      assertEquals("message1", log.readNext().getRecord().getMessage());
+
+      Map<String, Long> pending = log.countPendingByStream();
+      assertEquals(Long.valueOf(9), pending.get("stream1"));
+    }
+  }
+
+  @Test
+  public void testRecoverPartialRecord() throws IOException {
+    try (OutboxSegmentLog log = openLog(MAX_BYTES)) {
+      log.append(record("stream1", "message1").toBytes());
+    }
+
+    // simulates a crash in the middle of an append
+    Path segment = directory.resolve(String.format("%020d", 0) + OutboxSegmentLog.SEGMENT_SUFFIX);
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 50, 1, 2}));
+    }
+
+    try (OutboxSegmentLog log = openLog(MAX_BYTES)) {
+      assertEquals(Long.valueOf(1), log.countPendingByStream().get("stream1"));
+
+      log.append(record("stream1", "message2").toBytes());
+      assertEquals(Long.valueOf(2), log.countPendingByStream().get("stream1"));
+    }
+  }
+
+  @Test
+  public void testCommitOutOfOrder() throws IOException {
+    try (OutboxSegmentLog log = openLog(MAX_BYTES)) {
+      log.append(record("stream1", "message1").toBytes());
+      log.append(record("stream2", "message2").toBytes());
+      log.append(record("stream1", "message3").toBytes());
+
+      OutboxEntry first = log.readNext();
+      OutboxEntry second = log.readFrom(first.getNextOffset());
+
+      assertTrue(log.commit(second, false));
+      assertFalse(log.commit(second, false));
+
+      // the read position stays on the first record, the committed one is skipped
+      assertEquals("message1", log.readNext().getRecord().getMessage());
+      assertEquals("message3", log.readFrom(first.getNextOffset()).getRecord().getMessage());
+
+      assertTrue(log.commit(first, true));
+      assertEquals("message3", log.readNext().getRecord().getMessage());
+    }
+  }
+
+  @Test
+  public void testSkipCorruptedRecord() throws IOException {
+    long corruptedOffset;
+
+    try (OutboxSegmentLog log = openLog(MAX_BYTES)) {
+      log.append(record("stream1", "message1").toBytes());
+      log.append(record("stream1", "message2").toBytes());
+      log.append(record("stream1", "message3").toBytes());
+
+      corruptedOffset = log.readNext().getNextOffset();
+    }
+
+    // flips one byte of the second record payload
+    Path segment = directory.resolve(String.format("%020d", 0) + OutboxSegmentLog.SEGMENT_SUFFIX);
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocate(1);
+      channel.read(buffer, corruptedOffset + 10);
+      buffer.put(0, (byte) (buffer.get(0) ^ 0xFF));
+      buffer.rewind();
+      channel.write(buffer, corruptedOffset + 10);
+    }
+
+    try (OutboxSegmentLog log = openLog(MAX_BYTES)) {
+      assertEquals(Long.valueOf(2), log.countPendingByStream().get("stream1"));
+      assertEquals(1, log.getCorruptedRecords());
+
+      OutboxEntry entry = log.readNext();
+      assertEquals("message1", entry.getRecord().getMessage());
+
+      log.commit(entry, false);
+
+      entry = log.readNext();
+      assertEquals("message3", entry.getRecord().getMessage());
+      assertEquals(1, log.getCorruptedRecords());
+
+      assertTrue(Files.exists(directory.resolve("quarantine")
+          .resolve(String.format("%020d.corrupt", corruptedOffset))));
+    }
+  }
+
+  @Test
+  public void testDeleteSegmentsFullyRead() throws IOException {
+    try (OutboxSegmentLog log = openLog(MAX_BYTES)) {
+      for (int i = 0; i < 20; i++) {
+        log.append(record("stream1", "message" + i).toBytes());
+      }
+
+      assertTrue(countSegments() > 1);
+
+      OutboxEntry entry;
+      while ((entry = log.readNext()) != null) {
+        log.commit(entry, false);
+      }
+
+      assertEquals(1, countSegments());
+    }
+  }
+
+  @Test
+  public void testRetention() throws IOException {
+    try (OutboxSegmentLog log = openLog(SEGMENT_BYTES * 2)) {
+      for (int i = 0; i < 20; i++) {
+        log.append(record("stream1", "message" + i).toBytes());
+      }
+
+      List<OutboxRecord> dropped = log.enforceRetention();
+
+      assertNotNull(dropped);
+      assertTrue(log.getTotalBytes() <= SEGMENT_BYTES * 2);
+      assertEquals("message0", dropped.get(0).getMessage());
+
+      long pending = log.countPendingByStream().get("stream1");
+      assertEquals(20, pending + dropped.size());
+    }
+  }
+
+  private OutboxSegmentLog openLog(long maxBytes) throws IOException {
+    return new OutboxSegmentLog(directory, SEGMENT_BYTES, maxBytes, FsyncPolicy.ALWAYS);
+  }
+
+  private OutboxRecord record(String stream, String message) {
+    return new OutboxRecord(System.currentTimeMillis(), INTEGRATION_USER, stream, message);
+  }
+
+  private int countSegments() throws IOException {
+    int count = 0;
+
+    try (DirectoryStream<Path> paths =
+        Files.newDirectoryStream(directory, "*" + OutboxSegmentLog.SEGMENT_SUFFIX)) {
+      for (Path path : paths) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+}
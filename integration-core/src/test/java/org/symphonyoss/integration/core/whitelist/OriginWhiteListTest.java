@@ -0,0 +1,123 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.core.whitelist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Unit tests for {@link OriginWhiteList}
+ */
+public class OriginWhiteListTest {
+
+  @Test
+  public void testEmpty() {
+    assertTrue(OriginWhiteList.EMPTY.isEmpty());
+    assertFalse(OriginWhiteList.EMPTY.containsAddress("192.30.252.40"));
+    assertFalse(OriginWhiteList.EMPTY.hasHostNames());
+  }
+
+  @Test
+  public void testExactAddress() {
+    OriginWhiteList whiteList =
+        OriginWhiteList.compile(Arrays.asList("192.30.252.40", "2001:db8::1"));
+
+    assertTrue(whiteList.containsAddress("192.30.252.40"));
+    assertFalse(whiteList.containsAddress("192.30.252.41"));
+    assertTrue(whiteList.containsAddress("2001:db8:0:0:0:0:0:1"));
+    assertFalse(whiteList.containsAddress("2001:db8::2"));
+    assertFalse(whiteList.hasHostNames());
+  }
+
+  @Test
+  public void testIpv4Block() {
+    OriginWhiteList whiteList = OriginWhiteList.compile(Collections.singleton("192.30.252.0/22"));
+
+    assertTrue(whiteList.containsAddress("192.30.252.0"));
+    assertTrue(whiteList.containsAddress("192.30.255.255"));
+    assertFalse(whiteList.containsAddress("192.30.251.255"));
+    assertFalse(whiteList.containsAddress("192.31.0.1"));
+  }
+
+  @Test
+  public void testIpv6Block() {
+    OriginWhiteList whiteList = OriginWhiteList.compile(Collections.singleton("2620:112:3000::/44"));
+
+    assertTrue(whiteList.containsAddress("2620:112:3000::1"));
+    assertTrue(whiteList.containsAddress("2620:112:300f:ffff::1"));
+    assertFalse(whiteList.containsAddress("2620:112:3010::1"));
+    assertFalse(whiteList.containsAddress("192.30.252.1"));
+  }
+
+  @Test
+  public void testNestedBlocks() {
+    OriginWhiteList whiteList =
+        OriginWhiteList.compile(Arrays.asList("10.1.2.3", "10.0.0.0/8", "10.1.0.0/16"));
+
+    assertTrue(whiteList.containsAddress("10.1.2.3"));
+    assertTrue(whiteList.containsAddress("10.200.0.1"));
+    assertFalse(whiteList.containsAddress("11.0.0.1"));
+  }
+
+  @Test
+  public void testMatchAll() {
+    OriginWhiteList whiteList = OriginWhiteList.compile(Collections.singleton("0.0.0.0/0"));
+
+    assertTrue(whiteList.containsAddress("8.8.8.8"));
+    assertFalse(whiteList.containsAddress("::1"));
+  }
+
+  @Test
+  public void testHostNames() {
+    OriginWhiteList whiteList =
+        OriginWhiteList.compile(Arrays.asList("GitHub.com", " squid.local ", "192.30.252.40"));
+
+    assertTrue(whiteList.hasHostNames());
+    assertTrue(whiteList.containsHost("github.com"));
+    assertTrue(whiteList.containsHost("SQUID.local"));
+    assertFalse(whiteList.containsHost("gitlab.com"));
+    assertFalse(whiteList.containsAddress("github.com"));
+  }
+
+  @Test
+  public void testInvalidEntries() {
+    OriginWhiteList whiteList =
+        OriginWhiteList.compile(Arrays.asList("192.30.252.0/33", "host/24", "10.0.0.0/x", ""));
+
+    assertTrue(whiteList.isEmpty());
+    assertEquals(4, whiteList.getEntries().size());
+  }
+
+  @Test
+  public void testParseIpv4() {
+    assertEquals(0xC01EFC28L, OriginWhiteList.parseIpv4("192.30.252.40"));
+    assertEquals(0xFFFFFFFFL, OriginWhiteList.parseIpv4("255.255.255.255"));
+    assertEquals(-1, OriginWhiteList.parseIpv4("256.1.1.1"));
+    assertEquals(-1, OriginWhiteList.parseIpv4("1.2.3"));
+    assertEquals(-1, OriginWhiteList.parseIpv4("1.2.3.4.5"));
+    assertEquals(-1, OriginWhiteList.parseIpv4("1..3.4"));
+    assertEquals(-1, OriginWhiteList.parseIpv4("1.2.3.4 "));
+    assertEquals(-1, OriginWhiteList.parseIpv4("::1"));
+  }
+
+}
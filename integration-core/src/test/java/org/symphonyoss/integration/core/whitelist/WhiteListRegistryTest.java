@@ -0,0 +1,147 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.integration.core.whitelist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.context.ApplicationContext;
+import org.symphonyoss.integration.Integration;
+import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Unit tests for {@link WhiteListRegistry}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class WhiteListRegistryTest {
+
+  private static final String INTEGRATION_TYPE = "jiraWebHookIntegration";
+
+  private static final String INTEGRATION_ADDRESS = "192.30.252.40";
+
+  private static final String GLOBAL_ADDRESS = "10.0.0.0/8";
+
+  @Mock
+  private ApplicationContext context;
+
+  @Mock
+  private IntegrationProperties properties;
+
+  @Mock
+  private Integration integration;
+
+  @InjectMocks
+  private WhiteListRegistry registry = new WhiteListRegistry();
+
+  @Before
+  public void init() {
+    doReturn(Collections.singleton(GLOBAL_ADDRESS)).when(properties).getGlobalWhiteList();
+    doReturn(Collections.singleton(INTEGRATION_ADDRESS)).when(integration)
+        .getIntegrationWhiteList();
+    doReturn(integration).when(context).getBean(INTEGRATION_TYPE, Integration.class);
+  }
+
+  @Test
+  public void testRegister() {
+    OriginWhiteList whiteList = registry.register(INTEGRATION_TYPE, integration);
+
+    assertEquals(new HashSet<>(Arrays.asList(INTEGRATION_ADDRESS, GLOBAL_ADDRESS)),
+        whiteList.getEntries());
+    assertSame(whiteList, registry.getWhiteList(INTEGRATION_TYPE));
+  }
+
+  @Test
+  public void testIntegrationWhiteListChanged() {
+    OriginWhiteList previous = registry.register(INTEGRATION_TYPE, integration);
+
+    // the integration applies a new whitelist on a configuration change
+    doReturn(new HashSet<>(Arrays.asList("192.30.253.0/24"))).when(integration)
+        .getIntegrationWhiteList();
+
+    OriginWhiteList whiteList = registry.getWhiteList(INTEGRATION_TYPE);
+
+    assertNotSame(previous, whiteList);
+    assertTrue(whiteList.containsAddress("192.30.253.10"));
+    assertFalse(whiteList.containsAddress(INTEGRATION_ADDRESS));
+
+    // compiled once for the new entries
+    assertSame(whiteList, registry.getWhiteList(INTEGRATION_TYPE));
+    verify(context, never()).getBean(INTEGRATION_TYPE, Integration.class);
+  }
+
+  @Test
+  public void testGlobalWhiteListChanged() {
+    registry.register(INTEGRATION_TYPE, integration);
+
+    doReturn(Collections.singleton("172.16.0.0/12")).when(properties).getGlobalWhiteList();
+
+    OriginWhiteList whiteList = registry.getWhiteList(INTEGRATION_TYPE);
+
+    assertTrue(whiteList.containsAddress("172.16.1.1"));
+    assertFalse(whiteList.containsAddress("10.1.2.3"));
+    assertTrue(whiteList.containsAddress(INTEGRATION_ADDRESS));
+  }
+
+  @Test
+  public void testRemove() {
+    OriginWhiteList previous = registry.register(INTEGRATION_TYPE, integration);
+    registry.remove(INTEGRATION_TYPE);
+
+    OriginWhiteList whiteList = registry.getWhiteList(INTEGRATION_TYPE);
+
+    assertNotSame(previous, whiteList);
+    assertEquals(previous.getEntries(), whiteList.getEntries());
+  }
+
+  @Test
+  public void testUnregisteredIntegration() {
+    OriginWhiteList whiteList = registry.getWhiteList(INTEGRATION_TYPE);
+
+    assertTrue(whiteList.containsAddress(INTEGRATION_ADDRESS));
+    assertTrue(whiteList.containsAddress("10.1.2.3"));
+  }
+
+  @Test
+  public void testUnknownIntegration() {
+    doThrow(NoSuchBeanDefinitionException.class).when(context)
+        .getBean(INTEGRATION_TYPE, Integration.class);
+
+    OriginWhiteList whiteList = registry.getWhiteList(INTEGRATION_TYPE);
+
+    assertEquals(Collections.singleton(GLOBAL_ADDRESS), whiteList.getEntries());
+  }
+
+}
@@ -38,6 +38,11 @@ import java.util.Map;
 @Component
 public class IntegrationBridgeHealthAggregator implements HealthAggregator {
 
+  /**
+   * Name of the optional indicator that reports the circuit breakers
+   */
+  public static final String CIRCUIT_BREAKERS = "circuitBreakers";
+
   private static final String BRIDGE_VERSION =
       IntegrationBridgeHealthAggregator.class.getPackage().getImplementationVersion();
 
@@ -80,10 +85,17 @@ public class IntegrationBridgeHealthAggregator implements HealthAggregator {
     List<IntegrationHealth> appsHealth = getApplicationsHealth(healthApplications);
     Map<String, IntegrationBridgeService> services = getServicesHealth(healthServices);
 
-    return builder.withDetail(VERSION, bridgeVersion)
+    builder.withDetail(VERSION, bridgeVersion)
         .withDetail(SERVICES, services)
-        .withDetail(APPLICATIONS, appsHealth)
-        .build();
+        .withDetail(APPLICATIONS, appsHealth);
+
+    Health healthCircuitBreakers = healths.get(CIRCUIT_BREAKERS);
+
+    if (healthCircuitBreakers != null) {
+      builder.withDetail(CIRCUIT_BREAKERS, healthCircuitBreakers.getDetails());
+    }
+
+    return builder.build();
   }
 
   /**
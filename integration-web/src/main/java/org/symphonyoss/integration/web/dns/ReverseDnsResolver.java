@@ -0,0 +1,358 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.web.dns;
+
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/**
+ * Resolves the host names of the webhook senders using reverse DNS lookups.
+ *
+ * The lookups run on a dedicated thread pool and the callers wait for them up to a timeout. A
+ * lookup that times out keeps running in the background, so its result is available for the next
+ * requests. The resolved host names are cached for a TTL, while the addresses without a host name
+ * are cached for a shorter TTL to avoid repeating the slow lookups that fail.
+ *
+ * Cached host names older than the refresh interval are still returned, but a background lookup
+ * renews them before they expire. This way the senders that keep calling don't wait for a lookup
+ * again, and a slow DNS server doesn't make them fail once their entry expires.
+ *
+ * Concurrent requests from the same address share a single lookup.
+ */
+@Component
+public class ReverseDnsResolver {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReverseDnsResolver.class);
+
+  public static final String CACHE_TTL_KEY = "webhook.dns.cache.ttl.ms";
+
+  public static final String NEGATIVE_CACHE_TTL_KEY = "webhook.dns.cache.negative.ttl.ms";
+
+  public static final String CACHE_REFRESH_KEY = "webhook.dns.cache.refresh.ms";
+
+  public static final String CACHE_MAX_SIZE_KEY = "webhook.dns.cache.size";
+
+  public static final String TIMEOUT_KEY = "webhook.dns.timeout.ms";
+
+  public static final String POOL_SIZE_KEY = "webhook.dns.pool.size";
+
+  public static final Long DEFAULT_CACHE_TTL = 300000L;
+
+  public static final Long DEFAULT_NEGATIVE_CACHE_TTL = 30000L;
+
+  public static final Long DEFAULT_CACHE_REFRESH = 240000L;
+
+  public static final Long DEFAULT_CACHE_MAX_SIZE = 10000L;
+
+  public static final Long DEFAULT_TIMEOUT = 3000L;
+
+  public static final Integer DEFAULT_POOL_SIZE = 4;
+
+  private static final int QUEUE_CAPACITY = 1000;
+
+  private static final String REVERSE_DNS = "reverseDns";
+
+  private static final String HITS = "hits";
+
+  private static final String MISSES = "misses";
+
+  private static final String TIMEOUTS = "timeouts";
+
+  private static final String REFRESHES = "refreshes";
+
+  private static final String RESOLUTION = "resolution";
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private MetricRegistry metricsRegistry;
+
+  private long timeout;
+
+  private long refreshInterval;
+
+  private ThreadPoolExecutor lookupExecutor;
+
+  /**
+   * Host names by address
+   */
+  private Cache<String, ResolvedHosts> hostCache;
+
+  /**
+   * Addresses without a host name
+   */
+  private Cache<String, Boolean> unresolvedCache;
+
+  /**
+   * Lookups in progress
+   */
+  private final ConcurrentMap<String, Future<List<String>>> pendingLookups =
+      new ConcurrentHashMap<>();
+
+  private Meter hitsMeter;
+
+  private Meter missesMeter;
+
+  private Meter timeoutsMeter;
+
+  private Meter refreshesMeter;
+
+  private Timer resolutionTimer;
+
+  @PostConstruct
+  public void init() {
+    long ttl = environment.getProperty(CACHE_TTL_KEY, Long.class, DEFAULT_CACHE_TTL);
+    long negativeTtl =
+        environment.getProperty(NEGATIVE_CACHE_TTL_KEY, Long.class, DEFAULT_NEGATIVE_CACHE_TTL);
+    long maxSize = environment.getProperty(CACHE_MAX_SIZE_KEY, Long.class, DEFAULT_CACHE_MAX_SIZE);
+    int poolSize = environment.getProperty(POOL_SIZE_KEY, Integer.class, DEFAULT_POOL_SIZE);
+
+    this.timeout = environment.getProperty(TIMEOUT_KEY, Long.class, DEFAULT_TIMEOUT);
+    this.refreshInterval =
+        environment.getProperty(CACHE_REFRESH_KEY, Long.class, DEFAULT_CACHE_REFRESH);
+
+    this.hostCache = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+        .build();
+
+    this.unresolvedCache = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(negativeTtl, TimeUnit.MILLISECONDS)
+        .build();
+
+    this.lookupExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadPoolExecutor.AbortPolicy());
+
+    this.hitsMeter = metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, REVERSE_DNS, HITS));
+    this.missesMeter =
+        metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, REVERSE_DNS, MISSES));
+    this.timeoutsMeter =
+        metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, REVERSE_DNS, TIMEOUTS));
+    this.refreshesMeter =
+        metricsRegistry.meter(MetricRegistry.name(BASE_METRIC_NAME, REVERSE_DNS, REFRESHES));
+    this.resolutionTimer =
+        metricsRegistry.timer(MetricRegistry.name(BASE_METRIC_NAME, REVERSE_DNS, RESOLUTION));
+  }
+
+  @PreDestroy
+  public void destroy() {
+    if (lookupExecutor != null) {
+      lookupExecutor.shutdownNow();
+    }
+  }
+
+  /**
+   * Retrieves the host names of an address.
+   * @param ipAddress IP address
+   * @return Host name and canonical host name of the address, or an empty list if the address
+   * has no host name or the lookup didn't finish in time
+   */
+  public List<String> resolve(String ipAddress) {
+    ResolvedHosts resolved = hostCache.getIfPresent(ipAddress);
+
+    if (resolved != null) {
+      hitsMeter.mark();
+      refreshIfStale(ipAddress, resolved);
+      return resolved.hostNames;
+    }
+
+    if (unresolvedCache.getIfPresent(ipAddress) != null) {
+      hitsMeter.mark();
+      return Collections.emptyList();
+    }
+
+    missesMeter.mark();
+
+    Future<List<String>> lookup = startLookup(ipAddress);
+
+    if (lookup == null) {
+      return Collections.emptyList();
+    }
+
+    try {
+      return lookup.get(timeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      timeoutsMeter.mark();
+      LOGGER.warn("Reverse DNS lookup for {} didn't finish in {} ms", ipAddress, timeout);
+    } catch (ExecutionException e) {
+      LOGGER.error(String.format("Fail to resolve the host name for %s", ipAddress), e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    return Collections.emptyList();
+  }
+
+  /**
+   * Starts a background lookup if the cached host names are older than the refresh interval. The
+   * caller doesn't wait for it.
+   */
+  private void refreshIfStale(String ipAddress, ResolvedHosts resolved) {
+    if (System.currentTimeMillis() - resolved.resolvedAt < refreshInterval
+        || pendingLookups.containsKey(ipAddress)) {
+      return;
+    }
+
+    if (startLookup(ipAddress) != null) {
+      refreshesMeter.mark();
+    }
+  }
+
+  /**
+   * Starts a lookup for the address, or joins the lookup already in progress.
+   * @return Lookup result or null if the lookup pool is saturated
+   */
+  private Future<List<String>> startLookup(final String ipAddress) {
+    Future<List<String>> lookup = pendingLookups.get(ipAddress);
+
+    if (lookup != null) {
+      return lookup;
+    }
+
+    final FutureTask<List<String>> newLookup = new FutureTask<>(new Callable<List<String>>() {
+      @Override
+      public List<String> call() throws Exception {
+        return lookup(ipAddress);
+      }
+    });
+
+    lookup = pendingLookups.putIfAbsent(ipAddress, newLookup);
+
+    if (lookup != null) {
+      return lookup;
+    }
+
+    try {
+      lookupExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            newLookup.run();
+          } finally {
+            pendingLookups.remove(ipAddress, newLookup);
+          }
+        }
+      });
+
+      return newLookup;
+    } catch (RejectedExecutionException e) {
+      pendingLookups.remove(ipAddress, newLookup);
+      LOGGER.warn("Reverse DNS lookup pool is saturated. Skipping the lookup for {}", ipAddress);
+      return null;
+    }
+  }
+
+  /**
+   * Performs the blocking lookup and caches its result.
+   */
+  private List<String> lookup(String ipAddress) {
+    Timer.Context context = resolutionTimer.time();
+
+    try {
+      InetAddress address = getAddress(ipAddress);
+      String hostName = address.getHostName();
+      String canonicalHostName = address.getCanonicalHostName();
+
+      if (ipAddress.equals(hostName) && ipAddress.equals(canonicalHostName)) {
+        markUnresolved(ipAddress);
+        return Collections.emptyList();
+      }
+
+      List<String> hostNames;
+
+      if (hostName.equals(canonicalHostName)) {
+        hostNames = Collections.singletonList(hostName);
+      } else {
+        hostNames = Collections.unmodifiableList(Arrays.asList(hostName, canonicalHostName));
+      }
+
+      hostCache.put(ipAddress, new ResolvedHosts(hostNames, System.currentTimeMillis()));
+      return hostNames;
+    } catch (UnknownHostException e) {
+      LOGGER.warn("Cannot find the host name for {}", ipAddress);
+      markUnresolved(ipAddress);
+      return Collections.emptyList();
+    } finally {
+      context.stop();
+    }
+  }
+
+  /**
+   * Remembers an address without a host name. The host names cached by a previous lookup are
+   * discarded, as a refresh found that they're gone.
+   */
+  private void markUnresolved(String ipAddress) {
+    hostCache.invalidate(ipAddress);
+    unresolvedCache.put(ipAddress, Boolean.TRUE);
+  }
+
+  /**
+   * Retrieves the address object. This is the blocking step of the lookup.
+   */
+  protected InetAddress getAddress(String ipAddress) throws UnknownHostException {
+    return InetAddress.getByName(ipAddress);
+  }
+
+  /**
+   * Host names of an address and the time they were resolved.
+   */
+  private static final class ResolvedHosts {
+
+    private final List<String> hostNames;
+
+    private final long resolvedAt;
+
+    private ResolvedHosts(List<String> hostNames, long resolvedAt) {
+      this.hostNames = hostNames;
+      this.resolvedAt = resolvedAt;
+    }
+
+  }
+
+}
@@ -21,6 +21,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 import org.symphonyoss.integration.web.metrics.RequestMetricsController;
+import org.symphonyoss.integration.web.route.WebHookRoute;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -44,13 +45,9 @@ public class IntegrationMetricsFilter implements Filter {
 
   public static final String IGNORE_URL_PARAM = "ignore-url";
 
-  public static final String WEBHOOK_URL_PARAM = "webhook-url";
-
   @Autowired
   private RequestMetricsController metricsController;
 
-  private String integrationUrlParam;
-
   private List<String> ignoreList;
 
   /**
@@ -63,8 +60,6 @@ public class IntegrationMetricsFilter implements Filter {
         .getAutowireCapableBeanFactory()
         .autowireBean(this);
 
-    this.integrationUrlParam = config.getInitParameter(WEBHOOK_URL_PARAM);
-
     String ignoreUrlParam = config.getInitParameter(IGNORE_URL_PARAM);
     this.ignoreList = getIgnoreList(ignoreUrlParam);
   }
@@ -82,19 +77,15 @@ public class IntegrationMetricsFilter implements Filter {
     boolean logRequest = true;
 
     try {
-      HttpServletRequest request = (HttpServletRequest) servletRequest;
-      String pathInfo = request.getRequestURI().replace(request.getContextPath(), StringUtils.EMPTY);
+      WebHookRoute route = WebHookRoute.of((HttpServletRequest) servletRequest);
 
-      logRequest = shouldLogRequest(pathInfo);
+      logRequest = shouldLogRequest(route.getPath());
 
       if (logRequest) {
         requestContext = metricsController.startRequest();
 
-        if (isWebHookResource(pathInfo)) {
-          String path = pathInfo.replace(integrationUrlParam, StringUtils.EMPTY);
-          String integration = path.substring(0, path.indexOf("/"));
-
-          webhookContext = metricsController.startIntegrationExecution(integration);
+        if (route.isWebHook() && route.getIntegrationKey() != null) {
+          webhookContext = metricsController.startIntegrationExecution(route.getIntegrationKey());
         }
       }
 
@@ -142,15 +133,6 @@ public class IntegrationMetricsFilter implements Filter {
     return Arrays.asList(list);
   }
 
-  /**
-   * Validates if the request path is a webhook resource path.
-   * @param pathInfo Request path info
-   * @return true if the request path is a webhook resource path or false otherwise.
-   */
-  private boolean isWebHookResource(String pathInfo) {
-    return pathInfo.startsWith(integrationUrlParam);
-  }
-
   @Override
   public void destroy() {}
 }
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.web.filter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+import org.symphonyoss.integration.web.limit.AdaptiveConcurrencyLimiter;
+import org.symphonyoss.integration.web.metrics.RequestMetricsController;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Filter to shed the webhook requests above the limit defined by the
+ * {@link AdaptiveConcurrencyLimiter}.
+ *
+ * This filter must run before any other webhook filter, so the excess requests are rejected with
+ * HTTP 503 (Service Unavailable) before resolving the sender or parsing the payload.
+ */
+public class WebHookConcurrencyLimitFilter implements Filter {
+
+  public static final String RETRY_AFTER_HEADER = "Retry-After";
+
+  private static final String REJECTED_MESSAGE =
+      "Integration Bridge is too busy to accept the request. Try again later.";
+
+  @Autowired
+  private AdaptiveConcurrencyLimiter limiter;
+
+  @Autowired
+  private RequestMetricsController metricsController;
+
+  /**
+   * Inject spring components.
+   * @param config Filter config
+   */
+  @Override
+  public void init(FilterConfig config) throws ServletException {
+    WebApplicationContextUtils.getRequiredWebApplicationContext(config.getServletContext())
+        .getAutowireCapableBeanFactory()
+        .autowireBean(this);
+  }
+
+  /**
+   * Rejects the request if the concurrency limit was reached, otherwise invokes the next entity in
+   * the chain and reports the processing time to the limiter.
+   */
+  @Override
+  public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse,
+      FilterChain filterChain) throws IOException, ServletException {
+    if (!limiter.isEnabled()) {
+      filterChain.doFilter(servletRequest, servletResponse);
+      return;
+    }
+
+    if (!limiter.tryAcquire()) {
+      metricsController.rejectConcurrencyLimitedRequest();
+
+      HttpServletResponse response = (HttpServletResponse) servletResponse;
+      response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      response.setHeader(RETRY_AFTER_HEADER, String.valueOf(limiter.getRetryAfter()));
+      response.setContentType(MediaType.TEXT_PLAIN);
+      response.getWriter().write(REJECTED_MESSAGE);
+      return;
+    }
+
+    long start = System.nanoTime();
+
+    try {
+      filterChain.doFilter(servletRequest, servletResponse);
+    } finally {
+      limiter.release(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void destroy() {}
+}
@@ -23,19 +23,16 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.BeansException;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
-import org.symphonyoss.integration.Integration;
+import org.symphonyoss.integration.core.whitelist.OriginWhiteList;
+import org.symphonyoss.integration.core.whitelist.WhiteListRegistry;
 import org.symphonyoss.integration.exception.ExceptionMessageFormatter;
 import org.symphonyoss.integration.logging.LogMessageSource;
-import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+import org.symphonyoss.integration.web.dns.ReverseDnsResolver;
+import org.symphonyoss.integration.web.route.WebHookRoute;
 
 import java.io.IOException;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.regex.Pattern;
 
 import javax.servlet.Filter;
@@ -61,7 +58,7 @@ public class WebHookOriginCheckFilter implements Filter {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(WebHookOriginCheckFilter.class);
 
-  public static final String URL_PATTERN = "/integration/v1/whi/";
+  public static final String URL_PATTERN = WebHookRoute.WEBHOOK_PATH;
 
   private static final String FORWARD_HEADER = "x-forwarded-for";
 
@@ -73,12 +70,6 @@ public class WebHookOriginCheckFilter implements Filter {
 
   private static final String FORBIDDEN_MESSAGE = "Host not allowed";
 
-  private static final String WELCOME_PATH = "welcome";
-
-  private static final String CANNOT_FIND_HOST_FOR_IP = "integration.web.cannot.find.host";
-
-  private static final String CANNOT_FIND_HOST_FOR_IP_SOLUTION = "integration.web.cannot.find.host.solution";
-
   private static final String WEBHOOK_REQUEST_BLOCKED = "integration.web.request.blocked";
 
   private static final String WEBHOOK_REQUEST_BLOCKED_SOLUTION = "integration.web.request.blocked.solution";
@@ -95,12 +86,14 @@ public class WebHookOriginCheckFilter implements Filter {
 
   private WebApplicationContext springContext;
 
-  private IntegrationProperties properties;
+  private WhiteListRegistry whiteListRegistry;
 
   private LogMessageSource logMessage;
 
+  private ReverseDnsResolver dnsResolver;
+
   /**
-   * Initialize the spring components and the whitelist cache.
+   * Initialize the spring components.
    * @param config Filter configuration
    * @throws ServletException Report failure to initialize the filter
    */
@@ -108,8 +101,9 @@ public class WebHookOriginCheckFilter implements Filter {
   public void init(FilterConfig config) throws ServletException {
     this.springContext =
         WebApplicationContextUtils.getWebApplicationContext(config.getServletContext());
-    this.properties = springContext.getBean(IntegrationProperties.class);
+    this.whiteListRegistry = springContext.getBean(WhiteListRegistry.class);
     this.logMessage = springContext.getBean(LogMessageSource.class);
+    this.dnsResolver = springContext.getBean(ReverseDnsResolver.class);
   }
 
   /**
@@ -136,25 +130,21 @@ public class WebHookOriginCheckFilter implements Filter {
     HttpServletRequest request = (HttpServletRequest) servletRequest;
     HttpServletResponse response = (HttpServletResponse) servletResponse;
 
-    String path = request.getRequestURI()
-        .replace(request.getContextPath(), StringUtils.EMPTY)
-        .replace(URL_PATTERN, StringUtils.EMPTY);
+    WebHookRoute route = WebHookRoute.of(request);
 
-    boolean checkOrigin = shouldCheckOrigin(path);
-
-    if (!checkOrigin) {
+    if (!shouldCheckOrigin(route)) {
       filterChain.doFilter(servletRequest, servletResponse);
       return;
     }
 
-    String integrationType = path.substring(0, path.indexOf("/"));
-    Set<String> whiteList = getWhiteListByApplication(integrationType);
+    String integrationType = route.getIntegrationKey();
+    OriginWhiteList whiteList = whiteListRegistry.getWhiteList(integrationType);
 
-    if (whiteList.isEmpty()) {
+    if (whiteList.getEntries().isEmpty()) {
       filterChain.doFilter(servletRequest, servletResponse);
     } else {
       String remoteAddressInfo = getOriginatingAddressInfo(request);
-      boolean allowedOrigin = verifyOrigin(remoteAddressInfo, whiteList, integrationType);
+      boolean allowedOrigin = verifyOrigin(remoteAddressInfo, whiteList);
 
       if (allowedOrigin) {
         filterChain.doFilter(servletRequest, servletResponse);
@@ -168,86 +158,53 @@ public class WebHookOriginCheckFilter implements Filter {
   }
 
   /**
-   * Validates if the filter should check the request origin.
-   * @param path Request path
+   * Validates if the filter should check the request origin. Welcome resources are always
+   * allowed, as well as the paths that don't identify an integration.
+   * @param route Request route
    * @return true if the request origin should be checked or false otherwise.
    */
-  private boolean shouldCheckOrigin(String path) {
-    if (path.endsWith("/")) {
-      path = path.substring(0, path.length() - 1);
-    }
-
-    if (isWelcomeResource(path)) {
-      return false;
-    }
-
-    return true;
-  }
-
-  /**
-   * Validates if the request path is a welcome resource path.
-   * @param path Request path
-   * @return true if the request path is a welcome resource path or false otherwise.
-   */
-  private boolean isWelcomeResource(String path) {
-    return path.endsWith(WELCOME_PATH);
-  }
-
-  /**
-   * Get the application whitelist based on YAML file settings and embedded integration settings.
-   * @param integrationType Integration type
-   * @return Application origin whitelist
-   */
-  private Set<String> getWhiteListByApplication(String integrationType) {
-    Set<String> result = new HashSet<>();
-
-    try {
-      Integration integration = springContext.getBean(integrationType, Integration.class);
-      result.addAll(integration.getIntegrationWhiteList());
-    } catch (BeansException e) {
-      LOGGER.error("Cannot retrieve embedded " + integrationType + " whitelist");
-    }
-
-    result.addAll(properties.getGlobalWhiteList());
-    return result;
+  private boolean shouldCheckOrigin(WebHookRoute route) {
+    return route.isWebHook() && !route.isWelcome() && route.getIntegrationKey() != null;
   }
 
   /**
    * Verify if the origin is allowed to send message through the integration.
    * @param remoteAddressInfo Request origin addresses (this may contain one or more IP's separated by comma)
-   * @param whiteList The IP whitelist to match the remoteAddress
-   * @param integrationType The path for the incoming HTTP request
+   * @param whiteList The compiled whitelist to match the remoteAddress
    * @return true if the origin is allowed or false otherwise
    */
-  private boolean verifyOrigin(String remoteAddressInfo, Set<String> whiteList, String integrationType) {
+  private boolean verifyOrigin(String remoteAddressInfo, OriginWhiteList whiteList) {
     String[] remoteAddresses = COMMA_PATTERN.split(remoteAddressInfo);
-    return verifyOriginIPs(remoteAddresses, whiteList) || verifyOriginHosts(remoteAddresses, whiteList, integrationType);
+    return verifyOriginIPs(remoteAddresses, whiteList) || verifyOriginHosts(remoteAddresses, whiteList);
   }
 
-  private boolean verifyOriginHosts(String[] remoteAddresses, Set<String> whiteList, String integrationType) {
-    for (String ipAddress : remoteAddresses) {
-      try {
-        InetAddress address = InetAddress.getByName(ipAddress);
-        String hostName = address.getHostName();
-        String canonicalHostName = address.getCanonicalHostName();
+  /**
+   * Verify if the host name of any origin address is part of the whitelist. The host names are
+   * retrieved through the {@link ReverseDnsResolver}, so the slow reverse lookups are cached and
+   * bounded by a timeout. The lookups are skipped when the whitelist has no host names.
+   */
+  private boolean verifyOriginHosts(String[] remoteAddresses, OriginWhiteList whiteList) {
+    if (!whiteList.hasHostNames()) {
+      return false;
+    }
 
-        if (whiteList.contains(hostName) || whiteList.contains(canonicalHostName)) {
+    for (String ipAddress : remoteAddresses) {
+      for (String hostName : dnsResolver.resolve(ipAddress)) {
+        if (whiteList.containsHost(hostName)) {
           return true;
         }
-      } catch (UnknownHostException e) {
-        LOGGER.warn(ExceptionMessageFormatter.format(WEBHOOK_FILTER,
-            logMessage.getMessage(CANNOT_FIND_HOST_FOR_IP, ipAddress),
-            e,
-            logMessage.getMessage(CANNOT_FIND_HOST_FOR_IP_SOLUTION, integrationType)
-        ));
       }
     }
     return false;
   }
 
-  private boolean verifyOriginIPs(String[] remoteAddresses, Set<String> whiteList) {
+  /**
+   * Verify if any origin address is part of the whitelist, either as an exact address or as part
+   * of a CIDR block.
+   */
+  private boolean verifyOriginIPs(String[] remoteAddresses, OriginWhiteList whiteList) {
     for (String ipAddress : remoteAddresses) {
-      if (whiteList.contains(ipAddress)) {
+      if (whiteList.containsAddress(ipAddress)) {
         return true;
       }
     }
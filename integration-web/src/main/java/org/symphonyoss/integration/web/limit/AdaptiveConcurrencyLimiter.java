@@ -0,0 +1,206 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.web.limit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.web.metrics.RequestMetricsController;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Limits the number of webhook requests processed concurrently, adjusting the limit from the
+ * observed latency (AIMD).
+ *
+ * The limit grows by one after a full window of requests, as many as the current limit, completes
+ * under the latency threshold while the limit is being used. A request slower than the threshold decreases the limit multiplicatively, at
+ * most once per threshold interval, so a burst of slow requests doesn't collapse the limit at once.
+ *
+ * The requests above the limit are expected to be rejected right away, keeping the servlet threads
+ * available to the other endpoints (health check, metrics) when the Agent slows down.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+  public static final String ENABLED_KEY = "webhook.limiter.enabled";
+
+  public static final String INITIAL_LIMIT_KEY = "webhook.limiter.initial.limit";
+
+  public static final String MIN_LIMIT_KEY = "webhook.limiter.min.limit";
+
+  public static final String MAX_LIMIT_KEY = "webhook.limiter.max.limit";
+
+  public static final String LATENCY_THRESHOLD_KEY = "webhook.limiter.latency.threshold.ms";
+
+  public static final String BACKOFF_RATIO_KEY = "webhook.limiter.backoff.ratio";
+
+  public static final String RETRY_AFTER_KEY = "webhook.limiter.retry.after.seconds";
+
+  public static final Integer DEFAULT_INITIAL_LIMIT = 20;
+
+  public static final Integer DEFAULT_MIN_LIMIT = 4;
+
+  public static final Integer DEFAULT_MAX_LIMIT = 200;
+
+  public static final Long DEFAULT_LATENCY_THRESHOLD = 2000L;
+
+  public static final Double DEFAULT_BACKOFF_RATIO = 0.9;
+
+  public static final Integer DEFAULT_RETRY_AFTER = 1;
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private RequestMetricsController metricsController;
+
+  private boolean enabled;
+
+  private int minLimit;
+
+  private int maxLimit;
+
+  private long latencyThreshold;
+
+  private double backoffRatio;
+
+  private int retryAfter;
+
+  private volatile int limit;
+
+  private long lastBackoff;
+
+  /**
+   * Requests completed under the latency threshold since the limit last changed
+   */
+  private int fastCompletions;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  @PostConstruct
+  public void init() {
+    this.enabled = environment.getProperty(ENABLED_KEY, Boolean.class, Boolean.FALSE);
+
+    if (!enabled) {
+      return;
+    }
+
+    this.minLimit = Math.max(1,
+        environment.getProperty(MIN_LIMIT_KEY, Integer.class, DEFAULT_MIN_LIMIT));
+    this.maxLimit = Math.max(minLimit,
+        environment.getProperty(MAX_LIMIT_KEY, Integer.class, DEFAULT_MAX_LIMIT));
+    this.latencyThreshold =
+        environment.getProperty(LATENCY_THRESHOLD_KEY, Long.class, DEFAULT_LATENCY_THRESHOLD);
+    this.backoffRatio =
+        environment.getProperty(BACKOFF_RATIO_KEY, Double.class, DEFAULT_BACKOFF_RATIO);
+    this.retryAfter = environment.getProperty(RETRY_AFTER_KEY, Integer.class, DEFAULT_RETRY_AFTER);
+
+    int initialLimit =
+        environment.getProperty(INITIAL_LIMIT_KEY, Integer.class, DEFAULT_INITIAL_LIMIT);
+    this.limit = Math.min(maxLimit, Math.max(minLimit, initialLimit));
+
+    metricsController.initConcurrencyLimiter(this);
+
+    LOGGER.info("Webhook concurrency limiter enabled. Initial limit: {}, min: {}, max: {}", limit,
+        minLimit, maxLimit);
+  }
+
+  /**
+   * Returns true if the concurrency limiter is enabled or false otherwise.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the number of requests that can be processed concurrently.
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Returns the number of requests being processed.
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * Returns the time, in seconds, the rejected senders should wait before retrying.
+   */
+  public int getRetryAfter() {
+    return retryAfter;
+  }
+
+  /**
+   * Tries to start processing a request. Every acquired request must be released through
+   * {@link #release(long)}.
+   * @return true if the request can be processed or false if the limit was reached
+   */
+  public boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+
+      if (current >= limit) {
+        return false;
+      }
+
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Signals the end of the request processing and adjusts the limit according to its latency.
+   * @param elapsedNanos Request processing time (in nanoseconds)
+   */
+  public void release(long elapsedNanos) {
+    int current = inFlight.getAndDecrement();
+    updateLimit(TimeUnit.NANOSECONDS.toMillis(elapsedNanos), current);
+  }
+
+  private synchronized void updateLimit(long latency, int current) {
+    if (latency > latencyThreshold) {
+      long now = System.currentTimeMillis();
+
+      if (now - lastBackoff >= latencyThreshold) {
+        this.lastBackoff = now;
+        this.limit = Math.max(minLimit, (int) (limit * backoffRatio));
+        this.fastCompletions = 0;
+      }
+    } else if (current * 2 >= limit) {
+      // only grows while the limit is being used, otherwise it would grow unbounded on idle nodes
+      fastCompletions++;
+
+      if (fastCompletions >= limit) {
+        this.fastCompletions = 0;
+        this.limit = Math.min(maxLimit, limit + 1);
+      }
+    }
+  }
+
+}
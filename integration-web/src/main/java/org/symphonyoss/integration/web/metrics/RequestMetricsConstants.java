@@ -75,4 +75,47 @@ public class RequestMetricsConstants {
    */
   public static final String OTHER_RESPONSE_CODE = BASE_METRIC_NAME + ".responseCodes.other";
 
+  /**
+   * Base metric name used by metrics that deal with the webhook dispatch queue
+   */
+  public static final String WEBHOOK_QUEUE = BASE_METRIC_NAME + ".webhookQueue";
+
+  /**
+   * Metric name which expose the gauge for webhook requests waiting on the dispatch queue
+   */
+  public static final String WEBHOOK_QUEUE_DEPTH = WEBHOOK_QUEUE + ".depth";
+
+  /**
+   * Metric name which expose the timer for the time spent by webhook requests on the dispatch
+   * queue
+   */
+  public static final String WEBHOOK_QUEUE_WAIT = WEBHOOK_QUEUE + ".wait";
+
+  /**
+   * Metric name which expose the meter for webhook requests rejected because the dispatch queue
+   * is full
+   */
+  public static final String WEBHOOK_QUEUE_REJECTED = WEBHOOK_QUEUE + ".rejected";
+
+  /**
+   * Base metric name used by metrics that deal with the webhook concurrency limiter
+   */
+  public static final String CONCURRENCY_LIMITER = BASE_METRIC_NAME + ".concurrencyLimiter";
+
+  /**
+   * Metric name which expose the gauge for the current webhook concurrency limit
+   */
+  public static final String CONCURRENCY_LIMIT = CONCURRENCY_LIMITER + ".limit";
+
+  /**
+   * Metric name which expose the gauge for webhook requests being processed
+   */
+  public static final String CONCURRENCY_IN_FLIGHT = CONCURRENCY_LIMITER + ".inFlight";
+
+  /**
+   * Metric name which expose the meter for webhook requests rejected because the concurrency
+   * limit was reached
+   */
+  public static final String CONCURRENCY_REJECTED = CONCURRENCY_LIMITER + ".rejected";
+
 }
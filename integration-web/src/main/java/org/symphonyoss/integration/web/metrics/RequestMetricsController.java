@@ -19,11 +19,18 @@ package org.symphonyoss.integration.web.metrics;
 import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
 import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.RATIO;
 import static org.symphonyoss.integration.web.metrics.RequestMetricsConstants.ACTIVE_REQUESTS;
+import static org.symphonyoss.integration.web.metrics.RequestMetricsConstants.CONCURRENCY_IN_FLIGHT;
+import static org.symphonyoss.integration.web.metrics.RequestMetricsConstants.CONCURRENCY_LIMIT;
+import static org.symphonyoss.integration.web.metrics.RequestMetricsConstants.CONCURRENCY_REJECTED;
 import static org.symphonyoss.integration.web.metrics.RequestMetricsConstants.INCOMING_REQUESTS;
 import static org.symphonyoss.integration.web.metrics.RequestMetricsConstants.OTHER_RESPONSE_CODE;
 import static org.symphonyoss.integration.web.metrics.RequestMetricsConstants.REQUESTS;
+import static org.symphonyoss.integration.web.metrics.RequestMetricsConstants.WEBHOOK_QUEUE_DEPTH;
+import static org.symphonyoss.integration.web.metrics.RequestMetricsConstants.WEBHOOK_QUEUE_REJECTED;
+import static org.symphonyoss.integration.web.metrics.RequestMetricsConstants.WEBHOOK_QUEUE_WAIT;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
@@ -31,9 +38,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.symphonyoss.integration.metrics.IntegrationController;
 import org.symphonyoss.integration.metrics.gauge.CounterRatio;
+import org.symphonyoss.integration.web.limit.AdaptiveConcurrencyLimiter;
 
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.ws.rs.core.Response.Status;
@@ -73,6 +83,21 @@ public class RequestMetricsController implements IntegrationController {
    */
   private ConcurrentMap<String, Timer> timerByIntegration = new ConcurrentHashMap<>();
 
+  /**
+   * Timer for the time spent by webhook requests on the dispatch queue
+   */
+  private Timer webHookQueueTimer;
+
+  /**
+   * Meter for the webhook requests rejected by the dispatch queue
+   */
+  private Meter webHookQueueRejectedMeter;
+
+  /**
+   * Meter for the webhook requests rejected by the concurrency limiter
+   */
+  private Meter concurrencyRejectedMeter;
+
   /**
    * Initializes all the metrics for each HTTP response code.
    */
@@ -81,6 +106,9 @@ public class RequestMetricsController implements IntegrationController {
     this.activeRequests = metricsRegistry.counter(ACTIVE_REQUESTS);
     this.requestsTimer = metricsRegistry.timer(INCOMING_REQUESTS);
     this.otherMeter = metricsRegistry.meter(OTHER_RESPONSE_CODE);
+    this.webHookQueueTimer = metricsRegistry.timer(WEBHOOK_QUEUE_WAIT);
+    this.webHookQueueRejectedMeter = metricsRegistry.meter(WEBHOOK_QUEUE_REJECTED);
+    this.concurrencyRejectedMeter = metricsRegistry.meter(CONCURRENCY_REJECTED);
 
     initStatusCode(Status.OK.getStatusCode(), RequestMetricsConstants.OK);
     initStatusCode(Status.BAD_REQUEST.getStatusCode(), RequestMetricsConstants.BAD_REQUEST);
@@ -177,4 +205,61 @@ public class RequestMetricsController implements IntegrationController {
       context.stop();
     }
   }
+
+  /**
+   * Initializes the gauge to monitor the number of webhook requests waiting on the dispatch queue.
+   * @param queue Dispatch queue
+   */
+  public void initWebHookQueue(final Queue<?> queue) {
+    metricsRegistry.register(WEBHOOK_QUEUE_DEPTH, new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return queue.size();
+      }
+    });
+  }
+
+  /**
+   * Signals a webhook request has left the dispatch queue. This method should log the time spent
+   * by the request waiting for a worker.
+   * @param elapsedNanos Time spent on the queue (in nanoseconds)
+   */
+  public void finishWebHookQueueWait(long elapsedNanos) {
+    this.webHookQueueTimer.update(elapsedNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Signals a webhook request was rejected because the dispatch queue is full.
+   */
+  public void rejectWebHookRequest() {
+    this.webHookQueueRejectedMeter.mark();
+  }
+
+  /**
+   * Initializes the gauges to monitor the current concurrency limit and the number of webhook
+   * requests being processed.
+   * @param limiter Concurrency limiter
+   */
+  public void initConcurrencyLimiter(final AdaptiveConcurrencyLimiter limiter) {
+    metricsRegistry.register(CONCURRENCY_LIMIT, new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return limiter.getLimit();
+      }
+    });
+
+    metricsRegistry.register(CONCURRENCY_IN_FLIGHT, new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return limiter.getInFlight();
+      }
+    });
+  }
+
+  /**
+   * Signals a webhook request was rejected because the concurrency limit was reached.
+   */
+  public void rejectConcurrencyLimitedRequest() {
+    this.concurrencyRejectedMeter.mark();
+  }
 }
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.integration.web.payload;
+
+import java.util.AbstractMap;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Map view of request values (headers or parameters).
+ *
+ * Single values are read straight from the request. The whole map is only built when it's
+ * iterated or modified, which most of the webhook parsers never do. From then on, the map works
+ * on that copy, so the changes made by the integrations never reach the request.
+ */
+abstract class RequestValueMap extends AbstractMap<String, String> {
+
+  private Map<String, String> values;
+
+  /**
+   * Reads a single value from the request.
+   * @param name Value name
+   * @return Value or null if the request doesn't have it
+   */
+  protected abstract String getValue(String name);
+
+  /**
+   * Returns the names of the request values.
+   */
+  protected abstract Enumeration<String> getNames();
+
+  /**
+   * Creates the map used to store the materialized values.
+   */
+  protected abstract Map<String, String> createMap();
+
+  @Override
+  public String get(Object key) {
+    if (values != null) {
+      return values.get(key);
+    }
+
+    return key instanceof String ? getValue((String) key) : null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (values != null) {
+      return values.containsKey(key);
+    }
+
+    return get(key) != null;
+  }
+
+  @Override
+  public String put(String key, String value) {
+    return materialize().put(key, value);
+  }
+
+  @Override
+  public String remove(Object key) {
+    return materialize().remove(key);
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    return materialize().entrySet();
+  }
+
+  /**
+   * Reads all the values from the request. The values are read only once.
+   * @return Map with the request values, backing this view from now on
+   */
+  Map<String, String> materialize() {
+    if (values == null) {
+      Map<String, String> result = createMap();
+      Enumeration<String> names = getNames();
+
+      while (names != null && names.hasMoreElements()) {
+        String name = names.nextElement();
+        result.put(name, getValue(name));
+      }
+
+      this.values = result;
+    }
+
+    return values;
+  }
+
+}
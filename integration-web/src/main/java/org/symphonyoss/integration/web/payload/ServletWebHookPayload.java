@@ -0,0 +1,139 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.integration.web.payload;
+
+import org.symphonyoss.integration.webhook.WebHookPayload;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * {@link WebHookPayload} backed by the servlet request.
+ *
+ * Headers and parameters are read from the request only when the integration asks for them,
+ * instead of being copied for every webhook. Header names are case-insensitive.
+ *
+ * The request can't be used after the response is committed, so the payloads handled outside the
+ * request thread must be copied through {@link #materialize()}.
+ */
+public class ServletWebHookPayload extends WebHookPayload {
+
+  private final RequestValueMap parameters;
+
+  private final RequestValueMap headers;
+
+  private final String body;
+
+  public ServletWebHookPayload(HttpServletRequest request, String body) {
+    this(new ParameterMap(request), new HeaderMap(request), body);
+  }
+
+  private ServletWebHookPayload(RequestValueMap parameters, RequestValueMap headers,
+      String body) {
+    super(parameters, headers, body);
+    this.parameters = parameters;
+    this.headers = headers;
+    this.body = body;
+  }
+
+  @Override
+  public Map<String, String> getParameters() {
+    return parameters;
+  }
+
+  @Override
+  public Map<String, String> getHeaders() {
+    return headers;
+  }
+
+  @Override
+  public String getBody() {
+    return body;
+  }
+
+  /**
+   * Copies the headers and parameters from the request, so the payload can be handled after the
+   * request is finished.
+   * @return Payload independent of the servlet request
+   */
+  public WebHookPayload materialize() {
+    Map<String, String> headerValues = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    headerValues.putAll(headers.materialize());
+
+    return new WebHookPayload(new HashMap<>(parameters.materialize()), headerValues, body);
+  }
+
+  /**
+   * Request headers view. Servlet containers look up the headers ignoring the case.
+   */
+  private static class HeaderMap extends RequestValueMap {
+
+    private final HttpServletRequest request;
+
+    HeaderMap(HttpServletRequest request) {
+      this.request = request;
+    }
+
+    @Override
+    protected String getValue(String name) {
+      return request.getHeader(name);
+    }
+
+    @Override
+    protected Enumeration<String> getNames() {
+      return request.getHeaderNames();
+    }
+
+    @Override
+    protected Map<String, String> createMap() {
+      return new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+    }
+  }
+
+  /**
+   * Request parameters view.
+   */
+  private static class ParameterMap extends RequestValueMap {
+
+    private final HttpServletRequest request;
+
+    ParameterMap(HttpServletRequest request) {
+      this.request = request;
+    }
+
+    @Override
+    protected String getValue(String name) {
+      return request.getParameter(name);
+    }
+
+    @Override
+    protected Enumeration<String> getNames() {
+      return request.getParameterNames();
+    }
+
+    @Override
+    protected Map<String, String> createMap() {
+      return new HashMap<>();
+    }
+  }
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.web.queue;
+
+import static org.symphonyoss.integration.logging.DistributedTracingUtils.TRACE_ID;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.symphonyoss.integration.config.exception.InstanceNotFoundException;
+import org.symphonyoss.integration.core.circuit.CircuitBreaker;
+import org.symphonyoss.integration.core.runnable.IntegrationAbstractRunnable;
+import org.symphonyoss.integration.entity.MessageMLParseException;
+import org.symphonyoss.integration.exception.authentication.ConnectivityException;
+import org.symphonyoss.integration.web.metrics.RequestMetricsController;
+import org.symphonyoss.integration.webhook.WebHookIntegration;
+import org.symphonyoss.integration.webhook.WebHookPayload;
+import org.symphonyoss.integration.webhook.exception.WebHookParseException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Bounded in-memory queue used by the accept-and-queue ingestion mode.
+ *
+ * When this mode is enabled, the webhook resources only validate the request and enqueue the
+ * payload, so the HTTP response can be returned to the sender right away. A fixed pool of workers
+ * takes the payloads from the queue and dispatches them to the {@link WebHookIntegration}.
+ */
+@Component
+public class WebHookDispatchQueue {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WebHookDispatchQueue.class);
+
+  public static final String ASYNC_ENABLED_KEY = "webhook.dispatch.async.enabled";
+
+  public static final String QUEUE_CAPACITY_KEY = "webhook.dispatch.queue.capacity";
+
+  public static final String WORKER_POOL_SIZE_KEY = "webhook.dispatch.workers";
+
+  public static final Integer DEFAULT_QUEUE_CAPACITY = 1000;
+
+  public static final Integer DEFAULT_WORKER_POOL_SIZE = 10;
+
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private RequestMetricsController metricsController;
+
+  /**
+   * Flag to determine if the accept-and-queue mode is enabled
+   */
+  private boolean enabled;
+
+  /**
+   * Worker pool backed by the bounded dispatch queue
+   */
+  private ThreadPoolExecutor workers;
+
+  /**
+   * Reads the queue settings and initializes the worker pool if the accept-and-queue mode is
+   * enabled.
+   */
+  @PostConstruct
+  public void init() {
+    this.enabled = environment.getProperty(ASYNC_ENABLED_KEY, Boolean.class, Boolean.FALSE);
+
+    if (!enabled) {
+      return;
+    }
+
+    int capacity = environment.getProperty(QUEUE_CAPACITY_KEY, Integer.class, DEFAULT_QUEUE_CAPACITY);
+    int poolSize = environment.getProperty(WORKER_POOL_SIZE_KEY, Integer.class, DEFAULT_WORKER_POOL_SIZE);
+
+    BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(capacity);
+    this.workers = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, queue,
+        new ThreadFactoryBuilder().setNameFormat("webhook-dispatch-%d").setDaemon(true).build(),
+        new ThreadPoolExecutor.AbortPolicy());
+
+    metricsController.initWebHookQueue(queue);
+
+    LOGGER.info("Webhook accept-and-queue mode enabled. Queue capacity: {}, workers: {}", capacity,
+        poolSize);
+  }
+
+  /**
+   * Shutdown the worker pool.
+   */
+  @PreDestroy
+  public void destroy() {
+    if (workers != null) {
+      workers.shutdown();
+    }
+  }
+
+  /**
+   * Returns true if the accept-and-queue mode is enabled or false otherwise.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Puts the payload on the dispatch queue to be handled by the worker pool.
+   * @param integration WebHook integration responsible to handle the payload
+   * @param hash Configuration instance identifier
+   * @param configurationType Configuration type
+   * @param payload WebHook payload
+   * @param circuitBreaker Circuit breaker that must be notified about the outcome of the Agent call
+   * @return true if the payload was enqueued or false if the queue is full
+   */
+  public boolean offer(final WebHookIntegration integration, final String hash,
+      final String configurationType, final WebHookPayload payload,
+      final CircuitBreaker circuitBreaker) {
+    final long enqueuedAt = System.nanoTime();
+
+    try {
+      workers.execute(new IntegrationAbstractRunnable(MDC.get(TRACE_ID)) {
+        @Override
+        protected void execute() {
+          metricsController.finishWebHookQueueWait(System.nanoTime() - enqueuedAt);
+          dispatch(integration, hash, configurationType, payload, circuitBreaker);
+        }
+      });
+
+      return true;
+    } catch (RejectedExecutionException e) {
+      metricsController.rejectWebHookRequest();
+      LOGGER.warn("Webhook dispatch queue is full. Rejecting the request for the instance {}", hash);
+      return false;
+    }
+  }
+
+  /**
+   * Dispatches the payload to the webhook integration. There is no HTTP response to report
+   * failures at this point, so they are only logged and reported to the circuit breaker.
+   */
+  private void dispatch(WebHookIntegration integration, String hash, String configurationType,
+      WebHookPayload payload, CircuitBreaker circuitBreaker) {
+    try {
+      integration.handle(hash, configurationType, payload);
+      circuitBreaker.onSuccess();
+    } catch (WebHookParseException | MessageMLParseException e) {
+      circuitBreaker.onIgnored();
+      LOGGER.error(String.format("Couldn't parse the incoming payload for the instance: %s", hash), e);
+    } catch (InstanceNotFoundException e) {
+      circuitBreaker.onIgnored();
+      LOGGER.warn(e.getMessage());
+    } catch (ConnectivityException | ProcessingException e) {
+      circuitBreaker.onFailure();
+      LOGGER.error(String.format("Fail to dispatch the incoming payload for the instance: %s", hash), e);
+    } catch (RuntimeException e) {
+      circuitBreaker.onIgnored();
+      LOGGER.error(String.format("Fail to dispatch the incoming payload for the instance: %s", hash), e);
+    }
+  }
+
+}
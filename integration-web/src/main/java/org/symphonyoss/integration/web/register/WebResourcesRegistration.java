@@ -20,10 +20,13 @@ import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.servlet.DispatcherServlet;
 import org.symphonyoss.integration.web.filter.IntegrationMetricsFilter;
+import org.symphonyoss.integration.web.filter.WebHookConcurrencyLimitFilter;
 import org.symphonyoss.integration.web.filter.WebHookOriginCheckFilter;
+import org.symphonyoss.integration.web.filter.WebHookRouteFilter;
 import org.symphonyoss.integration.web.filter.WebHookTracingFilter;
 
 import java.util.Collections;
@@ -47,6 +50,37 @@ public class WebResourcesRegistration {
 
   private static final String METRICS_PATH = "/metrics/";
   
+  /**
+   * Register webhook route filter. It runs first to parse the request path once for all the other
+   * filters.
+   * @return Filter registration object
+   */
+  @Bean
+  public FilterRegistrationBean webhookRouteFilterRegistration() {
+    WebHookRouteFilter filter = new WebHookRouteFilter();
+    FilterRegistrationBean registration = new FilterRegistrationBean(filter);
+    registration.setUrlPatterns(Collections.singletonList(baseUrlMapping()));
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+    return registration;
+  }
+
+  /**
+   * Register webhook concurrency limit filter. It runs right after the route filter to reject the
+   * excess requests before any other processing.
+   * @return Filter registration object
+   */
+  @Bean
+  public FilterRegistrationBean webhookConcurrencyLimitFilterRegistration() {
+    WebHookConcurrencyLimitFilter filter = new WebHookConcurrencyLimitFilter();
+    FilterRegistrationBean registration = new FilterRegistrationBean(filter);
+
+    String urlPattern = WebHookOriginCheckFilter.URL_PATTERN + PATH_WILDCARD;
+    registration.setUrlPatterns(Collections.singletonList(urlPattern));
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+
+    return registration;
+  }
+
   /**
    * Register webhook check origin filter.
    * @return Filter registration object
@@ -84,7 +118,6 @@ public class WebResourcesRegistration {
     FilterRegistrationBean registration = new FilterRegistrationBean(filter);
     registration.setUrlPatterns(Collections.singletonList(baseUrlMapping()));
     registration.addInitParameter(IntegrationMetricsFilter.IGNORE_URL_PARAM, BASE_API_PATH + METRICS_PATH);
-    registration.addInitParameter(IntegrationMetricsFilter.WEBHOOK_URL_PARAM, WebHookOriginCheckFilter.URL_PATTERN);
     return registration;
   }
 
@@ -18,6 +18,7 @@ package org.symphonyoss.integration.web.resource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -26,7 +27,11 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.symphonyoss.integration.core.circuit.CircuitBreaker;
+import org.symphonyoss.integration.core.circuit.Downstream;
 import org.symphonyoss.integration.entity.MessageMLParseException;
+import org.symphonyoss.integration.web.payload.ServletWebHookPayload;
+import org.symphonyoss.integration.web.queue.WebHookDispatchQueue;
 import org.symphonyoss.integration.webhook.WebHookIntegration;
 import org.symphonyoss.integration.webhook.WebHookPayload;
 import org.symphonyoss.integration.webhook.exception.WebHookParseException;
@@ -43,6 +48,9 @@ public class WebHookDispatcherResource extends WebHookResource {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(WebHookDispatcherResource.class);
 
+  @Autowired
+  private WebHookDispatchQueue dispatchQueue;
+
   /**
    * Handle HTTP POST requests sent from third-party apps to post messages with Content-type
    * 'application/x-www-form-urlencoded'
@@ -50,7 +58,8 @@ public class WebHookDispatcherResource extends WebHookResource {
    * @param configurationId Configuration identifier
    * @param configurationType Configuration type
    * @param request HTTP request
-   * @return HTTP 200 if success or HTTP error otherwise.
+   * @return HTTP 200 if success, HTTP 202 if the request was enqueued to be dispatched later or
+   * HTTP error otherwise.
    */
   @RequestMapping(value = "/{configurationType}/{configurationId}/{hash}",
       consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE, method = RequestMethod.POST,
@@ -67,7 +76,8 @@ public class WebHookDispatcherResource extends WebHookResource {
    * @param hash Configuration instance identifier
    * @param configurationId Configuration identifier
    * @param request HTTP request
-   * @return HTTP 200 if success or HTTP error otherwise.
+   * @return HTTP 200 if success, HTTP 202 if the request was enqueued to be dispatched later or
+   * HTTP error otherwise.
    */
   @RequestMapping(value = "/{configurationId}/{hash}",
       consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE, method = RequestMethod.POST,
@@ -83,7 +93,8 @@ public class WebHookDispatcherResource extends WebHookResource {
    * @param configurationId Configuration identifier
    * @param configurationType Configuration type
    * @param request HTTP request
-   * @return HTTP 200 if success or HTTP error otherwise.
+   * @return HTTP 200 if success, HTTP 202 if the request was enqueued to be dispatched later or
+   * HTTP error otherwise.
    */
   @RequestMapping(value = "/{configurationType}/{configurationId}/{hash}",
       consumes = MediaType.ALL_VALUE, method = RequestMethod.POST,
@@ -99,7 +110,8 @@ public class WebHookDispatcherResource extends WebHookResource {
    * @param hash Configuration instance identifier
    * @param configurationId Configuration identifier
    * @param request HTTP request
-   * @return HTTP 200 if success or HTTP error otherwise.
+   * @return HTTP 200 if success, HTTP 202 if the request was enqueued to be dispatched later or
+   * HTTP error otherwise.
    */
   @RequestMapping(value = "/{configurationId}/{hash}", consumes = MediaType.ALL_VALUE,
       method = RequestMethod.POST, produces = MediaType.TEXT_PLAIN_VALUE)
@@ -109,18 +121,59 @@ public class WebHookDispatcherResource extends WebHookResource {
 
     WebHookIntegration whiIntegration = getWebHookIntegration(configurationId);
 
-    WebHookPayload payload = retrieveWebHookPayload(request, body);
+    ServletWebHookPayload payload = retrieveWebHookPayload(request, body);
+
+    String configurationType = whiIntegration.getSettings().getType();
+
+    if (dispatchQueue.isEnabled()) {
+      // the request can't be read by the dispatch workers, so its values are copied beforehand
+      return enqueueRequest(hash, configurationId, configurationType, whiIntegration,
+          payload.materialize());
+    }
+
+    CircuitBreaker circuitBreaker = acquireCircuitBreaker(configurationType, Downstream.AGENT);
 
     // handles the request
     try {
-      String configurationType = whiIntegration.getSettings().getType();
       whiIntegration.handle(hash, configurationType, payload);
+      circuitBreaker.onSuccess();
       return ResponseEntity.ok().body("");
     } catch (WebHookParseException | MessageMLParseException e) {
+      circuitBreaker.onIgnored();
       LOGGER.error(String.format("Couldn't parse the incoming payload for the instance: %s", hash), e);
       return ResponseEntity.status(HttpStatus.BAD_REQUEST)
           .body(String.format("Couldn't validate the incoming payload for the instance: %s", hash));
+    } catch (RuntimeException e) {
+      reportFailure(circuitBreaker, e);
+      throw e;
+    }
+  }
+
+  /**
+   * Validates the configuration instance and puts the payload on the dispatch queue. The payload
+   * will be handled later by the dispatch workers.
+   * @param hash Configuration instance identifier
+   * @param configurationId Configuration identifier
+   * @param configurationType Configuration type
+   * @param whiIntegration WebHook integration responsible to handle the request
+   * @param payload WebHook payload
+   * @return HTTP 202 if the payload was enqueued or HTTP 503 if the queue is full.
+   */
+  private ResponseEntity<String> enqueueRequest(String hash, String configurationId,
+      String configurationType, WebHookIntegration whiIntegration, WebHookPayload payload) {
+    getConfigurationInstance(hash, configurationId, configurationType);
+
+    // the dispatch worker reports the outcome of the Agent call to this circuit breaker
+    CircuitBreaker circuitBreaker = acquireCircuitBreaker(configurationType, Downstream.AGENT);
+
+    if (dispatchQueue.offer(whiIntegration, hash, configurationType, payload, circuitBreaker)) {
+      return ResponseEntity.status(HttpStatus.ACCEPTED).body("");
     }
+
+    circuitBreaker.onIgnored();
+
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .body("Integration Bridge is too busy to accept the request. Try again later.");
   }
 
   /**
@@ -27,6 +27,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 import org.symphonyoss.integration.config.exception.InstanceNotFoundException;
+import org.symphonyoss.integration.core.circuit.CircuitBreaker;
+import org.symphonyoss.integration.core.circuit.CircuitBreakerRegistry;
+import org.symphonyoss.integration.core.circuit.Downstream;
 import org.symphonyoss.integration.exception.authentication.ConnectivityException;
 import org.symphonyoss.integration.exception.config.ForbiddenUserException;
 import org.symphonyoss.integration.exception.config.IntegrationConfigException;
@@ -35,19 +38,13 @@ import org.symphonyoss.integration.service.IntegrationBridge;
 import org.symphonyoss.integration.service.IntegrationService;
 import org.symphonyoss.integration.web.exception.IntegrationBridgeUnavailableException;
 import org.symphonyoss.integration.web.exception.IntegrationUnavailableException;
+import org.symphonyoss.integration.web.payload.ServletWebHookPayload;
 import org.symphonyoss.integration.webhook.WebHookIntegration;
-import org.symphonyoss.integration.webhook.WebHookPayload;
 import org.symphonyoss.integration.webhook.exception.WebHookDisabledException;
 import org.symphonyoss.integration.webhook.exception.WebHookUnavailableException;
 
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.ProcessingException;
 
 /**
  * Base class to support HTTP handlers.
@@ -68,24 +65,11 @@ public abstract class WebHookResource {
   private IntegrationBridge integrationBridge;
 
   /**
-   * Represents the current circuit state that Integration Bridge uses to determine whether it is
-   * available to receive messages or not. If this flag changes to false, the integration bridge
-   * will temporarily stop accepting messages, to prevent unnecessary calls that are likely to
-   * fail.
-   * After a set timeout in "circuit open" state, the circuit will "close", enabling integration
-   * bridge to accept messages again.
-   */
-  private boolean circuitClosed = true;
-
-  /**
-   * Time, in milliseconds, that the integration bridge circuit breaker will remain open.
-   */
-  private static final long circuitTimeout = 10000L;
-
-  /**
-   * Used to control the timeout for the circuit breaker mechanism used by the Integration Bridge.
+   * Circuit breakers used to stop calling the Agent or the POD on behalf of an integration that is
+   * facing connectivity issues, to prevent unnecessary calls that are likely to fail.
    */
-  private ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  @Autowired
+  private CircuitBreakerRegistry circuitBreakerRegistry;
 
   /**
    * Retrieve the webhook integration based on the configurationId
@@ -100,15 +84,11 @@ public abstract class WebHookResource {
 
   /**
    * Perform the necessary checks to determine if the process should stop here due to failure or any
-   * other problem with the specific integration. Will also validate any internal circuits that may
-   * be open.
+   * other problem with the specific integration.
    * @param configurationId to determine which integration we are processing.
    * @return the {@link WebHookIntegration} object if the process will continue.
    */
   protected WebHookIntegration checkIntegrationAvailability(String configurationId) {
-    // check general availability
-    checkIntegrationBridgeAvailability();
-
     WebHookIntegration whiIntegration =
         (WebHookIntegration) this.integrationBridge.getIntegrationById(configurationId);
     if (whiIntegration == null) {
@@ -126,65 +106,68 @@ public abstract class WebHookResource {
    * @return Configuration instance that contains information how to handle the request.
    * @throws InstanceNotFoundException Instance not found
    * @throws ForbiddenUserException
+   * @throws IntegrationBridgeUnavailableException POD circuit is open for this integration
    */
   protected IntegrationInstance getConfigurationInstance(String instanceId,
       String configurationId,
       String configurationType) {
-    return integrationService.getInstanceById(configurationId, instanceId, configurationType);
+    CircuitBreaker circuitBreaker = acquireCircuitBreaker(configurationType, Downstream.POD);
+
+    try {
+      IntegrationInstance instance =
+          integrationService.getInstanceById(configurationId, instanceId, configurationType);
+      circuitBreaker.onSuccess();
+      return instance;
+    } catch (RuntimeException e) {
+      reportFailure(circuitBreaker, e);
+      throw e;
+    }
   }
 
   /**
-   * Retrieve the payload that will be sent to {@link WebHookIntegration}
-   * @param request
-   * @param body
-   * @return
+   * Asks the circuit breaker of the integration permission to call the downstream service. The
+   * outcome of the call must be reported to the returned circuit breaker.
+   * @param configurationType Integration type
+   * @param downstream Downstream service
+   * @return Circuit breaker that permitted the call
+   * @throws IntegrationBridgeUnavailableException Circuit is open for this integration
    */
-  protected WebHookPayload retrieveWebHookPayload(HttpServletRequest request, String body) {
-    Map<String, String> parameters = new HashMap<>();
-    Map<String, String> headers = new HashMap<>();
-
-    Enumeration<String> paramEnum = request.getParameterNames();
-    while (paramEnum.hasMoreElements()) {
-      String paramName = paramEnum.nextElement();
-      parameters.put(paramName, request.getParameter(paramName));
-    }
-
-    Enumeration<String> headerEnum = request.getHeaderNames();
-    while (headerEnum.hasMoreElements()) {
-      String headerName = headerEnum.nextElement();
-      headers.put(headerName, request.getHeader(headerName));
+  protected CircuitBreaker acquireCircuitBreaker(String configurationType, Downstream downstream) {
+    CircuitBreaker circuitBreaker =
+        circuitBreakerRegistry.getCircuitBreaker(configurationType, downstream);
+
+    if (!circuitBreaker.tryAcquire()) {
+      throw new IntegrationBridgeUnavailableException(String.format(
+          "Integration %s temporarily unavailable due to connectivity issues with the %s.",
+          configurationType, downstream.getKey()));
     }
 
-    return new WebHookPayload(parameters, headers, body);
-  }
-
-  private void closeCircuit() {
-    this.circuitClosed = true;
+    return circuitBreaker;
   }
 
   /**
-   * Check the internal circuit state, if closed (true), request may continue, if open (false) the
-   * message must be dropped.
+   * Reports a call that failed with the given exception. Only connectivity issues count as failures
+   * of the downstream service, other exceptions are ignored by the circuit breaker.
+   * @param circuitBreaker Circuit breaker that permitted the call
+   * @param e Exception thrown by the call
    */
-  protected void checkIntegrationBridgeAvailability() {
-    if (!this.circuitClosed) {
-      throw new IntegrationBridgeUnavailableException(
-          "Integration Bridge temporarily unavailable due to connectivity issues.");
+  protected void reportFailure(CircuitBreaker circuitBreaker, RuntimeException e) {
+    if (e instanceof ConnectivityException || e instanceof ProcessingException) {
+      circuitBreaker.onFailure();
+    } else {
+      circuitBreaker.onIgnored();
     }
   }
 
   /**
-   * Opens the internal circuit and sets a timer to close it again according to the value on
-   * circuitTimeout variable on this class.
+   * Retrieve the payload that will be sent to {@link WebHookIntegration}. Headers and parameters
+   * are read from the request only when the integration asks for them.
+   * @param request HTTP request
+   * @param body Request body
+   * @return WebHook payload backed by the request
    */
-  private void openCircuit() {
-    this.circuitClosed = false;
-    this.scheduler.schedule(new Runnable() {
-      @Override
-      public void run() {
-        closeCircuit();
-      }
-    }, circuitTimeout, TimeUnit.MILLISECONDS);
+  protected ServletWebHookPayload retrieveWebHookPayload(HttpServletRequest request, String body) {
+    return new ServletWebHookPayload(request, body);
   }
 
   /**
@@ -200,6 +183,20 @@ public abstract class WebHookResource {
     return ResponseEntity.badRequest().body(message);
   }
 
+  /**
+   * Handle {@link InstanceNotFoundException} exception. Unknown instances are usually caused by
+   * misconfigured senders or scanners, so the stack trace is not logged.
+   * @param ex Exception object
+   * @return HTTP 400 (Bad Request)
+   */
+  @ResponseBody
+  @ExceptionHandler(InstanceNotFoundException.class)
+  public ResponseEntity<String> handleInstanceNotFoundException(InstanceNotFoundException ex) {
+    String message = ex.getMessage();
+    LOGGER.warn(message);
+    return ResponseEntity.badRequest().body(message);
+  }
+
   /**
    * Handle {@link IntegrationUnavailableException} exception.
    * @param ex Exception object
@@ -223,9 +220,6 @@ public abstract class WebHookResource {
   public ResponseEntity<String> handleConnectivityException(ConnectivityException ex) {
     String message = ex.getMessage();
     LOGGER.error(message);
-
-    openCircuit();
-
     return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(message);
   }
 
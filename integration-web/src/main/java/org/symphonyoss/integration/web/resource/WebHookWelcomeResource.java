@@ -25,6 +25,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.symphonyoss.integration.core.circuit.CircuitBreaker;
+import org.symphonyoss.integration.core.circuit.Downstream;
 import org.symphonyoss.integration.model.config.IntegrationInstance;
 import org.symphonyoss.integration.webhook.WebHookIntegration;
 
@@ -74,7 +76,16 @@ public class WebHookWelcomeResource extends WebHookResource {
     IntegrationInstance instance =
         getConfigurationInstance(hash, configurationId, configurationType);
 
-    whiIntegration.welcome(instance, configurationType, body);
+    CircuitBreaker circuitBreaker = acquireCircuitBreaker(configurationType, Downstream.AGENT);
+
+    try {
+      whiIntegration.welcome(instance, configurationType, body);
+      circuitBreaker.onSuccess();
+    } catch (RuntimeException e) {
+      reportFailure(circuitBreaker, e);
+      throw e;
+    }
+
     return ResponseEntity.ok().body("");
   }
 }
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.integration.web.route;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Describes the resource targeted by a request to the Integration Bridge API.
+ *
+ * The request path is parsed once, by the first filter that needs it, and kept as a request
+ * attribute so the other filters and the resources can reuse it. Webhook paths have one of the
+ * following formats:
+ *
+ * /integration/v1/whi/{configurationType}/{configurationId}/{hash}[/welcome]
+ * /integration/v1/whi/{configurationId}/{hash}[/welcome]
+ *
+ * Instances are immutable.
+ */
+public final class WebHookRoute {
+
+  public static final String ATTRIBUTE_NAME = WebHookRoute.class.getName();
+
+  public static final String WEBHOOK_PATH = "/integration/v1/whi/";
+
+  private static final String WELCOME_PATH = "welcome";
+
+  private static final char PATH_SEPARATOR = '/';
+
+  /**
+   * Webhook paths have at most four segments: type, identifier, hash and the welcome suffix
+   */
+  private static final int MAX_SEGMENTS = 4;
+
+  /**
+   * Kind of resource targeted by the request
+   */
+  public enum Kind {
+    WEBHOOK,
+    OTHER
+  }
+
+  private final Kind kind;
+
+  private final String path;
+
+  private final String integrationKey;
+
+  private final String configurationType;
+
+  private final String configurationId;
+
+  private final String hash;
+
+  private final boolean welcome;
+
+  private WebHookRoute(Kind kind, String path, String integrationKey, String configurationType,
+      String configurationId, String hash, boolean welcome) {
+    this.kind = kind;
+    this.path = path;
+    this.integrationKey = integrationKey;
+    this.configurationType = configurationType;
+    this.configurationId = configurationId;
+    this.hash = hash;
+    this.welcome = welcome;
+  }
+
+  /**
+   * Returns the route of the request, parsing the request path if it wasn't parsed yet.
+   * @param request HTTP request
+   * @return Request route
+   */
+  public static WebHookRoute of(HttpServletRequest request) {
+    Object attribute = request.getAttribute(ATTRIBUTE_NAME);
+
+    if (attribute instanceof WebHookRoute) {
+      return (WebHookRoute) attribute;
+    }
+
+    WebHookRoute route = parse(request.getRequestURI(), request.getContextPath());
+    request.setAttribute(ATTRIBUTE_NAME, route);
+
+    return route;
+  }
+
+  /**
+   * Parses the request path in a single pass.
+   * @param requestUri Request URI
+   * @param contextPath Servlet context path
+   * @return Request route
+   */
+  public static WebHookRoute parse(String requestUri, String contextPath) {
+    String path = requestUri == null ? "" : requestUri;
+
+    if (contextPath != null && !contextPath.isEmpty() && path.startsWith(contextPath)) {
+      path = path.substring(contextPath.length());
+    }
+
+    if (!path.startsWith(WEBHOOK_PATH)) {
+      return new WebHookRoute(Kind.OTHER, path, null, null, null, null, false);
+    }
+
+    // start and end offsets of the segments after the webhook path, one more than the maximum is
+    // parsed to detect the longer paths
+    int[] bounds = new int[(MAX_SEGMENTS + 1) * 2];
+    int segments = 0;
+    int start = WEBHOOK_PATH.length();
+    int length = path.length();
+
+    for (int i = start; i <= length && segments <= MAX_SEGMENTS; i++) {
+      if (i == length || path.charAt(i) == PATH_SEPARATOR) {
+        if (i > start) {
+          bounds[segments * 2] = start;
+          bounds[segments * 2 + 1] = i;
+          segments++;
+        }
+
+        start = i + 1;
+      }
+    }
+
+    // the first segment identifies the integration only when it's followed by other segments
+    String integrationKey = null;
+
+    if (segments > 0 && bounds[1] < length) {
+      integrationKey = path.substring(bounds[0], bounds[1]);
+    }
+
+    if (segments > MAX_SEGMENTS) {
+      return new WebHookRoute(Kind.WEBHOOK, path, integrationKey, null, null, null, false);
+    }
+
+    boolean welcome = segments > 0
+        && path.regionMatches(bounds[segments * 2 - 2], WELCOME_PATH, 0, WELCOME_PATH.length())
+        && bounds[segments * 2 - 1] - bounds[segments * 2 - 2] == WELCOME_PATH.length();
+
+    int idSegments = welcome ? segments - 1 : segments;
+
+    String configurationType = null;
+    String configurationId = null;
+    String hash = null;
+
+    if (idSegments == 3) {
+      configurationType = segment(path, bounds, 0);
+      configurationId = segment(path, bounds, 1);
+      hash = segment(path, bounds, 2);
+    } else if (idSegments == 2) {
+      configurationId = segment(path, bounds, 0);
+      hash = segment(path, bounds, 1);
+    }
+
+    return new WebHookRoute(Kind.WEBHOOK, path, integrationKey, configurationType,
+        configurationId, hash, welcome);
+  }
+
+  private static String segment(String path, int[] bounds, int index) {
+    return path.substring(bounds[index * 2], bounds[index * 2 + 1]);
+  }
+
+  /**
+   * Returns the kind of resource targeted by the request.
+   */
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * Returns true if the request targets a webhook resource.
+   */
+  public boolean isWebHook() {
+    return kind == Kind.WEBHOOK;
+  }
+
+  /**
+   * Returns the request path without the servlet context path.
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Returns the first segment of the webhook path, used by the filters to identify the
+   * integration, or null if the path has no such segment.
+   */
+  public String getIntegrationKey() {
+    return integrationKey;
+  }
+
+  /**
+   * Returns the configuration type or null if the path doesn't include it.
+   */
+  public String getConfigurationType() {
+    return configurationType;
+  }
+
+  /**
+   * Returns the configuration identifier or null if the path doesn't include it.
+   */
+  public String getConfigurationId() {
+    return configurationId;
+  }
+
+  /**
+   * Returns the configuration instance identifier or null if the path doesn't include it.
+   */
+  public String getHash() {
+    return hash;
+  }
+
+  /**
+   * Returns true if the request targets a welcome resource.
+   */
+  public boolean isWelcome() {
+    return welcome;
+  }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.web.dns;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.symphonyoss.integration.metrics.IntegrationMetricsConstants.BASE_METRIC_NAME;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.core.env.Environment;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link ReverseDnsResolver}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ReverseDnsResolverTest {
+
+  private static final String LOCAL_ADDRESS = "127.0.0.1";
+
+  private static final String UNKNOWN_ADDRESS = "unknown";
+
+  private static final String METRIC_PREFIX = MetricRegistry.name(BASE_METRIC_NAME, "reverseDns");
+
+  @Mock
+  private Environment environment;
+
+  @Spy
+  private MetricRegistry metricsRegistry = new MetricRegistry();
+
+  @Spy
+  @InjectMocks
+  private ReverseDnsResolver resolver = new ReverseDnsResolver();
+
+  @Before
+  public void init() {
+    doReturn(60000L).when(environment).getProperty(ReverseDnsResolver.CACHE_TTL_KEY, Long.class,
+        ReverseDnsResolver.DEFAULT_CACHE_TTL);
+    doReturn(60000L).when(environment).getProperty(ReverseDnsResolver.NEGATIVE_CACHE_TTL_KEY,
+        Long.class, ReverseDnsResolver.DEFAULT_NEGATIVE_CACHE_TTL);
+    doReturn(60000L).when(environment).getProperty(ReverseDnsResolver.CACHE_REFRESH_KEY, Long.class,
+        ReverseDnsResolver.DEFAULT_CACHE_REFRESH);
+    doReturn(100L).when(environment).getProperty(ReverseDnsResolver.CACHE_MAX_SIZE_KEY, Long.class,
+        ReverseDnsResolver.DEFAULT_CACHE_MAX_SIZE);
+    doReturn(200L).when(environment).getProperty(ReverseDnsResolver.TIMEOUT_KEY, Long.class,
+        ReverseDnsResolver.DEFAULT_TIMEOUT);
+    doReturn(2).when(environment).getProperty(ReverseDnsResolver.POOL_SIZE_KEY, Integer.class,
+        ReverseDnsResolver.DEFAULT_POOL_SIZE);
+
+    resolver.init();
+  }
+
+  @After
+  public void cleanup() {
+    resolver.destroy();
+  }
+
+  @Test
+  public void testResolveCached() throws UnknownHostException {
+    InetAddress address = InetAddress.getByName(LOCAL_ADDRESS);
+
+    List<String> hostNames = resolver.resolve(LOCAL_ADDRESS);
+
+    assertTrue(hostNames.contains(address.getHostName()));
+    assertEquals(hostNames, resolver.resolve(LOCAL_ADDRESS));
+
+    verify(resolver, times(1)).getAddress(LOCAL_ADDRESS);
+    assertEquals(1, metricsRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "misses")).getCount());
+    assertEquals(1, metricsRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "hits")).getCount());
+    assertEquals(1,
+        metricsRegistry.timer(MetricRegistry.name(METRIC_PREFIX, "resolution")).getCount());
+  }
+
+  @Test
+  public void testRefreshStaleEntry() throws UnknownHostException {
+    resolver.destroy();
+    doReturn(0L).when(environment).getProperty(ReverseDnsResolver.CACHE_REFRESH_KEY, Long.class,
+        ReverseDnsResolver.DEFAULT_CACHE_REFRESH);
+    resolver.init();
+
+    List<String> hostNames = resolver.resolve(LOCAL_ADDRESS);
+
+    // the stale entry is returned right away and renewed in the background
+    assertEquals(hostNames, resolver.resolve(LOCAL_ADDRESS));
+
+    verify(resolver, timeout(1000).times(2)).getAddress(LOCAL_ADDRESS);
+    assertEquals(1,
+        metricsRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "refreshes")).getCount());
+  }
+
+  @Test
+  public void testUnknownHostCached() throws UnknownHostException {
+    doThrow(UnknownHostException.class).when(resolver).getAddress(UNKNOWN_ADDRESS);
+
+    assertEquals(Collections.emptyList(), resolver.resolve(UNKNOWN_ADDRESS));
+    assertEquals(Collections.emptyList(), resolver.resolve(UNKNOWN_ADDRESS));
+
+    verify(resolver, times(1)).getAddress(UNKNOWN_ADDRESS);
+  }
+
+  @Test
+  public void testTimeout() throws UnknownHostException, InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+
+    doAnswer(new Answer<InetAddress>() {
+      @Override
+      public InetAddress answer(InvocationOnMock invocation) throws Throwable {
+        release.await();
+        return InetAddress.getByName(LOCAL_ADDRESS);
+      }
+    }).when(resolver).getAddress(LOCAL_ADDRESS);
+
+    assertEquals(Collections.emptyList(), resolver.resolve(LOCAL_ADDRESS));
+    assertEquals(1,
+        metricsRegistry.meter(MetricRegistry.name(METRIC_PREFIX, "timeouts")).getCount());
+
+    // the lookup keeps running and its result is cached
+    release.countDown();
+
+    for (int i = 0; i < 100 && resolver.resolve(LOCAL_ADDRESS).isEmpty(); i++) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+
+    String hostName = InetAddress.getByName(LOCAL_ADDRESS).getHostName();
+    assertTrue(resolver.resolve(LOCAL_ADDRESS).contains(hostName));
+  }
+
+}
@@ -92,7 +92,6 @@ public class IntegrationMetricsFilterTest {
     doReturn(beanFactory).when(webApplicationContext).getAutowireCapableBeanFactory();
 
     config.addInitParameter("ignore-url", IGNORE_URL);
-    config.addInitParameter("webhook-url", WEBHOOK_URL);
 
     doReturn(StringUtils.EMPTY).when(request).getContextPath();
 
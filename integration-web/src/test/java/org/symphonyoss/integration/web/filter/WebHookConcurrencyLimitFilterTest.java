@@ -0,0 +1,99 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.web.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.symphonyoss.integration.web.limit.AdaptiveConcurrencyLimiter;
+import org.symphonyoss.integration.web.metrics.RequestMetricsController;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+/**
+ * Unit tests for {@link WebHookConcurrencyLimitFilter}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class WebHookConcurrencyLimitFilterTest {
+
+  @Mock
+  private AdaptiveConcurrencyLimiter limiter;
+
+  @Mock
+  private RequestMetricsController metricsController;
+
+  @Mock
+  private FilterChain filterChain;
+
+  @InjectMocks
+  private WebHookConcurrencyLimitFilter filter = new WebHookConcurrencyLimitFilter();
+
+  private MockHttpServletRequest request = new MockHttpServletRequest();
+
+  private MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @Test
+  public void testDisabled() throws IOException, ServletException {
+    doReturn(false).when(limiter).isEnabled();
+
+    filter.doFilter(request, response, filterChain);
+
+    verify(filterChain).doFilter(request, response);
+    verify(limiter, never()).tryAcquire();
+  }
+
+  @Test
+  public void testAcquired() throws IOException, ServletException {
+    doReturn(true).when(limiter).isEnabled();
+    doReturn(true).when(limiter).tryAcquire();
+
+    filter.doFilter(request, response, filterChain);
+
+    verify(filterChain).doFilter(request, response);
+    verify(limiter).release(anyLong());
+  }
+
+  @Test
+  public void testRejected() throws IOException, ServletException {
+    doReturn(true).when(limiter).isEnabled();
+    doReturn(false).when(limiter).tryAcquire();
+    doReturn(2).when(limiter).getRetryAfter();
+
+    filter.doFilter(request, response, filterChain);
+
+    assertEquals(503, response.getStatus());
+    assertEquals("2", response.getHeader(WebHookConcurrencyLimitFilter.RETRY_AFTER_HEADER));
+
+    verify(filterChain, never()).doFilter(request, response);
+    verify(limiter, never()).release(anyLong());
+    verify(metricsController).rejectConcurrencyLimitedRequest();
+  }
+
+}
@@ -36,11 +36,14 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockServletContext;
 import org.springframework.web.context.WebApplicationContext;
 import org.symphonyoss.integration.Integration;
+import org.symphonyoss.integration.core.whitelist.WhiteListRegistry;
 import org.symphonyoss.integration.logging.LogMessageSource;
 import org.symphonyoss.integration.model.yaml.IntegrationProperties;
+import org.symphonyoss.integration.web.dns.ReverseDnsResolver;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.Arrays;
 import java.util.Collections;
 
 import javax.servlet.FilterConfig;
@@ -104,6 +107,12 @@ public class WebHookOriginCheckFilterTest {
   @Mock
   private LogMessageSource logMessage;
 
+  @Mock
+  private ReverseDnsResolver dnsResolver;
+
+  @InjectMocks
+  private WhiteListRegistry whiteListRegistry = new WhiteListRegistry();
+
   @Before
   public void init() throws ServletException {
     servletContext.setAttribute(WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE,
@@ -113,13 +122,26 @@ public class WebHookOriginCheckFilterTest {
     doReturn(StringUtils.EMPTY).when(request).getContextPath();
     doReturn(servletContext).when(config).getServletContext();
     doReturn(integration).when(springContext).getBean(BEAN_NAME, Integration.class);
-    doReturn(properties).when(springContext).getBean(IntegrationProperties.class);
+    doReturn(whiteListRegistry).when(springContext).getBean(WhiteListRegistry.class);
     doReturn(logMessage).when(springContext).getBean(LogMessageSource.class);
+    doReturn(dnsResolver).when(springContext).getBean(ReverseDnsResolver.class);
     doReturn(Collections.singleton(REMOTE_ADDRESS)).when(integration).getIntegrationWhiteList();
 
     filter.init(config);
   }
 
+  @Test
+  public void testRemoteHostNotResolved() throws IOException, ServletException {
+    String remoteAddress = request.getRemoteAddr();
+    String host = InetAddress.getByName(remoteAddress).getHostName();
+
+    doReturn(Collections.emptyList()).when(dnsResolver).resolve(remoteAddress);
+    doReturn(Collections.singleton(host)).when(integration).getIntegrationWhiteList();
+
+    filter.doFilter(request, response, new MockFilterChain());
+    assertEquals(Response.Status.FORBIDDEN.getStatusCode(), response.getStatus());
+  }
+
   @Test
   public void testEmptyWhiteList() throws IOException, ServletException {
     doThrow(NoSuchBeanDefinitionException.class).when(springContext)
@@ -185,6 +207,15 @@ public class WebHookOriginCheckFilterTest {
     testRemoteAllowed(host);
   }
 
+  @Test
+  public void testProxyRemoteAddressBlockAllowed() throws IOException, ServletException {
+    doReturn(Collections.singleton("192.30.252.0/22")).when(integration).getIntegrationWhiteList();
+    doReturn(REMOTE_ADDRESS_LIST_SECOND_IP_ALLOWED).when(request).getHeader(FORWARD_HEADER);
+
+    filter.doFilter(request, response, new MockFilterChain());
+    assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+  }
+
   @Test
   public void testRemoteAddressAllowed() throws IOException, ServletException {
     doReturn(REMOTE_ADDRESS).when(request).getRemoteAddr();
@@ -209,11 +240,36 @@ public class WebHookOriginCheckFilterTest {
   }
 
   private void testRemoteAllowed(String host) throws IOException, ServletException {
+    InetAddress address = InetAddress.getByName(request.getRemoteAddr());
+    doReturn(Arrays.asList(address.getHostName(), address.getCanonicalHostName())).when(dnsResolver)
+        .resolve(request.getRemoteAddr());
+
     doReturn(Collections.singleton(host)).when(integration).getIntegrationWhiteList();
     filter.doFilter(request, response, new MockFilterChain());
     assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
   }
 
+  @Test
+  public void testRegisteredWhiteList() throws IOException, ServletException {
+    doReturn(REMOTE_ADDRESS).when(request).getRemoteAddr();
+    whiteListRegistry.register(BEAN_NAME, integration);
+
+    filter.doFilter(request, response, new MockFilterChain());
+    assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+  }
+
+  @Test
+  public void testRegisteredWhiteListChanged() throws IOException, ServletException {
+    doReturn(REMOTE_ADDRESS).when(request).getRemoteAddr();
+    whiteListRegistry.register(BEAN_NAME, integration);
+
+    // the integration applies the whitelist of the new settings on a configuration change
+    doReturn(Collections.singleton("10.0.0.1")).when(integration).getIntegrationWhiteList();
+
+    filter.doFilter(request, response, new MockFilterChain());
+    assertEquals(Response.Status.FORBIDDEN.getStatusCode(), response.getStatus());
+  }
+
   @Test
   public void testWelcomeUrl() throws IOException, ServletException {
     doReturn(WELCOME_URL).when(request).getRequestURI();
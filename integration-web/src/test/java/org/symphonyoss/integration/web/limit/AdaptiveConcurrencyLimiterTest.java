@@ -0,0 +1,163 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.web.limit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+import org.symphonyoss.integration.web.metrics.RequestMetricsController;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link AdaptiveConcurrencyLimiter}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AdaptiveConcurrencyLimiterTest {
+
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(5000);
+
+  @Mock
+  private Environment environment;
+
+  @Mock
+  private RequestMetricsController metricsController;
+
+  @InjectMocks
+  private AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+
+  @Test
+  public void testDisabled() {
+    doReturn(Boolean.FALSE).when(environment)
+        .getProperty(AdaptiveConcurrencyLimiter.ENABLED_KEY, Boolean.class, Boolean.FALSE);
+
+    limiter.init();
+
+    assertFalse(limiter.isEnabled());
+    verify(metricsController, never()).initConcurrencyLimiter(limiter);
+  }
+
+  @Test
+  public void testLimit() {
+    mockEnvironment(2);
+    limiter.init();
+
+    assertTrue(limiter.isEnabled());
+    verify(metricsController).initConcurrencyLimiter(limiter);
+
+    assertTrue(limiter.tryAcquire());
+    assertTrue(limiter.tryAcquire());
+    assertFalse(limiter.tryAcquire());
+    assertEquals(2, limiter.getInFlight());
+
+    limiter.release(FAST);
+
+    assertEquals(1, limiter.getInFlight());
+    assertTrue(limiter.tryAcquire());
+  }
+
+  @Test
+  public void testAdditiveIncrease() {
+    mockEnvironment(4);
+    limiter.init();
+
+    for (int i = 0; i < 4; i++) {
+      limiter.tryAcquire();
+    }
+
+    // grows by one after a window of fast completions as large as the limit
+    for (int i = 0; i < 3; i++) {
+      limiter.release(FAST);
+      limiter.tryAcquire();
+    }
+
+    assertEquals(4, limiter.getLimit());
+
+    limiter.release(FAST);
+    limiter.tryAcquire();
+
+    assertEquals(5, limiter.getLimit());
+
+    for (int i = 0; i < 5; i++) {
+      limiter.release(FAST);
+      limiter.tryAcquire();
+    }
+
+    assertEquals(6, limiter.getLimit());
+  }
+
+  @Test
+  public void testIdleLimitDoesNotGrow() {
+    mockEnvironment(4);
+    limiter.init();
+
+    // limit is not being used, so it doesn't grow
+    for (int i = 0; i < 10; i++) {
+      limiter.tryAcquire();
+      limiter.release(FAST);
+    }
+
+    assertEquals(4, limiter.getLimit());
+  }
+
+  @Test
+  public void testMultiplicativeDecrease() {
+    mockEnvironment(10);
+    limiter.init();
+
+    limiter.tryAcquire();
+    limiter.tryAcquire();
+    limiter.release(SLOW);
+
+    assertEquals(5, limiter.getLimit());
+
+    // only one decrease per latency threshold interval
+    limiter.release(SLOW);
+
+    assertEquals(5, limiter.getLimit());
+  }
+
+  private void mockEnvironment(int initialLimit) {
+    doReturn(Boolean.TRUE).when(environment)
+        .getProperty(AdaptiveConcurrencyLimiter.ENABLED_KEY, Boolean.class, Boolean.FALSE);
+    doReturn(initialLimit).when(environment)
+        .getProperty(AdaptiveConcurrencyLimiter.INITIAL_LIMIT_KEY, Integer.class, AdaptiveConcurrencyLimiter.DEFAULT_INITIAL_LIMIT);
+    doReturn(1).when(environment).getProperty(AdaptiveConcurrencyLimiter.MIN_LIMIT_KEY,
+        Integer.class, AdaptiveConcurrencyLimiter.DEFAULT_MIN_LIMIT);
+    doReturn(100).when(environment).getProperty(AdaptiveConcurrencyLimiter.MAX_LIMIT_KEY,
+        Integer.class, AdaptiveConcurrencyLimiter.DEFAULT_MAX_LIMIT);
+    doReturn(1000L).when(environment)
+        .getProperty(AdaptiveConcurrencyLimiter.LATENCY_THRESHOLD_KEY, Long.class, AdaptiveConcurrencyLimiter.DEFAULT_LATENCY_THRESHOLD);
+    doReturn(0.5).when(environment).getProperty(AdaptiveConcurrencyLimiter.BACKOFF_RATIO_KEY,
+        Double.class, AdaptiveConcurrencyLimiter.DEFAULT_BACKOFF_RATIO);
+    doReturn(2).when(environment).getProperty(AdaptiveConcurrencyLimiter.RETRY_AFTER_KEY,
+        Integer.class, AdaptiveConcurrencyLimiter.DEFAULT_RETRY_AFTER);
+  }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.integration.web.payload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.symphonyoss.integration.webhook.WebHookPayload;
+
+import java.util.Map;
+
+/**
+ * Unit tests for {@link ServletWebHookPayload}
+ */
+public class ServletWebHookPayloadTest {
+
+  private static final String BODY = "{\"key\":\"value\"}";
+
+  private static final String EVENT_HEADER = "X-GitHub-Event";
+
+  private static final String EVENT = "push";
+
+  private static final String PARAM_NAME = "param";
+
+  private static final String PARAM_VALUE = "value";
+
+  private MockHttpServletRequest request;
+
+  @Before
+  public void init() {
+    request = spy(new MockHttpServletRequest());
+    request.addHeader(EVENT_HEADER, EVENT);
+    request.addHeader("Content-Type", "application/json");
+    request.addParameter(PARAM_NAME, PARAM_VALUE);
+  }
+
+  @Test
+  public void testLazyHeaders() {
+    ServletWebHookPayload payload = new ServletWebHookPayload(request, BODY);
+
+    assertEquals(EVENT, payload.getHeaders().get("x-github-event"));
+    assertTrue(payload.getHeaders().containsKey(EVENT_HEADER.toUpperCase()));
+    assertFalse(payload.getHeaders().containsKey("x-hub-signature"));
+    assertEquals(BODY, payload.getBody());
+
+    verify(request, never()).getHeaderNames();
+  }
+
+  @Test
+  public void testLazyParameters() {
+    ServletWebHookPayload payload = new ServletWebHookPayload(request, BODY);
+
+    assertEquals(PARAM_VALUE, payload.getParameters().get(PARAM_NAME));
+    assertNull(payload.getParameters().get("other"));
+
+    verify(request, never()).getParameterNames();
+  }
+
+  @Test
+  public void testIterateHeaders() {
+    ServletWebHookPayload payload = new ServletWebHookPayload(request, BODY);
+    Map<String, String> headers = payload.getHeaders();
+
+    assertEquals(2, headers.size());
+    assertEquals(EVENT, headers.get(EVENT_HEADER));
+    assertEquals(1, payload.getParameters().size());
+  }
+
+  @Test
+  public void testModifyHeaders() {
+    ServletWebHookPayload payload = new ServletWebHookPayload(request, BODY);
+    Map<String, String> headers = payload.getHeaders();
+
+    assertEquals(EVENT, headers.put(EVENT_HEADER, "pull"));
+    assertEquals("pull", headers.get("x-github-event"));
+    assertEquals("application/json", headers.remove("content-type"));
+    assertFalse(headers.containsKey("Content-Type"));
+    assertEquals(1, headers.size());
+
+    // the request is never changed
+    assertEquals(EVENT, request.getHeader(EVENT_HEADER));
+  }
+
+  @Test
+  public void testModifyParameters() {
+    ServletWebHookPayload payload = new ServletWebHookPayload(request, BODY);
+    Map<String, String> parameters = payload.getParameters();
+
+    parameters.put("other", "value2");
+    parameters.remove(PARAM_NAME);
+
+    assertEquals("value2", parameters.get("other"));
+    assertNull(parameters.get(PARAM_NAME));
+    assertEquals(1, parameters.size());
+    assertEquals(PARAM_VALUE, request.getParameter(PARAM_NAME));
+  }
+
+  @Test
+  public void testConstructorDoesNotCopyTheRequest() {
+    new ServletWebHookPayload(request, BODY);
+
+    verify(request, never()).getHeaderNames();
+    verify(request, never()).getParameterNames();
+  }
+
+  @Test
+  public void testMaterialize() {
+    WebHookPayload payload = new ServletWebHookPayload(request, BODY).materialize();
+
+    // the copy must not depend on the request anymore
+    request.removeHeader(EVENT_HEADER);
+    request.removeAllParameters();
+
+    assertEquals(EVENT, payload.getHeaders().get("x-github-event"));
+    assertEquals(PARAM_VALUE, payload.getParameters().get(PARAM_NAME));
+    assertEquals(BODY, payload.getBody());
+  }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.symphonyoss.integration.web.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.core.env.Environment;
+import org.symphonyoss.integration.core.circuit.CircuitBreaker;
+import org.symphonyoss.integration.exception.authentication.ConnectivityException;
+import org.symphonyoss.integration.web.metrics.RequestMetricsController;
+import org.symphonyoss.integration.webhook.WebHookIntegration;
+import org.symphonyoss.integration.webhook.WebHookPayload;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link WebHookDispatchQueue}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class WebHookDispatchQueueTest {
+
+  private static final String TEST_HASH = "c518e9ed5fd5f9492f75fba443d014061cd63042";
+
+  private static final String TEST_TYPE = "jiraWebHookIntegration";
+
+  @Mock
+  private Environment environment;
+
+  @Mock
+  private RequestMetricsController metricsController;
+
+  @Mock
+  private WebHookIntegration integration;
+
+  @InjectMocks
+  private WebHookDispatchQueue dispatchQueue = new WebHookDispatchQueue();
+
+  private WebHookPayload payload =
+      new WebHookPayload(Collections.<String, String>emptyMap(),
+          Collections.<String, String>emptyMap(), "body");
+
+  private CircuitBreaker circuitBreaker = new CircuitBreaker("agent", 1, 1, 50, 60000L, 1, null);
+
+  @After
+  public void cleanup() {
+    dispatchQueue.destroy();
+  }
+
+  @Test
+  public void testDisabled() {
+    doReturn(Boolean.FALSE).when(environment)
+        .getProperty(WebHookDispatchQueue.ASYNC_ENABLED_KEY, Boolean.class, Boolean.FALSE);
+
+    dispatchQueue.init();
+
+    assertFalse(dispatchQueue.isEnabled());
+  }
+
+  @Test
+  public void testDispatch() {
+    mockEnvironment(1, 1);
+    dispatchQueue.init();
+
+    assertTrue(dispatchQueue.isEnabled());
+    assertTrue(dispatchQueue.offer(integration, TEST_HASH, TEST_TYPE, payload, circuitBreaker));
+
+    verify(integration, timeout(1000)).handle(TEST_HASH, TEST_TYPE, payload);
+    verify(metricsController, timeout(1000)).finishWebHookQueueWait(anyLong());
+  }
+
+  @Test
+  public void testQueueFull() throws InterruptedException {
+    mockEnvironment(1, 1);
+    dispatchQueue.init();
+
+    final CountDownLatch running = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        running.countDown();
+        release.await();
+        return null;
+      }
+    }).when(integration).handle(eq(TEST_HASH), eq(TEST_TYPE), any(WebHookPayload.class));
+
+    // first payload holds the only worker, second one fills the queue
+    assertTrue(dispatchQueue.offer(integration, TEST_HASH, TEST_TYPE, payload, circuitBreaker));
+    assertTrue(running.await(1, TimeUnit.SECONDS));
+    assertTrue(dispatchQueue.offer(integration, TEST_HASH, TEST_TYPE, payload, circuitBreaker));
+
+    assertFalse(dispatchQueue.offer(integration, TEST_HASH, TEST_TYPE, payload, circuitBreaker));
+    verify(metricsController).rejectWebHookRequest();
+
+    release.countDown();
+  }
+
+  @Test
+  public void testDispatchConnectivityFailure() throws InterruptedException {
+    mockEnvironment(1, 1);
+    dispatchQueue.init();
+
+    doThrow(mock(ConnectivityException.class)).when(integration)
+        .handle(eq(TEST_HASH), eq(TEST_TYPE), any(WebHookPayload.class));
+
+    assertTrue(dispatchQueue.offer(integration, TEST_HASH, TEST_TYPE, payload, circuitBreaker));
+
+    verify(integration, timeout(1000)).handle(TEST_HASH, TEST_TYPE, payload);
+
+    // the failure is reported right after the call returns
+    for (int i = 0; i < 100 && circuitBreaker.getState() != CircuitBreaker.State.OPEN; i++) {
+      Thread.sleep(10);
+    }
+
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+  }
+
+  private void mockEnvironment(int capacity, int workers) {
+    doReturn(Boolean.TRUE).when(environment)
+        .getProperty(WebHookDispatchQueue.ASYNC_ENABLED_KEY, Boolean.class, Boolean.FALSE);
+    doReturn(capacity).when(environment).getProperty(WebHookDispatchQueue.QUEUE_CAPACITY_KEY,
+        Integer.class, WebHookDispatchQueue.DEFAULT_QUEUE_CAPACITY);
+    doReturn(workers).when(environment).getProperty(WebHookDispatchQueue.WORKER_POOL_SIZE_KEY,
+        Integer.class, WebHookDispatchQueue.DEFAULT_WORKER_POOL_SIZE);
+  }
+
+}
@@ -19,13 +19,14 @@ package org.symphonyoss.integration.web.resource;
 import static junit.framework.TestCase.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.Assert;
@@ -33,25 +34,28 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.symphonyoss.integration.IntegrationStatus;
+import org.symphonyoss.integration.config.exception.InstanceNotFoundException;
+import org.symphonyoss.integration.core.circuit.CircuitBreaker;
+import org.symphonyoss.integration.core.circuit.Downstream;
 import org.symphonyoss.integration.entity.MessageMLParseException;
 import org.symphonyoss.integration.exception.authentication.ConnectivityException;
 import org.symphonyoss.integration.exception.config.IntegrationConfigException;
 import org.symphonyoss.integration.model.config.IntegrationSettings;
 import org.symphonyoss.integration.web.exception.IntegrationBridgeUnavailableException;
 import org.symphonyoss.integration.web.exception.IntegrationUnavailableException;
+import org.symphonyoss.integration.web.queue.WebHookDispatchQueue;
 import org.symphonyoss.integration.webhook.WebHookPayload;
 import org.symphonyoss.integration.webhook.exception.WebHookDisabledException;
 import org.symphonyoss.integration.webhook.exception.WebHookParseException;
 import org.symphonyoss.integration.webhook.exception.WebHookUnavailableException;
 
-import java.util.concurrent.TimeUnit;
-
 /**
  * Unit tests for {@link WebHookDispatcherResource}.
  *
@@ -71,6 +75,9 @@ public class WebHookDispatcherResourceTest extends WebHookResourceTest {
   @InjectMocks
   private WebHookDispatcherResource webHookDispatcherResource = new WebHookDispatcherResource();
 
+  @Mock
+  private WebHookDispatchQueue dispatchQueue;
+
   private WebHookPayload payload;
 
   @Before
@@ -141,6 +148,46 @@ public class WebHookDispatcherResourceTest extends WebHookResourceTest {
         MESSAGE_BODY, request), ResponseEntity.ok().body(""));
   }
 
+  /**
+   * Validates the request is accepted and enqueued when the accept-and-queue mode is enabled.
+   */
+  @Test
+  public void testHandleRequestEnqueued() throws Exception {
+    mockConfiguration(true);
+    mockStatus(IntegrationStatus.ACTIVE);
+    mockRequest();
+
+    doReturn(true).when(dispatchQueue).isEnabled();
+    doReturn(true).when(dispatchQueue)
+        .offer(eq(whiIntegration), eq(TEST_HASH), eq(TEST_USER), any(WebHookPayload.class),
+            eq(agentCircuitBreaker));
+
+    assertEquals(ResponseEntity.status(HttpStatus.ACCEPTED).body(""),
+        webHookDispatcherResource.handleRequest(TEST_HASH, CONFIGURATION_ID, TEST_USER,
+            MESSAGE_BODY, request));
+
+    verify(whiIntegration, never()).handle(anyString(), anyString(), any(WebHookPayload.class));
+  }
+
+  /**
+   * Validates the request is rejected when the dispatch queue is full.
+   */
+  @Test
+  public void testHandleRequestQueueFull() throws Exception {
+    mockConfiguration(true);
+    mockStatus(IntegrationStatus.ACTIVE);
+    mockRequest();
+
+    doReturn(true).when(dispatchQueue).isEnabled();
+    doReturn(false).when(dispatchQueue)
+        .offer(eq(whiIntegration), eq(TEST_HASH), eq(TEST_USER), any(WebHookPayload.class),
+            any(CircuitBreaker.class));
+
+    assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+        webHookDispatcherResource.handleRequest(TEST_HASH, CONFIGURATION_ID, TEST_USER,
+            MESSAGE_BODY, request).getStatusCode());
+  }
+
   /**
    * Validates the most successful scenario when receiving a request.
    */
@@ -201,6 +248,16 @@ public class WebHookDispatcherResourceTest extends WebHookResourceTest {
         webHookDispatcherResource.handleBadRequest(ex).getStatusCode());
   }
 
+  /**
+   * Test an HTTP Bad Request caused by {@link InstanceNotFoundException}
+   */
+  @Test
+  public void testInstanceNotFound() {
+    InstanceNotFoundException ex = new InstanceNotFoundException(TEST_HASH);
+    Assert.assertEquals(HttpStatus.BAD_REQUEST,
+        webHookDispatcherResource.handleInstanceNotFoundException(ex).getStatusCode());
+  }
+
   /**
    * Test an HTTP Internal Server caused by {@link IntegrationUnavailableException}
    */
@@ -273,43 +330,77 @@ public class WebHookDispatcherResourceTest extends WebHookResourceTest {
   }
 
   /**
-   * Tests the way {@link WebHookResource} handles its internal circuit breaker when it's in an
-   * open state.
+   * Tests the Agent circuit breaker opens after consecutive connectivity failures and then rejects
+   * the requests for the integration.
    */
   @Test(expected = IntegrationBridgeUnavailableException.class)
   public void testIntegrationBridgeUnavailableException() {
-    // simulates an early call resulting in a connectivity exception
-    webHookDispatcherResource.handleConnectivityException(mock(ConnectivityException.class));
+    mockConfiguration(true);
+    mockStatus(IntegrationStatus.ACTIVE);
+    mockRequest();
+
+    doThrow(mock(ConnectivityException.class)).when(whiIntegration)
+        .handle(anyString(), anyString(), any(WebHookPayload.class));
 
-    // should return an exception due to it's internal circuit breaker state being "open".
+    for (int i = 0; i < 2; i++) {
+      try {
+        webHookDispatcherResource.handleRequest(TEST_HASH, CONFIGURATION_ID, TEST_USER,
+            MESSAGE_BODY, request);
+      } catch (ConnectivityException e) {
+        // expected
+      }
+    }
+
+    assertEquals(CircuitBreaker.State.OPEN, agentCircuitBreaker.getState());
+
+    // should return an exception due to the Agent circuit breaker state being "open".
     webHookDispatcherResource.handleRequest(TEST_HASH, CONFIGURATION_ID, TEST_USER, MESSAGE_BODY,
         request);
   }
 
+  /**
+   * Tests the HEAD requests are rejected when the POD circuit breaker is open, while the Agent
+   * circuit breaker is not affected.
+   */
+  @Test
+  public void testPodCircuitOpen() {
+    mockConfiguration(true);
+    mockStatus(IntegrationStatus.ACTIVE);
+
+    podCircuitBreaker.onFailure();
+    podCircuitBreaker.onFailure();
+
+    try {
+      webHookDispatcherResource.handleHeadRequest(TEST_HASH, CONFIGURATION_ID, TEST_USER);
+      Assert.fail();
+    } catch (IntegrationBridgeUnavailableException e) {
+      assertEquals(CircuitBreaker.State.CLOSED, agentCircuitBreaker.getState());
+    }
+
+    verify(integrationService, never()).getInstanceById(CONFIGURATION_ID, TEST_HASH, TEST_USER);
+  }
+
+  /**
+   * Tests the circuit breaker closes again after a successful probe request.
+   */
   @Test
   public void testCircuitClosing() {
-    // mock to run immediately when a scheduled call is made.
-    doAnswer(new Answer<Object>() {
-      @Override
-      public Object answer(InvocationOnMock invocation) throws Throwable {
-        ((Runnable) invocation.getArguments()[0]).run();
-        return null;
-      }
-    }).when(scheduler)
-        .schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    CircuitBreaker circuitBreaker = new CircuitBreaker("pod", 2, 2, 50, 0L, 1, null);
+    doReturn(circuitBreaker).when(circuitBreakerRegistry)
+        .getCircuitBreaker(TEST_USER, Downstream.POD);
 
-    // simulates an early call resulting in a connectivity exception
-    // as we have now the mock above, it should open and close immediately the circuit breaker,
-    // accepting calls normally after this call.
-    webHookDispatcherResource.handleConnectivityException(mock(ConnectivityException.class));
+    circuitBreaker.onFailure();
+    circuitBreaker.onFailure();
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
 
-    // now everything should run smoothly.
     mockConfiguration(true);
     mockStatus(IntegrationStatus.ACTIVE);
     mockRequest();
 
+    // the open timeout has expired, so this request is the half-open probe.
     assertEquals(ResponseEntity.ok().build(),
         webHookDispatcherResource.handleHeadRequest(TEST_HASH, CONFIGURATION_ID, TEST_USER));
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
   }
 
   @Test
@@ -16,10 +16,17 @@
 
 package org.symphonyoss.integration.web.resource;
 
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 
+import org.junit.Before;
 import org.mockito.Mock;
 import org.symphonyoss.integration.IntegrationStatus;
+import org.symphonyoss.integration.core.circuit.CircuitBreaker;
+import org.symphonyoss.integration.core.circuit.CircuitBreakerRegistry;
+import org.symphonyoss.integration.core.circuit.Downstream;
 import org.symphonyoss.integration.exception.config.IntegrationConfigException;
 import org.symphonyoss.integration.model.config.IntegrationInstance;
 import org.symphonyoss.integration.model.config.IntegrationSettings;
@@ -32,7 +39,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
-import java.util.concurrent.ScheduledExecutorService;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -94,7 +100,24 @@ public abstract class WebHookResourceTest {
   protected HttpServletRequest request;
 
   @Mock
-  protected ScheduledExecutorService scheduler;
+  protected CircuitBreakerRegistry circuitBreakerRegistry;
+
+  /**
+   * Circuit breakers that open after two failed calls and remain open during the test.
+   */
+  protected CircuitBreaker agentCircuitBreaker =
+      new CircuitBreaker("agent", 2, 2, 50, 60000L, 1, null);
+
+  protected CircuitBreaker podCircuitBreaker =
+      new CircuitBreaker("pod", 2, 2, 50, 60000L, 1, null);
+
+  @Before
+  public void mockCircuitBreakers() {
+    doReturn(agentCircuitBreaker).when(circuitBreakerRegistry)
+        .getCircuitBreaker(anyString(), eq(Downstream.AGENT));
+    doReturn(podCircuitBreaker).when(circuitBreakerRegistry)
+        .getCircuitBreaker(anyString(), eq(Downstream.POD));
+  }
 
   protected void mockStatus(IntegrationStatus status) {
     IntegrationHealth integrationHealth = new IntegrationHealth();
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2016-2017 Symphony Integrations - Symphony LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.symphonyoss.integration.web.route;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Unit tests for {@link WebHookRoute}
+ */
+public class WebHookRouteTest {
+
+  private static final String CONTEXT_PATH = "/integration";
+
+  private static final String TYPE = "jiraWebHookIntegration";
+
+  private static final String ID = "57756bca4b54433738037005";
+
+  private static final String HASH = "c518e9ed5fd5f9492f75fba443d014061cd63042";
+
+  private static final String WEBHOOK_URL = WebHookRoute.WEBHOOK_PATH + TYPE + "/" + ID + "/" + HASH;
+
+  @Test
+  public void testOtherPath() {
+    WebHookRoute route = WebHookRoute.parse(CONTEXT_PATH + "/metrics/", CONTEXT_PATH);
+
+    assertEquals(WebHookRoute.Kind.OTHER, route.getKind());
+    assertFalse(route.isWebHook());
+    assertEquals("/metrics/", route.getPath());
+    assertNull(route.getIntegrationKey());
+  }
+
+  @Test
+  public void testNullPath() {
+    WebHookRoute route = WebHookRoute.parse(null, null);
+
+    assertFalse(route.isWebHook());
+    assertEquals("", route.getPath());
+  }
+
+  @Test
+  public void testWebHookPath() {
+    WebHookRoute route = WebHookRoute.parse(WEBHOOK_URL, "");
+
+    assertTrue(route.isWebHook());
+    assertFalse(route.isWelcome());
+    assertEquals(TYPE, route.getIntegrationKey());
+    assertEquals(TYPE, route.getConfigurationType());
+    assertEquals(ID, route.getConfigurationId());
+    assertEquals(HASH, route.getHash());
+  }
+
+  @Test
+  public void testWebHookPathWithoutType() {
+    WebHookRoute route = WebHookRoute.parse(WebHookRoute.WEBHOOK_PATH + ID + "/" + HASH, "");
+
+    assertTrue(route.isWebHook());
+    assertEquals(ID, route.getIntegrationKey());
+    assertNull(route.getConfigurationType());
+    assertEquals(ID, route.getConfigurationId());
+    assertEquals(HASH, route.getHash());
+  }
+
+  @Test
+  public void testWelcomePath() {
+    WebHookRoute route = WebHookRoute.parse(WEBHOOK_URL + "/welcome/", "");
+
+    assertTrue(route.isWelcome());
+    assertEquals(TYPE, route.getConfigurationType());
+    assertEquals(ID, route.getConfigurationId());
+    assertEquals(HASH, route.getHash());
+  }
+
+  @Test
+  public void testIncompletePath() {
+    WebHookRoute route = WebHookRoute.parse(WebHookRoute.WEBHOOK_PATH + TYPE, "");
+
+    assertTrue(route.isWebHook());
+    assertNull(route.getIntegrationKey());
+    assertNull(route.getConfigurationId());
+    assertNull(route.getHash());
+  }
+
+  @Test
+  public void testLongPath() {
+    WebHookRoute route = WebHookRoute.parse(WEBHOOK_URL + "/welcome/other", "");
+
+    assertEquals(TYPE, route.getIntegrationKey());
+    assertFalse(route.isWelcome());
+    assertNull(route.getConfigurationId());
+    assertNull(route.getHash());
+  }
+
+  @Test
+  public void testRequestAttribute() {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", WEBHOOK_URL);
+
+    WebHookRoute route = WebHookRoute.of(request);
+
+    assertSame(route, request.getAttribute(WebHookRoute.ATTRIBUTE_NAME));
+    assertSame(route, WebHookRoute.of(request));
+  }
+
+}